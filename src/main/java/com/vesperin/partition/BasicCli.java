@@ -3,7 +3,10 @@ package com.vesperin.partition;
 import com.github.rvesse.airline.Cli;
 import com.github.rvesse.airline.builder.CliBuilder;
 import com.github.rvesse.airline.parser.errors.ParseException;
+import com.vesperin.partition.cmds.BatchProjects;
+import com.vesperin.partition.cmds.GroupProjects;
 import com.vesperin.partition.cmds.ProcessProjects;
+import com.vesperin.partition.cmds.ServeProjects;
 
 import java.util.Objects;
 import java.util.concurrent.Callable;
@@ -27,6 +30,51 @@ public interface BasicCli {
     return new BasicCliImpl(new Console());
   }
 
+  /**
+   * @return a new basic cli object that runs commands on the calling thread
+   *    and never exits the JVM; e.g., to run several commands in one JVM.
+   */
+  static BasicCli embedded(){
+    return new BasicCliImpl(new Embedded());
+  }
+
+  /**
+   * Parses and runs a command without exiting the JVM.
+   *
+   * @param introspector the cli object; see {@link #embedded()}.
+   * @param args the command arguments.
+   * @return the command's exit code; -1 if the arguments cannot be parsed.
+   */
+  static int call(BasicCli introspector, String... args){
+    Objects.requireNonNull(introspector);
+    Objects.requireNonNull(args);
+
+    final CliCommand cmd;
+    try {
+      cmd = introspector.buildCli().parse(args);
+    } catch (ParseException e) {
+      System.err.println("Parser error: " + e.getMessage());
+      return -1;
+    }
+
+    return call(introspector, cmd);
+  }
+
+  /**
+   * Runs a parsed command without exiting the JVM.
+   *
+   * @param introspector the cli object; see {@link #embedded()}.
+   * @param cmd the parsed command.
+   * @return the command's exit code.
+   */
+  static int call(BasicCli introspector, CliCommand cmd){
+    Objects.requireNonNull(introspector);
+    Objects.requireNonNull(cmd);
+
+    final Output output = introspector.run(cmd);
+    return output instanceof ExitCode ? ((ExitCode) output).code() : 0;
+  }
+
   /**
    * Executes the CLI of an Typicality object and its string arguments.
    *
@@ -123,6 +171,9 @@ public interface BasicCli {
     return buildCli(Cli.<CliCommand>builder("vip")
       .withDescription("Project Partitioning CLI")
       .withCommand(ProcessProjects.class)
+      .withCommand(ServeProjects.class)
+      .withCommand(GroupProjects.class)
+      .withCommand(BatchProjects.class)
     );
   }
 
@@ -187,6 +238,44 @@ public interface BasicCli {
     }
   }
 
+  /**
+   * Runs commands on the calling thread; unlike {@link Console}, it
+   * returns the command's exit code instead of exiting the JVM.
+   */
+  class Embedded implements Runner {
+    @Override public Output run(CliCommand command) {
+      try {
+        return new ExitCode(command.call());
+      } catch (Throwable e) {
+        System.err.println("Command threw error: " + e.getMessage());
+        e.printStackTrace(System.err);
+        return new ExitCode(-1);
+      }
+    }
+  }
+
+  /**
+   * Exit code of a command run by an {@link Embedded} runner.
+   */
+  class ExitCode implements Output {
+    private final int code;
+
+    ExitCode(Integer code){
+      this.code = Objects.isNull(code) ? 0 : code;
+    }
+
+    /**
+     * @return the exit code; 0 on success.
+     */
+    public int code(){
+      return code;
+    }
+
+    @Override public String toString() {
+      return "Exiting with Code " + code;
+    }
+  }
+
   class BasicCliImpl implements BasicCli {
     final Runner runner;
 
@@ -0,0 +1,348 @@
+package com.vesperin.partition.cmds;
+
+import com.github.rvesse.airline.HelpOption;
+import com.github.rvesse.airline.annotations.Command;
+import com.github.rvesse.airline.annotations.Option;
+import com.github.rvesse.airline.parser.errors.ParseException;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.vesperin.partition.BasicCli;
+import com.vesperin.partition.spi.Git;
+import com.vesperin.partition.utils.Engine;
+import com.vesperin.text.Introspector;
+
+import javax.inject.Inject;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Processes several corpora in one JVM, back to back or concurrently; each
+ * corpus is handed to the 'p' command through {@link BasicCli#embedded()}.
+ * All corpora share one output folder, and so its clones, archives, and
+ * word caches: a project listed in several corpora is cloned and parsed
+ * once. Each corpus keeps its checkpoint and snapshot in a workspace of
+ * its own (see 'p --workspace'), named after its file. The execution
+ * monitor is global to the JVM, so it is set once for the whole batch.
+ *
+ * @author Huascar Sanchez
+ */
+@SuppressWarnings("FieldCanBeLocal") @Command(name = "b", description = "Process several corpora in one run")
+public class BatchProjects implements BasicCli.CliCommand {
+
+  @Inject HelpOption<BatchProjects> help;
+
+  @Option(name = {"-f", "--from"}, arity = 1, description = "locates a corpus.json input; repeat it for more corpora")
+  private List<String> from = null;
+
+  @Option(name = {"-F", "--manifest"}, arity = 1, description = "locates a file listing corpus.json inputs, one per line ('#' starts a comment)")
+  private String manifest = null;
+
+  @Option(name = {"-t", "--to"}, arity = 1, description = "locates path of output folder, shared by all corpora")
+  private String to = null;
+
+  @Option(name = {"-o", "--out"}, arity = 1, description = "folder of output json files, one per corpus. Default is the output folder.")
+  private String out = null;
+
+  @Option(name = {"-c", "--concurrent"}, arity = 1, description = "Number of corpora processed at once. Default is 1 (back to back).")
+  private int concurrent = 1;
+
+  @Option(name = {"-s", "--scope"}, arity = 1, description = "Search scope: (c)lassname (default), (m)ethodname, method (b)ody")
+  private String scope = "c";
+
+  @Option(name = {"-m", "--min"}, arity = 1, description = "Desired minimum of words shared by projects. Default is 3.")
+  private int overlap = 3;
+
+  @Option(name = {"-w", "--sweep"}, arity = 1, description = "Sweeps a range of minimums of shared words (e.g., 3:10) instead of using -m")
+  private String sweep = null;
+
+  @Option(name = {"-l", "--labels"}, arity = 1, description = "Maximum number of words labelling each cluster; 0 skips labels. Default is all.")
+  private int labels = ProcessProjects.Clusters.ALL_LABELS;
+
+  @Option(name = {"-a", "--algorithm"}, arity = 1, description = "Grouping algorithm: (g)reedy (default), (k)ruskal, (l)si k-means, label (p)ropagation")
+  private String algorithm = "g";
+
+  @Option(name = {"-j", "--jobs"}, arity = 1, description = "With --incremental, parses the files of each corpus' projects on this many threads, largest files first. Default is 1.")
+  private int jobs = 1;
+
+  @Option(name = {"-i", "--incremental"}, description = "Extracts words file by file; when a project's git-ref moves, only changed files are parsed again")
+  private boolean incremental = false;
+
+  @Option(name = {"-x", "--archive"}, description = "Reads sources from zip/tar archives (git archive) instead of checked out working trees")
+  private boolean archive = false;
+
+  @Option(name = {"-g", "--git-objects"}, description = "Reads sources from git's object store instead of checked out working trees")
+  private boolean objects = false;
+
+  @Option(name = {"-r", "--resume"}, description = "Resumes previous runs, skipping finished projects")
+  private boolean resume = false;
+
+  @Option(name = {"-v", "--verbose"}, description = "Prints logging messages")
+  private boolean verbose = false;
+
+  // vip b -f a/corpus.json -f b/corpus.json -t path/to/folder/ => a.json and b.json, back to back
+  // vip b -F corpora.txt -t path/to/folder/ -o path/to/results/ => one json file per listed corpus
+  // vip b -F corpora.txt -t path/to/folder/ -c 2 => processes two corpora at once
+
+  @Override public Integer call() throws Exception {
+    if(!help.showHelpIfRequested()){
+
+      try {
+        if(BasicCli.allNull(1, to)) {
+          System.err.println("Unable to locate output folder.");
+          return -1;
+        }
+
+        if(concurrent < 1){
+          System.err.println("ERROR: --concurrent must be at least 1");
+          return -1;
+        }
+
+        if(jobs > 1 && !incremental){
+          System.err.println("ERROR: --jobs requires --incremental");
+          return -1;
+        }
+
+        final Engine engine;
+        try {
+          engine = Engine.from(algorithm);
+        } catch (IllegalArgumentException e){
+          System.err.println("ERROR: " + e.getMessage());
+          return -1;
+        }
+
+        if(!Objects.isNull(sweep) && !engine.usesOverlap()){
+          System.err.println("ERROR: --sweep needs an algorithm using the minimum of shared words (g or p)");
+          return -1;
+        }
+
+        final List<Path> corpora = Lists.newArrayList();
+        if(!Objects.isNull(from)){
+          from.forEach(each -> corpora.add(Paths.get(each).toAbsolutePath()));
+        }
+
+        if(!Objects.isNull(manifest)){
+          final Path list = Paths.get(manifest).toAbsolutePath();
+          if(!Files.exists(list)){
+            System.err.println(String.format("ERROR: Unable to find %s ", list));
+            return -1;
+          }
+
+          corpora.addAll(readManifest(list));
+        }
+
+        if(corpora.isEmpty()){
+          System.err.println("Unable to locate corpus.json files.");
+          return -1;
+        }
+
+        for(Path each : corpora){
+          if(!Files.exists(each)){
+            System.err.println(String.format("ERROR: Unable to find %s ", each));
+            return -1;
+          }
+        }
+
+        if(concurrent > 1){
+          final String conflict = conflictOf(corpora);
+          if(!Objects.isNull(conflict)){
+            System.err.println("ERROR: " + conflict + "; process these corpora back to back (without -c)");
+            return -1;
+          }
+        }
+
+        if(verbose){ Introspector.enableMonitor(); } else {
+          Introspector.disableMonitor();
+        }
+
+        final Path outDir     = Paths.get(to).toAbsolutePath();
+        final Path resultsDir = Objects.isNull(out) ? outDir : Paths.get(out).toAbsolutePath();
+        Files.createDirectories(resultsDir);
+
+        final List<String> workspaces = workspacesOf(corpora);
+        final List<String[]> runs = Lists.newArrayList();
+        for(int idx = 0; idx < corpora.size(); idx++){
+          final String workspace = workspaces.get(idx);
+          runs.add(argumentsOf(corpora.get(idx), outDir, resultsDir.resolve(workspace + ".json"), workspace));
+        }
+
+        final List<Integer> codes = run(runs);
+
+        int failed = 0;
+        for(int idx = 0; idx < corpora.size(); idx++){
+          final int code = codes.get(idx);
+          if(code != 0) failed++;
+
+          System.out.println(String.format("%s: %s", corpora.get(idx),
+            code == 0 ? "done" : "failed with code " + code)
+          );
+        }
+
+        if(failed > 0){
+          System.err.println(String.format("ERROR: %d of %d corpora failed", failed, corpora.size()));
+          return -1;
+        }
+      } catch (Exception e){
+        e.printStackTrace(System.err);
+        return -1;
+      }
+
+    }
+
+    return 0;
+  }
+
+  private List<Integer> run(List<String[]> runs) throws Exception {
+    final BasicCli cli = BasicCli.embedded();
+
+    final List<Integer> codes = Lists.newArrayList();
+    if(concurrent == 1){
+      for(String[] each : runs){
+        codes.add(call(cli, each));
+      }
+
+      return codes;
+    }
+
+    final ExecutorService service = Executors.newFixedThreadPool(
+      Math.min(concurrent, runs.size()),
+      new ThreadFactoryBuilder().setNameFormat("batch-%d").build()
+    );
+
+    try {
+      final List<Future<Integer>> futures = Lists.newArrayList();
+      for(String[] each : runs){
+        futures.add(service.submit(() -> call(cli, each)));
+      }
+
+      for(Future<Integer> each : futures){
+        codes.add(each.get());
+      }
+    } finally {
+      service.shutdownNow();
+    }
+
+    return codes;
+  }
+
+  private static int call(BasicCli cli, String[] args){
+    final BasicCli.CliCommand command;
+    try {
+      command = cli.buildCli().parse(args);
+    } catch (ParseException e){
+      System.err.println("Parser error: " + e.getMessage());
+      return -1;
+    }
+
+    // runs must not toggle the monitor set for the whole batch
+    if(command instanceof ProcessProjects) ((ProcessProjects) command).keepMonitor();
+
+    return BasicCli.call(cli, command);
+  }
+
+  private String[] argumentsOf(Path corpus, Path outDir, Path result, String workspace){
+    final List<String> args = Lists.newArrayList(
+      "p",
+      "-f", corpus.toString(),
+      "-t", outDir.toString(),
+      "-o", result.toString(),
+      "-k", workspace,
+      "-s", scope,
+      "-m", String.valueOf(overlap),
+      "-a", algorithm,
+      "-j", String.valueOf(jobs)
+    );
+
+    if(labels != ProcessProjects.Clusters.ALL_LABELS) { args.add("-l"); args.add(String.valueOf(labels)); }
+    if(!Objects.isNull(sweep))  { args.add("-w"); args.add(sweep); }
+    if(incremental)             args.add("-i");
+    if(archive)                 args.add("-x");
+    if(objects)                 args.add("-g");
+    if(resume)                  args.add("-r");
+
+    return args.toArray(new String[0]);
+  }
+
+  /**
+   * Reads the corpus.json files listed in a manifest. Relative paths are
+   * resolved against the manifest's folder.
+   */
+  private static List<Path> readManifest(Path manifest) throws IOException {
+    final Path base = manifest.getParent();
+
+    final List<Path> corpora = Lists.newArrayList();
+    for(String each : Files.readAllLines(manifest, StandardCharsets.UTF_8)){
+      final int    comment = each.indexOf('#');
+      final String line    = (comment < 0 ? each : each.substring(0, comment)).trim();
+      if(line.isEmpty()) continue;
+
+      corpora.add(base.resolve(line).toAbsolutePath().normalize());
+    }
+
+    return corpora;
+  }
+
+  /**
+   * Names each corpus' workspace after its file (e.g., android.json is
+   * android); clashing names get a numeric suffix.
+   */
+  private static List<String> workspacesOf(List<Path> corpora){
+    final Set<String>   taken = Sets.newHashSet();
+    final List<String>  names = Lists.newArrayList();
+
+    for(Path each : corpora){
+      final String stem = each.getFileName().toString()
+        .replaceFirst("\\.json$", "")
+        .replaceAll("[^A-Za-z0-9._-]", "_");
+
+      String name = stem;
+      for(int suffix = 2; !taken.add(name); suffix++){
+        name = stem + "-" + suffix;
+      }
+
+      names.add(name);
+    }
+
+    return names;
+  }
+
+  /**
+   * Corpora processed at once share working trees, so a project must be
+   * pinned to the same git-ref in all of them.
+   *
+   * @return a description of the first conflict; null if there is none.
+   */
+  private static String conflictOf(List<Path> corpora) throws IOException {
+    final Map<String, String> refs    = Maps.newHashMap();
+    final Map<String, Path>   sources = Maps.newHashMap();
+
+    for(Path corpus : corpora){
+      final Map<String, String> pinned = Git.readRefs(corpus);
+      for(String url : Git.readUrls(corpus)){
+        final String name = Git.from(url).toFile().getName();
+        final String ref  = pinned.getOrDefault(url, "HEAD");
+
+        if(!sources.containsKey(name)){
+          sources.put(name, corpus);
+          refs.put(name, ref);
+        } else if(!refs.get(name).equals(ref)){
+          return String.format("%s is pinned to %s in %s but to %s in %s",
+            name, refs.get(name), sources.get(name), ref, corpus);
+        }
+      }
+    }
+
+    return null;
+  }
+}
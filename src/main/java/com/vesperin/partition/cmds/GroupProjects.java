@@ -0,0 +1,107 @@
+package com.vesperin.partition.cmds;
+
+import com.github.rvesse.airline.HelpOption;
+import com.github.rvesse.airline.annotations.Command;
+import com.github.rvesse.airline.annotations.Option;
+import com.vesperin.partition.BasicCli;
+import com.vesperin.partition.utils.Engine;
+import com.vesperin.partition.utils.ProjectIndex;
+import com.vesperin.partition.utils.Snapshot;
+import com.vesperin.text.Grouping;
+import com.vesperin.text.spi.BasicExecutionMonitor;
+import com.vesperin.text.spi.ExecutionMonitor;
+
+import javax.inject.Inject;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Objects;
+
+/**
+ * Groups the projects of a word set snapshot; i.e., the snapshot written
+ * by the 'p' command, without cloning or parsing anything.
+ *
+ * @author Huascar Sanchez
+ */
+@SuppressWarnings("FieldCanBeLocal") @Command(name = "g", description = "Group projects from a word set snapshot")
+public class GroupProjects implements BasicCli.CliCommand {
+
+  final ExecutionMonitor MONITOR = BasicExecutionMonitor.get();
+
+  @Inject HelpOption<GroupProjects> help;
+
+  @Option(name = {"-f", "--from"}, arity = 1, description = "locates the snapshot input (e.g., out-folder/.partitions/words.snapshot)")
+  private String from = null;
+
+  @Option(name = {"-o", "--out"}, arity = 1, description = "output json file")
+  private String out = null;
+
+  @Option(name = {"-m", "--min"}, arity = 1, description = "Desired minimum of words shared by projects. Default is 3.")
+  private int overlap = 3;
+
+  @Option(name = {"-w", "--sweep"}, arity = 1, description = "Sweeps a range of minimums of shared words (e.g., 3:10) instead of using -m")
+  private String sweep = null;
+
+  @Option(name = {"-l", "--labels"}, arity = 1, description = "Maximum number of words labelling each cluster; 0 skips labels. Default is all.")
+  private int labels = ProcessProjects.Clusters.ALL_LABELS;
+
+  @Option(name = {"-a", "--algorithm"}, arity = 1, description = "Grouping algorithm: (g)reedy (default), (k)ruskal, (l)si k-means, label (p)ropagation")
+  private String algorithm = "g";
+
+  // vip g -f out-folder/.partitions/words.snapshot -m 5 => screen
+  // vip g -f out-folder/.partitions/words.snapshot -m 5 -o foo.json => provides an output json file
+  // vip g -f out-folder/.partitions/words.snapshot -w 3:10 -o foo.json => foo-m3.json ... foo-m10.json, foo-sweep.json
+  // vip g -f out-folder/.partitions/words.snapshot -a k -o foo.json => groups projects using Kruskal's algorithm
+
+  @Override public Integer call() throws Exception {
+    if(!help.showHelpIfRequested()){
+
+      try {
+        if(BasicCli.allNull(1, from)) {
+          System.err.println("Unable to locate snapshot file.");
+          return -1;
+        }
+
+        final Path snapshot = Paths.get(from).toAbsolutePath();
+
+        if(!Files.exists(snapshot)){
+          System.err.println(
+            String.format("ERROR: Unable to find %s ", snapshot)
+          );
+
+          return -1;
+        }
+
+        final Engine engine;
+        try {
+          engine = Engine.from(algorithm);
+        } catch (IllegalArgumentException e){
+          System.err.println("ERROR: " + e.getMessage());
+          return -1;
+        }
+
+        if(!Objects.isNull(sweep) && !engine.usesOverlap()){
+          System.err.println("ERROR: --sweep needs an algorithm using the minimum of shared words (g or p)");
+          return -1;
+        }
+
+        final ProjectIndex index = Snapshot.read(snapshot);
+
+        if(Objects.isNull(sweep)){
+          final Grouping.Groups           groups   = index.groups(engine, overlap);
+          final ProcessProjects.Clusters  clusters = new ProcessProjects.Clusters(index, groups, labels);
+          ProcessProjects.writeClusters(clusters, out, MONITOR);
+          ProcessProjects.writeReport(index, groups, out, MONITOR);
+        } else {
+          ProcessProjects.writeSweep(index, engine, sweep, labels, out, MONITOR);
+        }
+      } catch (Exception e){
+        e.printStackTrace(System.err);
+        return -1;
+      }
+
+    }
+
+    return 0;
+  }
+}
@@ -3,8 +3,9 @@ package com.vesperin.partition.cmds;
 import com.github.rvesse.airline.HelpOption;
 import com.github.rvesse.airline.annotations.Command;
 import com.github.rvesse.airline.annotations.Option;
-import com.google.common.collect.Iterables;
+import com.google.common.base.Splitter;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 import com.google.common.primitives.Ints;
 import com.google.gson.Gson;
@@ -12,15 +13,24 @@ import com.google.gson.GsonBuilder;
 import com.vesperin.base.Source;
 import com.vesperin.partition.BasicCli;
 import com.vesperin.partition.spi.Git;
+import com.vesperin.partition.spi.GitObjects;
+import com.vesperin.partition.utils.Checkpoint;
+import com.vesperin.partition.utils.ClusterQuality;
+import com.vesperin.partition.utils.Engine;
+import com.vesperin.partition.utils.FileWords;
 import com.vesperin.partition.utils.GroupMaker;
 import com.vesperin.partition.utils.IO;
+import com.vesperin.partition.utils.ProjectIndex;
+import com.vesperin.partition.utils.Scheduler;
+import com.vesperin.partition.utils.Snapshot;
 import com.vesperin.partition.utils.Sources;
+import com.vesperin.partition.utils.Symbols;
+import com.vesperin.partition.utils.WordCache;
 import com.vesperin.partition.utils.WordMaker;
 import com.vesperin.text.Corpus;
 import com.vesperin.text.Grouping;
 import com.vesperin.text.Introspector;
 import com.vesperin.text.Project;
-import com.vesperin.text.Selection;
 import com.vesperin.text.spelling.StopWords;
 import com.vesperin.text.spi.BasicExecutionMonitor;
 import com.vesperin.text.spi.ExecutionMonitor;
@@ -28,15 +38,22 @@ import com.vesperin.text.tokenizers.Tokenizers;
 import com.vesperin.text.tokenizers.WordsTokenizer;
 
 import javax.inject.Inject;
+import java.io.File;
+import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+import java.util.function.IntUnaryOperator;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 import static com.vesperin.text.Selection.Word;
@@ -49,6 +66,33 @@ import static java.nio.file.StandardOpenOption.CREATE;
 @SuppressWarnings("FieldCanBeLocal") @Command(name = "p", description = "Process a list of projects")
 public class ProcessProjects implements BasicCli.CliCommand {
 
+  static final String CACHE_DIR     = ".partitions/words";
+  static final String SNAPSHOT_FILE = ".partitions/words.snapshot";
+  static final String FILES_DIR     = ".partitions/files";
+  static final String ARCHIVES_DIR  = ".partitions/archives";
+  static final String REPOS_DIR     = ".partitions/repos";
+  static final String CHECKPOINT    = ".partitions/checkpoint.jsonl";
+  static final String WORKSPACES    = ".partitions/workspaces";
+
+  // serializes work on a project shared by runs in one JVM (see BatchProjects)
+  private static final ConcurrentMap<String, Object> LOCKS = Maps.newConcurrentMap();
+
+  private static final String[] ARCHIVE_FORMATS = {".zip", ".tar", ".tar.gz", ".tgz"};
+
+  /**
+   * How the sources of a project are read.
+   */
+  enum Ingest {
+    /** From a checked out working tree. */
+    TREE,
+    /** From a checked out working tree, file by file, re-parsing only changed files. */
+    INCREMENTAL,
+    /** From a zip or tar archive of the project, without a working tree. */
+    ARCHIVE,
+    /** From the repository's object store (git cat-file), without a working tree. */
+    OBJECTS
+  }
+
   final ExecutionMonitor MONITOR = BasicExecutionMonitor.get();
 
   @Inject HelpOption<ProcessProjects> help;
@@ -72,10 +116,47 @@ public class ProcessProjects implements BasicCli.CliCommand {
   @Option(name = {"-v", "--verbose"}, description = "Prints logging messages")
   private boolean verbose = false;
 
+  @Option(name = {"-r", "--resume"}, description = "Resumes a previous run, skipping finished projects")
+  private boolean resume = false;
+
+  @Option(name = {"-w", "--sweep"}, arity = 1, description = "Sweeps a range of minimums of shared words (e.g., 3:10) instead of using -m")
+  private String sweep = null;
+
+  @Option(name = {"-l", "--labels"}, arity = 1, description = "Maximum number of words labelling each cluster; 0 skips labels. Default is all.")
+  private int labels = Clusters.ALL_LABELS;
+
+  @Option(name = {"-i", "--incremental"}, description = "Extracts words file by file; when a project's git-ref moves, only changed files are parsed again")
+  private boolean incremental = false;
+
+  @Option(name = {"-x", "--archive"}, description = "Reads sources from zip/tar archives (git archive) instead of checked out working trees")
+  private boolean archive = false;
+
+  @Option(name = {"-g", "--git-objects"}, description = "Reads sources from git's object store instead of checked out working trees")
+  private boolean objects = false;
+
+  @Option(name = {"-j", "--jobs"}, arity = 1, description = "With --incremental, parses the files of all projects on this many threads, largest files first. Default is 1.")
+  private int jobs = 1;
+
+  @Option(name = {"-a", "--algorithm"}, arity = 1, description = "Grouping algorithm: (g)reedy (default), (k)ruskal, (l)si k-means, label (p)ropagation")
+  private String algorithm = "g";
+
+  @Option(name = {"-k", "--workspace"}, arity = 1, description = "Keeps this run's checkpoint and snapshot under .partitions/workspaces/<name>, so runs of several corpora can share one output folder")
+  private String workspace = null;
+
+  // set by BatchProjects, which sets the (JVM wide) monitor once for all its runs
+  private boolean keepMonitor = false;
+
   // vip p -f corpus.json -t path/to/folder/ => to file
   // vip p -f corpus.json => screen
   // vip p -f corpus.json -v => screen (verbose mode)
   // vip p -f corpus.json -v -o foo.json => provides an output json file
+  // vip p -f corpus.json -a k -o foo.json => groups projects using Kruskal's algorithm
+  // vip p -f corpus.json -l 10 -o foo.json => labels each cluster with its 10 most typical words
+  // vip p -f corpus.json -t path/to/folder/ -i => re-parses only files changed since the last run
+  // vip p -f corpus.json -t path/to/folder/ -x => reads sources from archives, without working trees
+  // vip p -f corpus.json -t path/to/folder/ -g => reads sources from git's object store, without working trees
+  // vip p -f corpus.json -t path/to/folder/ -i -j 8 => parses files of all projects on 8 threads, largest files first
+  // vip p -f corpus.json -t path/to/folder/ -k foo => checkpoint and snapshot go to path/to/folder/.partitions/workspaces/foo/
 
   @Override public Integer call() throws Exception {
     if(!help.showHelpIfRequested()){
@@ -92,8 +173,10 @@ public class ProcessProjects implements BasicCli.CliCommand {
         }
 
 
-        if(verbose){ Introspector.enableMonitor(); } else {
-          Introspector.disableMonitor();
+        if(!keepMonitor){
+          if(verbose){ Introspector.enableMonitor(); } else {
+            Introspector.disableMonitor();
+          }
         }
 
         final Path corpusJson = Paths.get(from).toAbsolutePath();
@@ -108,7 +191,59 @@ public class ProcessProjects implements BasicCli.CliCommand {
 
         final Path outDir     = Paths.get(to).toAbsolutePath();
 
-        final List<String> projectNames = Git.processJson(corpusJson, outDir);
+        if(Objects.isNull(tokenizer(scope))){
+          System.err.println("ERROR: Unable to construct a tokenizer matching the given scope");
+          return -1;
+        }
+
+        final Engine engine;
+        try {
+          engine = Engine.from(algorithm);
+        } catch (IllegalArgumentException e){
+          System.err.println("ERROR: " + e.getMessage());
+          return -1;
+        }
+
+        if(!Objects.isNull(sweep) && !engine.usesOverlap()){
+          System.err.println("ERROR: --sweep needs an algorithm using the minimum of shared words (g or p)");
+          return -1;
+        }
+
+        if((incremental ? 1 : 0) + (archive ? 1 : 0) + (objects ? 1 : 0) > 1){
+          System.err.println("ERROR: --incremental, --archive and --git-objects cannot be combined");
+          return -1;
+        }
+
+        if(jobs < 1){
+          System.err.println("ERROR: --jobs must be at least 1");
+          return -1;
+        }
+
+        // words extracted file by file differ from whole-project ones;
+        // a thread count must not change the results
+        if(jobs > 1 && !incremental){
+          System.err.println("ERROR: --jobs requires --incremental");
+          return -1;
+        }
+
+        if(!Objects.isNull(workspace) && (!workspace.matches("[A-Za-z0-9._-]+") || workspace.matches("\\.+"))){
+          System.err.println("ERROR: --workspace must be a plain folder name");
+          return -1;
+        }
+
+        final Ingest ingest = archive ? Ingest.ARCHIVE
+          : objects ? Ingest.OBJECTS
+          : incremental ? Ingest.INCREMENTAL
+          : Ingest.TREE;
+
+        // words extracted file by file differ from whole-project ones
+        final String      checkpointScope = ingest == Ingest.INCREMENTAL ? scope + ":files" : scope;
+        final Path        checkpointFile  = workspaceFile(outDir, workspace, CHECKPOINT);
+        final Checkpoint  checkpoint      = resume
+          ? Checkpoint.load(checkpointFile, checkpointScope, WordMaker.fingerprint())
+          : Checkpoint.create(checkpointFile, checkpointScope, WordMaker.fingerprint());
+
+        final List<String> projectNames = cloneProjects(corpusJson, outDir, ingest, checkpoint);
         if(projectNames.isEmpty()){
 
           System.err.println(
@@ -118,93 +253,657 @@ public class ProcessProjects implements BasicCli.CliCommand {
           return -1;
         }
 
-        final List<Map<String, Corpus<Source>>> projectMetadata = Lists.newArrayList();
+        final ProjectIndex index = new ProjectIndex();
+        indexProjects(index, projectNames, outDir, scope, ingest, jobs, checkpoint);
 
-        for(String name : projectNames){
-          final Path            start   = Paths.get(outDir.toFile().getAbsolutePath() + "/" + name);
+        final Map<String, String> failures = checkpoint.failures();
+        if(!failures.isEmpty()){
+          failures.forEach((k, v) -> System.err.println(String.format("ERROR: %s failed: %s", k, v)));
+          System.err.println(
+            String.format("ERROR: %d project(s) failed; fix them and re-run with --resume", failures.size())
+          );
 
-          final Corpus<Source>  corpus  = Corpus.ofSources();
-          corpus.addAll(Sources.from(IO.collectFiles(start, "java", "Test", "test", "package-info" )));
+          return -1;
+        }
 
-          final Map<String, Corpus<Source>> entry = Collections.singletonMap(name, corpus);
-          projectMetadata.add(entry);
+        Snapshot.write(index, workspaceFile(outDir, workspace, SNAPSHOT_FILE));
+
+        if(Objects.isNull(sweep)){
+          final Grouping.Groups groups   = index.groups(engine, overlap);
+          final Clusters        clusters = new Clusters(index, groups, labels);
+          writeClusters(clusters, out, MONITOR);
+          writeReport(index, groups, out, MONITOR);
+        } else {
+          writeSweep(index, engine, sweep, labels, out, MONITOR);
         }
+      } catch (Exception e){
+        e.printStackTrace(System.err);
+        return -1;
+      }
+
+    }
+
+    return 0;
+  }
 
-//        final WordsTokenizer tokenizer = tokenizer(scope, );
-//        if(Objects.isNull(tokenizer)){
-//          System.err.println("ERROR: Unable to construct a tokenizer matching the given scope");
-//          return -1;
-//        }
+  /**
+   * Leaves the execution monitor as it is; i.e., as set by the caller
+   * running this command, instead of enabling or disabling it.
+   */
+  void keepMonitor(){
+    this.keepMonitor = true;
+  }
 
-        final List<Project<Source>> projects = Lists.newArrayList();
-        for(Map<String, Corpus<Source>> each : projectMetadata){
+  /**
+   * Resolves a run's file (e.g., its checkpoint) in the output folder. Files
+   * of a named workspace are kept in a folder of their own, under
+   * {@value #WORKSPACES}, apart from the folders shared by all runs.
+   *
+   * @param outDir the output folder
+   * @param workspace the workspace's name; null for the default one.
+   * @param file the file, relative to the output folder
+   * @return the file's path.
+   */
+  static Path workspaceFile(Path outDir, String workspace, String file){
+    if(Objects.isNull(workspace)) return outDir.resolve(file);
+
+    return outDir.resolve(WORKSPACES).resolve(workspace).resolve(Paths.get(file).getFileName());
+  }
 
-          final String          key = Iterables.get(each.keySet(), 0);
-          final Corpus<Source>  val = Iterables.get(each.values(), 0);
+  /**
+   * Prints a list of clusters as json; either on screen or to a file.
+   *
+   * @param clusters the clusters to print
+   * @param out the output json file; null if clusters should be printed on screen.
+   * @param monitor the execution monitor
+   * @throws IOException unexpected error has occurred.
+   */
+  static void writeClusters(Clusters clusters, String out, ExecutionMonitor monitor) throws IOException {
+    writeJson(clusters, out, monitor);
+  }
 
-          final WordsTokenizer tokenizer = tokenizer(scope, key);
-          if(Objects.isNull(tokenizer)){
-            System.err.println("ERROR: Unable to construct a tokenizer matching the given scope");
-            return -1;
-          }
+  /**
+   * Prints the quality report of a grouping as json; either on screen or
+   * next to the clusters file (e.g., out-report.json).
+   *
+   * @param index the project index
+   * @param groups the groups of project names
+   * @param out the clusters json file; null if the report should be printed on screen.
+   * @param monitor the execution monitor
+   * @throws IOException unexpected error has occurred.
+   */
+  static void writeReport(ProjectIndex index, Grouping.Groups groups, String out, ExecutionMonitor monitor) throws IOException {
+    writeJson(index.quality(groups), Objects.isNull(out) ? null : suffixed(out, "-report"), monitor);
+  }
+
+  private static void writeJson(Object data, String out, ExecutionMonitor monitor) throws IOException {
+    final Gson      gson     = new GsonBuilder()
+      .setPrettyPrinting()
+      .create();
 
-          projects.add(Project.createProject(key, val, tokenizer));
+    if(Objects.isNull(out)){
 
+      monitor.info(gson.toJson(data));
+
+    } else {
+
+      final Path newFile = Paths.get(out);
+      Files.deleteIfExists(newFile);
+
+      Files.write(
+        newFile,
+        gson.toJson(data).getBytes(),
+        CREATE,
+        APPEND
+      );
+
+      monitor.info(String.format("%s was created.", out));
+    }
+  }
+
+  /**
+   * Groups an index once per minimum of shared words in a range, and prints
+   * a summary of the resulting clusters. If an output json file is given,
+   * the clusters of each minimum are written next to it (e.g., out-m5.json),
+   * along with the summary (out-sweep.json).
+   *
+   * @param index the project index
+   * @param engine the grouping engine
+   * @param range the range of minimums; e.g., 3:10
+   * @param labels maximum number of words labelling each cluster
+   * @param out the output json file; null if only the summary should be printed.
+   * @param monitor the execution monitor
+   * @throws IOException unexpected error has occurred.
+   */
+  static void writeSweep(ProjectIndex index, Engine engine, String range, int labels, String out, ExecutionMonitor monitor) throws IOException {
+    final List<String> bounds = Splitter.on(':').trimResults().splitToList(range);
+    if(bounds.size() != 2 || Objects.isNull(Ints.tryParse(bounds.get(0))) || Objects.isNull(Ints.tryParse(bounds.get(1)))){
+      throw new IllegalArgumentException("Malformed sweep range " + range + "; expected from:to");
+    }
+
+    final Map<Integer, Grouping.Groups> sweep = index.sweep(
+      engine, Ints.tryParse(bounds.get(0)), Ints.tryParse(bounds.get(1))
+    );
+
+    final List<Summary> summaries = Lists.newArrayList();
+    for(Map.Entry<Integer, Grouping.Groups> each : sweep.entrySet()){
+      // labels are only needed when the clusters are written out
+      final Clusters clusters = new Clusters(index, each.getValue(), Objects.isNull(out) ? 0 : labels);
+      summaries.add(new Summary(each.getKey(), clusters, index.quality(each.getValue())));
+
+      if(!Objects.isNull(out)){
+        writeClusters(clusters, suffixed(out, "-m" + each.getKey()), monitor);
+        writeReport(index, each.getValue(), suffixed(out, "-m" + each.getKey()), monitor);
+      }
+    }
+
+    writeJson(summaries, Objects.isNull(out) ? null : suffixed(out, "-sweep"), monitor);
+  }
+
+  private static String suffixed(String out, String suffix){
+    final int dot = out.lastIndexOf('.');
+    return dot > out.lastIndexOf('/') && dot > 0
+      ? out.substring(0, dot) + suffix + out.substring(dot)
+      : out + suffix;
+  }
+
+  /**
+   * Clones the repositories listed in a corpus.json file. A repository that
+   * fails to clone is recorded in the checkpoint and skipped; repositories
+   * whose words were already extracted, at their current git-ref, are not
+   * cloned again.
+   *
+   * @param corpusJson the path to corpus.json file
+   * @param outDir the destination folder
+   * @param checkpoint the run's checkpoint
+   * @return the names of the cloned projects.
+   * @throws IOException if unable to read corpus.json or save the checkpoint.
+   */
+  static List<String> cloneProjects(Path corpusJson, Path outDir, Checkpoint checkpoint) throws IOException {
+    return cloneProjects(corpusJson, outDir, Ingest.TREE, checkpoint);
+  }
+
+  /**
+   * Clones the repositories listed in a corpus.json file; see
+   * {@link #cloneProjects(Path, Path, Checkpoint)}. When sources are read
+   * from archives, a repository is only cloned (without a working tree) if
+   * its archive is not already in the archives folder, and the archive is
+   * then written by git archive. When sources are read from git's object
+   * store, repositories are cloned without a working tree and their HEAD is
+   * pinned to the corpus' git-ref.
+   *
+   * @param corpusJson the path to corpus.json file
+   * @param outDir the destination folder
+   * @param ingest how the projects' sources will be read
+   * @param checkpoint the run's checkpoint
+   * @return the names of the cloned projects.
+   * @throws IOException if unable to read corpus.json or save the checkpoint.
+   */
+  static List<String> cloneProjects(Path corpusJson, Path outDir, Ingest ingest, Checkpoint checkpoint) throws IOException {
+    final List<String>        names = Lists.newArrayList();
+    final Map<String, String> refs  = Git.readRefs(corpusJson);
+
+    for(String url : Git.readUrls(corpusJson)){
+      final String name = Git.from(url).toFile().getName();
+
+      if(checkpoint.isExtracted(name, refs.get(url))){
+        names.add(name);
+        continue;
+      }
+
+      try {
+        synchronized (lockOf(name)){
+          names.add(cloneProject(url, name, refs.get(url), outDir, ingest));
         }
 
-        final List<List<Project<Source>>> pGroups = Lists.newArrayList();
+        checkpoint.cloned(name, refs.get(url));
+      } catch (RuntimeException e){
+        checkpoint.failed(name, e);
+      }
+    }
+
+    return names;
+  }
+
+  private static String cloneProject(String url, String name, String ref, Path outDir, Ingest ingest) throws IOException {
+    if(ingest == Ingest.ARCHIVE){
+      prepareArchive(url, name, ref, outDir);
+      return name;
+    }
+
+    if(ingest == Ingest.OBJECTS){
+      final Path repository = Git.cloneWithoutCheckout(url, outDir.resolve(REPOS_DIR));
+      if(!Objects.isNull(ref)){
+        Git.pin(repository, ref);
+      }
+
+      return name;
+    }
+
+    final String cloned = Git.cloneRepository(url, outDir);
+    if(!Objects.isNull(ref)){
+      Git.checkout(outDir.resolve(name), ref);
+    }
+
+    return cloned;
+  }
+
+  private static Object lockOf(String name){
+    return LOCKS.computeIfAbsent(name, k -> new Object());
+  }
+
+  /**
+   * Builds the projects found in the output folder and adds their word sets
+   * to an index. A project that fails to build is recorded in the checkpoint
+   * and skipped; projects whose words were already extracted are not built
+   * again.
+   *
+   * @param index the project index to update
+   * @param projectNames names of the projects to build
+   * @param outDir the folder containing the cloned projects
+   * @param scope the search scope
+   * @param checkpoint the run's checkpoint
+   * @throws IllegalArgumentException if the scope is unknown.
+   * @throws IOException if unable to save the checkpoint.
+   */
+  static void indexProjects(ProjectIndex index, List<String> projectNames, Path outDir, String scope, Checkpoint checkpoint) throws IOException {
+    indexProjects(index, projectNames, outDir, scope, Ingest.TREE, checkpoint);
+  }
+
+  /**
+   * Builds the projects found in the output folder and adds their word sets
+   * to an index; see {@link #indexProjects(ProjectIndex, List, Path, String, Checkpoint)}.
+   * In incremental mode, words are extracted file by file and each file's
+   * contribution is stored, so a project whose revision moved only has its
+   * changed files parsed again. In archive mode, sources are streamed out
+   * of each project's archive; in object store mode, out of git cat-file.
+   *
+   * @param index the project index to update
+   * @param projectNames names of the projects to build
+   * @param outDir the folder containing the cloned projects
+   * @param scope the search scope
+   * @param ingest how the projects' sources are read
+   * @param checkpoint the run's checkpoint
+   * @throws IllegalArgumentException if the scope is unknown.
+   * @throws IOException if unable to save the checkpoint.
+   */
+  static void indexProjects(ProjectIndex index, List<String> projectNames, Path outDir, String scope, Ingest ingest, Checkpoint checkpoint) throws IOException {
+    indexProjects(index, projectNames, outDir, scope, ingest, 1, checkpoint);
+  }
+
+  /**
+   * Builds the projects found in the output folder and adds their word sets
+   * to an index; see {@link #indexProjects(ProjectIndex, List, Path, String, Ingest, Checkpoint)}.
+   * With more than one job, the files of all projects are parsed on a
+   * work-stealing pool, largest files first, so one big project does not
+   * keep a single thread busy long after the others are done. Only
+   * incremental ingestion can be parallelized this way, since it is the one
+   * extracting words file by file; the results are the same as with one job.
+   *
+   * @param index the project index to update
+   * @param projectNames names of the projects to build
+   * @param outDir the folder containing the cloned projects
+   * @param scope the search scope
+   * @param ingest how the projects' sources are read
+   * @param jobs number of threads parsing files
+   * @param checkpoint the run's checkpoint
+   * @throws IllegalArgumentException if the scope is unknown, or if more
+   *    than one job is requested for a non incremental ingestion.
+   * @throws IOException if unable to save the checkpoint.
+   */
+  static void indexProjects(ProjectIndex index, List<String> projectNames, Path outDir, String scope, Ingest ingest, int jobs, Checkpoint checkpoint) throws IOException {
+    if(jobs > 1){
+      if(ingest != Ingest.INCREMENTAL){
+        throw new IllegalArgumentException("Parallel jobs need incremental ingestion");
+      }
+
+      if(Objects.isNull(tokenizer(scope))){
+        throw new IllegalArgumentException("Unable to construct a tokenizer matching the given scope");
+      }
+
+      indexFiles(index, projectNames, outDir, scope, jobs, checkpoint);
+      return;
+    }
 
-        final Map<String, Project<Source>> index = new HashMap<>();
-        projects.forEach(p -> index.put(p.name(), p));
+    final WordsTokenizer tokenizer = tokenizer(scope);
+    if(Objects.isNull(tokenizer)){
+      throw new IllegalArgumentException("Unable to construct a tokenizer matching the given scope");
+    }
+
+    final WordCache cache     = new WordCache(outDir.resolve(CACHE_DIR));
+    final String    stopWords = WordMaker.fingerprint();
+
+    for(String name : projectNames){
+      if(checkpoint.stageOf(name) == Checkpoint.Stage.EXTRACTED){
+        final Set<String> words = Sets.newLinkedHashSet(checkpoint.wordsOf(name));
+        index.add(name, WordMaker.stopWordFilter(words).filter(words));
+        continue;
+      }
 
-        final Grouping.Groups groups = GroupMaker.makeGroups(overlap, projects);
-        for(Grouping.Group each : groups){
-          final List<Project<Source>> pList = Lists.newArrayList();
-          for(Object o : each){
-            final Project<Source> p = (Project<Source>) o;
-            pList.add(p);
+      try {
+        final List<String> ranked;
+        synchronized (lockOf(name)){
+          switch (ingest){
+            case INCREMENTAL: ranked = extractFileWords(name, outDir, scope, tokenizer, stopWords); break;
+            case ARCHIVE:     ranked = extractArchiveWords(name, checkpoint.revisionOf(name), outDir, scope, tokenizer, cache, stopWords); break;
+            case OBJECTS:     ranked = extractObjectWords(name, outDir, scope, tokenizer, cache, stopWords); break;
+            default:          ranked = extractWords(name, outDir, scope, tokenizer, cache, stopWords);
           }
+        }
+
+        checkpoint.extracted(name, ranked);
 
-          pGroups.add(pList);
+        final Set<String> words = Sets.newLinkedHashSet(ranked);
+        index.add(name, WordMaker.stopWordFilter(words).filter(words));
+      } catch (RuntimeException e){
+        checkpoint.failed(name, e);
+      }
+    }
+  }
+
+  private static List<String> extractWords(String name, Path outDir, String scope, WordsTokenizer tokenizer, WordCache cache, String stopWords){
+    final Path start = Paths.get(outDir.toFile().getAbsolutePath() + "/" + name);
+
+    return extractWords(
+      name, Git.headOf(start), () -> Sources.from(IO.collectFiles(start, "java", "Test", "test", "package-info" )),
+      scope, tokenizer, cache, stopWords
+    );
+  }
+
+  private static List<String> extractArchiveWords(String name, String ref, Path outDir, String scope, WordsTokenizer tokenizer, WordCache cache, String stopWords){
+    final Path archive = archiveOf(outDir, name, ref);
+    if(Objects.isNull(archive)){
+      throw new IllegalStateException("Unable to find an archive of " + name + " in " + outDir.resolve(ARCHIVES_DIR));
+    }
+
+    // archives carry no reliable revision; their size and timestamp identify them
+    final File   file     = archive.toFile();
+    final String revision = "archive:" + file.getName() + ":" + file.length() + ":" + file.lastModified();
+
+    return extractWords(
+      name, revision, () -> Sources.fromArchive(archive, "java", "Test", "test", "package-info"),
+      scope, tokenizer, cache, stopWords
+    );
+  }
+
+  private static List<String> extractObjectWords(String name, Path outDir, String scope, WordsTokenizer tokenizer, WordCache cache, String stopWords){
+    final Path repository = outDir.resolve(REPOS_DIR).resolve(name);
+
+    return extractWords(
+      name, Git.headOf(repository), () -> {
+        try (GitObjects objects = GitObjects.open(repository)) {
+          return objects.sources("HEAD", "java", "Test", "test", "package-info");
         }
+      },
+      scope, tokenizer, cache, stopWords
+    );
+  }
 
+  private static List<String> extractWords(String name, String revision, Supplier<List<Source>> sources, String scope, WordsTokenizer tokenizer, WordCache cache, String stopWords){
+    final WordCache.Key key = Objects.isNull(revision) ? null : new WordCache.Key(name, revision, scope, stopWords);
 
-        final Clusters  clusters = new Clusters(pGroups);
-        final Gson      gson     = new GsonBuilder()
-          .setPrettyPrinting()
-          .create();
+    List<String> ranked = Objects.isNull(key) ? null : cache.get(key);
 
-        if(Objects.isNull(out)){
+    if(Objects.isNull(ranked)){
+      final Corpus<Source>  corpus  = Corpus.ofSources();
+      corpus.addAll(sources.get());
+
+      final Project<Source> project = Project.createProject(name, corpus, tokenizer);
+      ranked = project.wordSet().stream()
+        .map(Word::element)
+        .collect(Collectors.toList());
+
+      if(!Objects.isNull(key)){
+        cache.put(key, ranked);
+      }
+    }
+
+    return ranked;
+  }
+
+  private static List<String> extractFileWords(String name, Path outDir, String scope, WordsTokenizer tokenizer, String stopWords){
+    final FilePlan plan = planFileWords(name, outDir, scope, stopWords);
+    for(String each : plan.paths){
+      plan.files.put(each, fileWords(name, plan.fileOf(each), tokenizer));
+    }
+
+    return plan.finish();
+  }
+
+  /**
+   * Works out which files of a project must be parsed: none if its stored
+   * contributions are up to date, the changed ones if its revision moved,
+   * or all of them otherwise. Deleted files are subtracted right away.
+   */
+  private static FilePlan planFileWords(String name, Path outDir, String scope, String stopWords){
+    final Path    start     = Paths.get(outDir.toFile().getAbsolutePath() + "/" + name);
+    final Path    store     = outDir.resolve(FILES_DIR);
+    final String  revision  = Git.headOf(start);
+
+    FileWords files = FileWords.load(store, name, scope, stopWords);
+    if(!Objects.isNull(files) && Objects.equals(revision, files.revision())){
+      return new FilePlan(start, store, revision, files, Collections.emptyList());
+    }
+
+    List<Git.Change> changes = null;
+    if(!Objects.isNull(files) && !Objects.isNull(revision)){
+      try {
+        changes = Git.diff(start, files.revision(), revision);
+      } catch (RuntimeException e){
+        // old revision is gone (e.g., history was rewritten); start over
+        BasicExecutionMonitor.get().warn(String.format(
+          "%s: unable to diff %s..%s, parsing all files again: %s", name, files.revision(), revision, e.getMessage()
+        ));
+
+        changes = null;
+      }
+    }
 
-          MONITOR.info(gson.toJson(clusters));
+    final List<String> paths = Lists.newArrayList();
+    if(Objects.isNull(changes)){
+      files = FileWords.empty(name, scope, stopWords);
+      for(File each : IO.collectFiles(start, "java", "Test", "test", "package-info")){
+        paths.add(pathOf(start, each));
+      }
+    } else {
+      for(Git.Change each : changes){
+        if(!IO.isCollectable(each.path(), "java", "Test", "test", "package-info")) continue;
 
+        final File file = start.resolve(each.path()).toFile();
+        if(each.isDeletion() || !file.exists()){
+          files.remove(each.path());
         } else {
+          paths.add(each.path());
+        }
+      }
 
-          final Path newFile = Paths.get(out);
-          Files.deleteIfExists(newFile);
+      BasicExecutionMonitor.get().info(String.format("%s: %d changed file(s) since %s", name, changes.size(), files.revision()));
+    }
 
-          Files.write(
-            newFile,
-            gson.toJson(clusters).getBytes(),
-            CREATE,
-            APPEND
-          );
+    return new FilePlan(start, store, revision, files, paths);
+  }
+
+  /**
+   * Builds the projects found in the output folder file by file, parsing the
+   * files of all projects on one work-stealing pool, largest files first;
+   * see {@link #indexProjects(ProjectIndex, List, Path, String, Ingest, int, Checkpoint)}.
+   * Each file's words are merged back into its project's contributions
+   * once every file has been parsed.
+   */
+  private static void indexFiles(ProjectIndex index, List<String> projectNames, Path outDir, String scope, int jobs, Checkpoint checkpoint) throws IOException {
+    final String stopWords = WordMaker.fingerprint();
+
+    // tokenizers are not meant to be shared between threads
+    final ThreadLocal<WordsTokenizer> tokenizers = ThreadLocal.withInitial(() -> tokenizer(scope));
+
+    final Map<String, FilePlan> plans = Maps.newLinkedHashMap();
+    final List<FileTask>        tasks = Lists.newArrayList();
+    for(String name : projectNames){
+      if(checkpoint.stageOf(name) == Checkpoint.Stage.EXTRACTED) continue;
 
-          MONITOR.info(String.format("%s was created.", out));
+      try {
+        final FilePlan plan;
+        synchronized (lockOf(name)){
+          plan = planFileWords(name, outDir, scope, stopWords);
         }
-      } catch (Exception e){
-        e.printStackTrace(System.err);
-        return -1;
+
+        plans.put(name, plan);
+        plan.paths.forEach(each -> tasks.add(new FileTask(name, plan, each)));
+      } catch (RuntimeException e){
+        checkpoint.failed(name, e);
       }
+    }
+
+    final List<FileTask> parsed = Scheduler.largestFirst(tasks, FileTask::size, each -> {
+      try {
+        each.words = fileWords(each.name, each.plan.fileOf(each.path), tokenizers.get());
+      } catch (RuntimeException e){
+        each.error = e;
+      }
+
+      return each;
+    }, jobs);
 
+    final Map<String, RuntimeException> errors = Maps.newHashMap();
+    for(FileTask each : parsed){
+      if(!Objects.isNull(each.error)){
+        errors.putIfAbsent(each.name, each.error);
+      } else {
+        each.plan.files.put(each.path, each.words);
+      }
     }
 
-    return 0;
+    // projects join the index in the given order, as they do sequentially
+    for(String name : projectNames){
+      if(checkpoint.stageOf(name) == Checkpoint.Stage.EXTRACTED){
+        final Set<String> words = Sets.newLinkedHashSet(checkpoint.wordsOf(name));
+        index.add(name, WordMaker.stopWordFilter(words).filter(words));
+        continue;
+      }
+
+      if(!plans.containsKey(name)) continue;
+
+      try {
+        if(errors.containsKey(name)) throw errors.get(name);
+
+        final List<String> ranked;
+        synchronized (lockOf(name)){
+          ranked = plans.get(name).finish();
+        }
+
+        checkpoint.extracted(name, ranked);
+
+        final Set<String> words = Sets.newLinkedHashSet(ranked);
+        index.add(name, WordMaker.stopWordFilter(words).filter(words));
+      } catch (RuntimeException e){
+        checkpoint.failed(name, e);
+      }
+    }
+  }
+
+  /**
+   * Makes sure a project has an archive: either one supplied by the user
+   * (used as is), or one written by git archive at the project's git-ref.
+   * Written archives are named after the git-ref, so a moved git-ref gets
+   * a new archive.
+   */
+  private static void prepareArchive(String url, String name, String ref, Path outDir) throws IOException {
+    if(!Objects.isNull(archiveOf(outDir, name, ref))) return;
+
+    final Path archives   = outDir.resolve(ARCHIVES_DIR);
+    final Path repository = Git.cloneWithoutCheckout(url, outDir.resolve(REPOS_DIR));
+
+    Files.createDirectories(archives);
+    Git.archive(repository, Objects.isNull(ref) ? "HEAD" : ref, generatedArchiveOf(outDir, name, ref));
+  }
+
+  private static Path archiveOf(Path outDir, String name, String ref){
+    for(String each : ARCHIVE_FORMATS){
+      final Path archive = outDir.resolve(ARCHIVES_DIR).resolve(name + each);
+      if(Files.exists(archive)) return archive;
+    }
+
+    final Path generated = generatedArchiveOf(outDir, name, ref);
+    return Files.exists(generated) ? generated : null;
+  }
+
+  private static Path generatedArchiveOf(Path outDir, String name, String ref){
+    final String revision = Objects.isNull(ref) ? "HEAD" : ref.replaceAll("[^A-Za-z0-9._-]", "_");
+    return outDir.resolve(ARCHIVES_DIR).resolve(name + "@" + revision + ".zip");
+  }
+
+  private static String pathOf(Path start, File file){
+    return start.relativize(file.toPath()).toString().replace(File.separatorChar, '/');
+  }
+
+  private static List<String> fileWords(String name, File file, WordsTokenizer tokenizer){
+    final Corpus<Source> corpus = Corpus.ofSources();
+    corpus.addAll(Sources.from(Collections.singletonList(file)));
+
+    return Project.createProject(name, corpus, tokenizer).wordSet().stream()
+      .map(Word::element)
+      .collect(Collectors.toList());
+  }
+
+  /**
+   * The files of a project that must be parsed, and the stored
+   * contributions their words will be merged into.
+   */
+  private static class FilePlan {
+    final Path          start;
+    final Path          store;
+    final String        revision;
+    final FileWords     files;
+    final List<String>  paths;
+
+    FilePlan(Path start, Path store, String revision, FileWords files, List<String> paths){
+      this.start    = start;
+      this.store    = store;
+      this.revision = revision;
+      this.files    = files;
+      this.paths    = paths;
+    }
+
+    File fileOf(String path){
+      return start.resolve(path).toFile();
+    }
+
+    List<String> finish(){
+      // stored contributions already match this revision; nothing to save
+      if(!Objects.isNull(revision) && !revision.equals(files.revision())){
+        files.revision(revision);
+        files.save(store);
+      }
+
+      return files.words();
+    }
   }
 
-  private static WordsTokenizer tokenizer(String scope, String name){
+  /**
+   * A file to parse, and the words parsed out of it.
+   */
+  private static class FileTask {
+    final String    name;
+    final FilePlan  plan;
+    final String    path;
+
+    List<String>      words;
+    RuntimeException  error;
+
+    FileTask(String name, FilePlan plan, String path){
+      this.name = name;
+      this.plan = plan;
+      this.path = path;
+    }
 
-    final Set<StopWords> words = WordMaker.generateStopWords(name);
+    long size(){
+      return plan.fileOf(path).length();
+    }
+  }
+
+  private static WordsTokenizer tokenizer(String scope){
+
+    final Set<StopWords> words = WordMaker.generateStopWords();
 
     switch (scope){
       case "c": return Tokenizers.tokenizeTypeDeclarationName(words);
@@ -214,27 +913,102 @@ public class ProcessProjects implements BasicCli.CliCommand {
     }
   }
 
-  private static class Clusters {
+  static class Clusters {
+    static final int ALL_LABELS = -1;
+
     List<Cluster> clusters;
 
-    Clusters(List<List<Project<Source>>> groups){
-      clusters = Lists.newArrayList();
+    Clusters(ProjectIndex index, Grouping.Groups groups){
+      this(index, groups, ALL_LABELS);
+    }
+
+    /**
+     * Labels each group with the words its projects have in common.
+     * Groups are labelled in parallel, from a copy of the index taken
+     * up front so labellers never contend for its lock.
+     *
+     * @param index the project index
+     * @param groups the groups of project names
+     * @param labels maximum number of words per label, most typical
+     *    first; {@link #ALL_LABELS} keeps every common word, and 0 skips
+     *    labelling (clusters only list their projects).
+     */
+    Clusters(ProjectIndex index, Grouping.Groups groups, int labels){
+      final List<Set<String>> members = Lists.newArrayList();
+      final List<String>      all     = Lists.newArrayList();
+      for(Grouping.Group each : groups){
+        final Set<String> names = Sets.newHashSet();
+        for(Object o : each){
+          names.add((String) o);
+        }
+
+        members.add(names);
+        all.addAll(names);
+      }
+
+      if(labels == 0){
+        clusters = members.stream().map(names -> new Cluster(null, names)).collect(Collectors.toList());
+        return;
+      }
+
+      final Map<String, int[]> ids         = index.ids(all);
+      final int[]              frequencies = index.frequencies();
+      final Symbols            symbols     = index.symbols();
+
+      clusters = members.parallelStream()
+        .map(names -> new Cluster(commonWords(ids::get, id -> frequencies[id], symbols, names, labels), names))
+        .collect(Collectors.toList());
+    }
+
+    static Set<String> commonWords(ProjectIndex index, Collection<String> names){
+      return commonWords(index, names, ALL_LABELS);
+    }
+
+    /**
+     * Finds the words a group of projects has in common. When capped, the
+     * most typical words are kept: those found in more of the projects,
+     * then those rarer across the whole index.
+     *
+     * @param index the project index
+     * @param names the projects' names
+     * @param top maximum number of words; {@link #ALL_LABELS} for no cap.
+     * @return the common words, most typical first when capped.
+     */
+    static Set<String> commonWords(ProjectIndex index, Collection<String> names, int top){
+      return commonWords(index::ids, index::frequency, index.symbols(), names, top);
+    }
+
+    private static Set<String> commonWords(Function<String, int[]> ids, IntUnaryOperator frequency,
+        Symbols symbols, Collection<String> names, int top){
 
-      for(List<Project<Source>> each : groups){
-        final Set<String> words = Sets.newHashSet();
+      final List<int[]> sorted = names.stream().map(ids).sorted((a, b) -> Ints.compare(a.length, b.length)).collect(Collectors.toList());
+      final int[] common = GroupMaker.getCommonIds(sorted);
 
-        final List<Set<Word>> sorted = each.stream().sorted((a, b) -> Ints.compare(a.wordSet().size(), b.wordSet().size())).map(Project::wordSet).collect(Collectors.toList());
+      if(top < 0 || common.length <= top) return symbols.words(common);
 
-        final Set<Selection.Word> ws = GroupMaker.getCommonElements(sorted);
-        if(ws.size() > 15){
-          System.out.print("");
+      final int[] members     = new int[common.length];
+      final int[] frequencies = new int[common.length];
+      final Integer[] order   = new Integer[common.length];
+      for(int idx = 0; idx < common.length; idx++){
+        for(int[] each : sorted){
+          if(Arrays.binarySearch(each, common[idx]) >= 0) members[idx]++;
         }
 
-        words.addAll(ws.stream().map(Word::element).collect(Collectors.toSet()));
+        frequencies[idx] = frequency.applyAsInt(common[idx]);
+        order[idx]       = idx;
+      }
+
+      Arrays.sort(order, (a, b) -> members[a] != members[b]
+        ? Integer.compare(members[b], members[a])
+        : Integer.compare(frequencies[a], frequencies[b])
+      );
 
-        clusters.add(new Cluster(words, each.stream().map(Project::name).collect(Collectors.toSet())));
+      final Set<String> words = Sets.newLinkedHashSet();
+      for(int idx = 0; idx < top; idx++){
+        words.add(symbols.word(common[order[idx]]));
       }
 
+      return words;
     }
 
 
@@ -248,7 +1022,32 @@ public class ProcessProjects implements BasicCli.CliCommand {
 
   }
 
-  private static class Cluster {
+  static class Summary {
+    int     min;
+    int     clusters;
+    int     singletons;
+    int     largest;
+    double  mean;
+    int     minInterOverlap;
+    int     maxInterOverlap;
+    double  meanInterOverlap;
+    double  meanCohesion;
+
+    Summary(int min, Clusters clusters, ClusterQuality quality){
+      this.min        = min;
+      this.clusters   = clusters.clusterList().size();
+      this.singletons = (int) clusters.clusterList().stream().filter(c -> c.projectSet().size() == 1).count();
+      this.largest    = clusters.clusterList().stream().mapToInt(c -> c.projectSet().size()).max().orElse(0);
+      this.mean       = clusters.clusterList().stream().mapToInt(c -> c.projectSet().size()).average().orElse(0);
+
+      this.minInterOverlap  = quality.minInterOverlap();
+      this.maxInterOverlap  = quality.maxInterOverlap();
+      this.meanInterOverlap = quality.meanInterOverlap();
+      this.meanCohesion     = quality.meanCohesion();
+    }
+  }
+
+  static class Cluster {
     Set<String> words;
     Set<String> projects;
 
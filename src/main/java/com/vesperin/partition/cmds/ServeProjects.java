@@ -0,0 +1,335 @@
+package com.vesperin.partition.cmds;
+
+import com.github.rvesse.airline.HelpOption;
+import com.github.rvesse.airline.annotations.Command;
+import com.github.rvesse.airline.annotations.Option;
+import com.google.common.base.Splitter;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.google.common.primitives.Ints;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import com.vesperin.partition.BasicCli;
+import com.vesperin.partition.utils.Checkpoint;
+import com.vesperin.partition.utils.ProjectIndex;
+import com.vesperin.text.Introspector;
+import com.vesperin.text.spi.BasicExecutionMonitor;
+import com.vesperin.text.spi.ExecutionMonitor;
+
+import javax.inject.Inject;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+
+/**
+ * Keeps a project index in memory and answers queries over a local
+ * HTTP endpoint. Supported requests:
+ *
+ * <pre>
+ *   GET  /projects                   lists indexed projects
+ *   POST /projects?from=corpus.json  clones and indexes the projects in a corpus
+ *   GET  /cluster?name=p[&amp;min=m]     the cluster of project p
+ *   GET  /groups[?min=m&amp;labels=l]  all clusters for a given overlapping factor,
+ *                                    labelled with at most l words (0 skips labels)
+ *   GET  /neighbours?name=p[&amp;k=n]    the n (default 10) projects sharing the most words with p
+ *   POST /shutdown                   stops the service
+ * </pre>
+ *
+ * Malformed requests answer 400, queries naming a project that is not
+ * indexed answer 404, and unexpected errors answer 500.
+ *
+ * @author Huascar Sanchez
+ */
+@SuppressWarnings("FieldCanBeLocal") @Command(name = "s", description = "Serve a project index over a local HTTP endpoint")
+public class ServeProjects implements BasicCli.CliCommand {
+
+  final ExecutionMonitor MONITOR = BasicExecutionMonitor.get();
+
+  @Inject HelpOption<ServeProjects> help;
+
+  @Option(name = {"-f", "--from"}, arity = 1, description = "locates a corpus.json input to index on start")
+  private String from = null;
+
+  @Option(name = {"-t", "--to"}, arity = 1, description = "locates path of output folder")
+  private String to = null;
+
+  @Option(name = {"-s", "--scope"}, arity = 1, description = "Search scope: (c)lassname (default), (m)ethodname, method (b)ody")
+  private String scope = "c";
+
+  @Option(name = {"-m", "--min"}, arity = 1, description = "Default minimum of words shared by projects. Default is 3.")
+  private int overlap = 3;
+
+  @Option(name = {"-p", "--port"}, arity = 1, description = "Local port to listen on. Default is 8080.")
+  private int port = 8080;
+
+  @Option(name = {"-v", "--verbose"}, description = "Prints logging messages")
+  private boolean verbose = false;
+
+  // vip s -t path/to/folder/ => empty index
+  // vip s -f corpus.json -t path/to/folder/ -p 9090 => indexed corpus
+
+  @Override public Integer call() throws Exception {
+    if(!help.showHelpIfRequested()){
+
+      if(BasicCli.allNull(1, to)) {
+        System.err.println("Unable to locate output folder.");
+        return -1;
+      }
+
+      if(verbose){ Introspector.enableMonitor(); } else {
+        Introspector.disableMonitor();
+      }
+
+      final Path          outDir  = Paths.get(to).toAbsolutePath();
+      final ProjectIndex  index   = new ProjectIndex();
+
+      if(!Objects.isNull(from)){
+        try {
+          ingest(index, Paths.get(from).toAbsolutePath(), outDir);
+        } catch (IllegalArgumentException e){
+          System.err.println("ERROR: " + e.getMessage());
+          return -1;
+        }
+      }
+
+      final CountDownLatch  stopped   = new CountDownLatch(1);
+      final ExecutorService workers   = Executors.newFixedThreadPool(
+        Math.max(2, Runtime.getRuntime().availableProcessors())
+      );
+
+      final HttpServer server = server(index, outDir, port, stopped);
+      server.setExecutor(workers);
+      server.start();
+
+      MONITOR.info(String.format("serving %d projects on http://localhost:%d", index.size(), port));
+
+      stopped.await();
+
+      server.stop(1);
+      workers.shutdown();
+    }
+
+    return 0;
+  }
+
+  /**
+   * Creates (without starting) the HTTP server answering queries over a
+   * project index.
+   *
+   * @param index the project index
+   * @param outDir the output folder where projects are cloned
+   * @param port the local port to listen on; 0 picks a free one.
+   * @param stopped counted down when a shutdown is requested
+   * @return a new HTTP server.
+   * @throws IOException if unable to bind the port.
+   */
+  HttpServer server(ProjectIndex index, Path outDir, int port, CountDownLatch stopped) throws IOException {
+    final Gson        gson    = new GsonBuilder().setPrettyPrinting().create();
+    final HttpServer  server  = HttpServer.create(
+      new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0
+    );
+
+    server.createContext("/projects", exchange -> handle(exchange, () -> {
+      if("POST".equals(exchange.getRequestMethod())){
+        final String corpus = query(exchange).get("from");
+        if(Objects.isNull(corpus)) throw new IllegalArgumentException("missing 'from' parameter");
+        return ingest(index, Paths.get(corpus).toAbsolutePath(), outDir);
+      }
+
+      return index.names();
+    }, gson));
+
+    server.createContext("/cluster", exchange -> handle(exchange, () -> {
+      final Map<String, String> params = query(exchange);
+      final String name = indexed(index, params);
+
+      final List<String> members = index.groupOf(name, min(params));
+      return new ProcessProjects.Cluster(
+        ProcessProjects.Clusters.commonWords(index, members),
+        Sets.newHashSet(members)
+      );
+    }, gson));
+
+    server.createContext("/groups", exchange -> handle(exchange, () -> {
+      final Map<String, String> params = query(exchange);
+      return new ProcessProjects.Clusters(
+        index,
+        index.groups(min(params)),
+        intOf(params, "labels", ProcessProjects.Clusters.ALL_LABELS)
+      );
+    }, gson));
+
+    server.createContext("/neighbours", exchange -> handle(exchange, () -> {
+      final Map<String, String> params = query(exchange);
+      final String name = indexed(index, params);
+
+      final int k = intOf(params, "k", 10);
+      if(k < 1) throw new IllegalArgumentException("'k' must be positive");
+
+      // clamped to the number of other indexed projects
+      return index.neighboursOf(name, k);
+    }, gson));
+
+    server.createContext("/shutdown", exchange -> {
+      // a stray GET (e.g., a browser prefetch) must not stop the service
+      if(!"POST".equals(exchange.getRequestMethod())){
+        exchange.getResponseHeaders().set("Allow", "POST");
+        respond(exchange, 405, gson.toJson(Collections.singletonMap("error", "use POST to stop the service")));
+        return;
+      }
+
+      handle(exchange, () -> {
+        stopped.countDown();
+        return Collections.singletonMap("stopping", true);
+      }, gson);
+    });
+
+    return server;
+  }
+
+  private List<String> ingest(ProjectIndex index, Path corpusJson, Path outDir) throws IOException {
+    if(!Files.exists(corpusJson)){
+      throw new IllegalArgumentException(String.format("Unable to find %s", corpusJson));
+    }
+
+    final Checkpoint    checkpoint    = Checkpoint.inMemory();
+    final List<String>  projectNames  = ProcessProjects.cloneProjects(corpusJson, outDir, checkpoint);
+    ProcessProjects.indexProjects(index, projectNames, outDir, scope, checkpoint);
+
+    checkpoint.failures().forEach((k, v) -> MONITOR.warn(String.format("%s failed: %s", k, v)));
+
+    return projectNames.stream()
+      .filter(name -> checkpoint.stageOf(name) == Checkpoint.Stage.EXTRACTED)
+      .collect(Collectors.toList());
+  }
+
+  private int min(Map<String, String> params){
+    return intOf(params, "min", overlap);
+  }
+
+  /**
+   * Reads the name of an indexed project from a query.
+   *
+   * @throws IllegalArgumentException if the name is missing.
+   * @throws NoSuchElementException if the project is not indexed.
+   */
+  private static String indexed(ProjectIndex index, Map<String, String> params){
+    final String name = params.get("name");
+    if(Objects.isNull(name)) throw new IllegalArgumentException("missing 'name' parameter");
+    if(!index.contains(name)) throw new NoSuchElementException(String.format("'%s' is not indexed", name));
+
+    return name;
+  }
+
+  /**
+   * Reads an integer parameter of a query.
+   *
+   * @param params the query's parameters
+   * @param key the parameter's name
+   * @param defaultValue the value of a missing parameter
+   * @return the parameter's value.
+   * @throws IllegalArgumentException if the value is not an integer.
+   */
+  static int intOf(Map<String, String> params, String key, int defaultValue){
+    final String value = params.get(key);
+    if(Objects.isNull(value)) return defaultValue;
+
+    final Integer parsed = Ints.tryParse(value);
+    if(Objects.isNull(parsed)){
+      throw new IllegalArgumentException(String.format("'%s' must be an integer", key));
+    }
+
+    return parsed;
+  }
+
+  private static Map<String, String> query(HttpExchange exchange) throws UnsupportedEncodingException {
+    return query(exchange.getRequestURI().getRawQuery());
+  }
+
+  /**
+   * Decodes the parameters of a raw (still encoded) query string. A key
+   * without a value maps to an empty string; a repeated key keeps its last
+   * value.
+   *
+   * @param raw the raw query; null if there is none.
+   * @return the query's parameters.
+   * @throws UnsupportedEncodingException unexpected error has occurred.
+   * @throws IllegalArgumentException if the query is malformed.
+   */
+  static Map<String, String> query(String raw) throws UnsupportedEncodingException {
+    final Map<String, String> params = Maps.newHashMap();
+    if(Objects.isNull(raw)) return params;
+
+    for(String each : Splitter.on('&').omitEmptyStrings().split(raw)){
+      final int idx = each.indexOf('=');
+      final String key   = idx < 0 ? each : each.substring(0, idx);
+      final String value = idx < 0 ? "" : each.substring(idx + 1);
+
+      params.put(URLDecoder.decode(key, "UTF-8"), URLDecoder.decode(value, "UTF-8"));
+    }
+
+    return params;
+  }
+
+  private static void handle(HttpExchange exchange, Handler handler, Gson gson) throws IOException {
+    int     status;
+    String  body;
+
+    try {
+      body    = gson.toJson(handler.handle());
+      status  = 200;
+    } catch (Exception e){
+      body    = gson.toJson(Collections.singletonMap("error", String.valueOf(e.getMessage())));
+      status  = statusOf(e);
+    }
+
+    respond(exchange, status, body);
+  }
+
+  /**
+   * Maps a failed request to its HTTP status: 400 for malformed requests,
+   * 404 for unknown projects, and 500 for anything else.
+   *
+   * @param e why the request failed
+   * @return the response's status.
+   */
+  static int statusOf(Exception e){
+    if(e instanceof IllegalArgumentException) return 400;
+    if(e instanceof NoSuchElementException)   return 404;
+    return 500;
+  }
+
+  private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+    final byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+    exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+    exchange.sendResponseHeaders(status, bytes.length);
+    try (OutputStream os = exchange.getResponseBody()) {
+      os.write(bytes);
+    }
+  }
+
+  /**
+   * Produces the payload of a response.
+   */
+  private interface Handler {
+    Object handle() throws Exception;
+  }
+}
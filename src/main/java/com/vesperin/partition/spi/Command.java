@@ -1,16 +1,22 @@
 package com.vesperin.partition.spi;
 
 import com.google.common.base.Preconditions;
-import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.vesperin.partition.utils.Strings;
 
 import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.OutputStream;
 import java.io.PrintStream;
-import java.lang.reflect.Field;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
@@ -18,17 +24,31 @@ import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * @author Huascar Sanchez
  */
 public class Command {
 
-  private static final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor();
+  private static final int GRACE_SECONDS = 2;
+  private static final int TAIL_LINES    = 100;
+  private static final int CHUNK_SIZE    = 8192;
+
+  private static final ScheduledThreadPoolExecutor timer = newTimer();
+  private static final ExecutorService drainer = Executors.newFixedThreadPool(2,
+    new ThreadFactoryBuilder().setDaemon(true).setNameFormat("command-output-%d").build()
+  );
 
   private ExecutionLog log;
   private List<String> args;
@@ -36,12 +56,14 @@ public class Command {
   private final Map<String, String> environment;
   private final File workingDirectory;
   private final boolean permitNonZeroExitStatus;
+  private final boolean discardErrors;
+  private final int tailLines;
   private final PrintStream console;
 
 
   private volatile Process  process;
   private volatile boolean  destroyed;
-  private volatile long     timeoutNanoTime;
+  private volatile ScheduledFuture<?> timeout;
 
   /**
    * Constructs a new Command object for a list of arguments.
@@ -64,6 +86,8 @@ public class Command {
 
     this.workingDirectory         = null;
     this.permitNonZeroExitStatus  = false;
+    this.discardErrors            = false;
+    this.tailLines                = TAIL_LINES;
     this.console = null;
   }
 
@@ -81,6 +105,8 @@ public class Command {
 
     this.workingDirectory         = nonNullBuilder.workingDirectory;
     this.permitNonZeroExitStatus  = nonNullBuilder.permitNonZeroExitStatus;
+    this.discardErrors            = nonNullBuilder.discardErrors;
+    this.tailLines                = nonNullBuilder.tailLines;
     this.console = nonNullBuilder.console;
 
     // checks if we maxed out the number of budgeted arguments
@@ -116,9 +142,17 @@ public class Command {
 
     log.info("starting command");
 
-    final ProcessBuilder processBuilder = new ProcessBuilder()
-      .command(args)
-      .redirectErrorStream(true);
+    process = processBuilder().start();
+  }
+
+  private ProcessBuilder processBuilder(){
+    final ProcessBuilder processBuilder = new ProcessBuilder().command(args);
+
+    if(discardErrors){
+      processBuilder.redirectError(ProcessBuilder.Redirect.DISCARD);
+    } else {
+      processBuilder.redirectErrorStream(true);
+    }
 
     if(workingDirectory != null){
       processBuilder.directory(workingDirectory);
@@ -126,7 +160,7 @@ public class Command {
 
     processBuilder.environment().putAll(environment);
 
-    process = processBuilder.start();
+    return processBuilder;
   }
 
   /**
@@ -147,6 +181,47 @@ public class Command {
     return process.getInputStream();
   }
 
+  /**
+   * @return the stream feeding the running process' standard input.
+   */
+  public OutputStream getOutputStream() {
+    if (!isStarted()) {
+      throw new IllegalStateException("Not started!");
+    }
+
+    return process.getOutputStream();
+  }
+
+  /**
+   * Waits for a started process to exit. Meant for long-lived processes
+   * driven through {@link #getOutputStream()} and {@link #getInputStream()}.
+   *
+   * @return the process' exit code.
+   * @throws InterruptedException if interrupted while waiting.
+   */
+  public int waitFor() throws InterruptedException {
+    if (!isStarted()) {
+      throw new IllegalStateException("Not started!");
+    }
+
+    return process.waitFor();
+  }
+
+  /**
+   * Terminates a started process and all of its descendants.
+   */
+  public void destroy() {
+    terminate();
+  }
+
+  /**
+   * @return true if the process was terminated while still running (by a
+   *    timeout, a cancellation or {@link #destroy()}); false otherwise.
+   */
+  public boolean isTerminated() {
+    return destroyed;
+  }
+
   /**
    * Returns the output returned by process.
    *
@@ -156,32 +231,120 @@ public class Command {
    * @throws InterruptedException unexpected behavior occurred.
    */
   public List<String> gatherOutput()
+    throws IOException, InterruptedException {
+    final List<String> outputLines = new ArrayList<>();
+    gatherOutput(outputLines::add);
+
+    return outputLines;
+  }
+
+  /**
+   * Streams the output of the process, one line at a time, as it is
+   * produced. Only the last few lines are retained (see
+   * {@link Builder#tail(int)}), to report a failure; so memory stays
+   * constant no matter how much the process writes.
+   *
+   * @param lines consumer of output lines.
+   * @return the process' exit code.
+   *
+   * @throws IOException unexpected behavior occurred.
+   * @throws InterruptedException unexpected behavior occurred.
+   */
+  public int gatherOutput(Consumer<String> lines)
     throws IOException, InterruptedException {
     if (!isStarted()) {
       throw new IllegalStateException("Not started!");
     }
 
-    try (BufferedReader bufferedReader = new BufferedReader(new InputStreamReader(getInputStream(), "UTF-8"))) {
-      final List<String> outputLines = new ArrayList<>();
+    final Tail tail = new Tail(tailLines);
 
+    boolean drained = false;
+    try (BufferedReader bufferedReader = new BufferedReader(new InputStreamReader(getInputStream(), StandardCharsets.UTF_8))) {
       String outputLine;
       while ((outputLine = bufferedReader.readLine()) != null) {
         if (console != null) {
           console.println(outputLine);
         }
 
-        outputLines.add(outputLine);
+        tail.add(outputLine);
+        lines.accept(outputLine);
       }
 
-      int exitValue = process.waitFor();
+      drained = true;
+    } finally {
+      if (!drained) {
+        abandon();
+      }
+    }
 
-      if (exitValue != 0 && !permitNonZeroExitStatus) {
-        throw new CommandFailedException(args, outputLines);
+    return exitValue(tail);
+  }
+
+  /**
+   * Streams the raw output of the process, in chunks, as it is produced.
+   * Chunks are not split at line boundaries. The buffer handed to the
+   * consumer is reused, so chunks must be copied if kept. Only the last
+   * few lines are retained, to report a failure.
+   *
+   * @param chunks consumer of output chunks.
+   * @return the process' exit code.
+   *
+   * @throws IOException unexpected behavior occurred.
+   * @throws InterruptedException unexpected behavior occurred.
+   */
+  public int gatherOutput(Chunks chunks)
+    throws IOException, InterruptedException {
+    if (!isStarted()) {
+      throw new IllegalStateException("Not started!");
+    }
+
+    final Tail tail = new Tail(tailLines);
+
+    boolean drained = false;
+    try (InputStream inputStream = getInputStream()) {
+      final byte[] buffer = new byte[CHUNK_SIZE];
+
+      int read;
+      while ((read = inputStream.read(buffer)) >= 0) {
+        if (console != null) {
+          console.write(buffer, 0, read);
+        }
+
+        tail.add(buffer, 0, read);
+        chunks.accept(buffer, 0, read);
+      }
+
+      drained = true;
+    } finally {
+      if (!drained) {
+        abandon();
       }
+    }
+
+    tail.flush();
+
+    return exitValue(tail);
+  }
 
-      return outputLines;
+  /**
+   * Gives up on a process whose output could not be consumed (e.g., the
+   * consumer threw): no one would wait for it, so its timeout is cancelled
+   * and its process tree terminated.
+   */
+  private void abandon() {
+    cancelTimeout();
+    terminate();
+  }
 
+  private int exitValue(Tail tail) throws InterruptedException {
+    final int exitValue = process.waitFor();
+    cancelTimeout();
+
+    if (exitValue != 0 && !permitNonZeroExitStatus) {
+      throw new CommandFailedException(args, tail);
     }
+
+    return exitValue;
   }
 
 
@@ -189,9 +352,39 @@ public class Command {
    * @return the output displayed on the terminal.
    */
   public List<String> execute() {
+    final List<String> outputLines = new ArrayList<>();
+    execute(outputLines::add);
+
+    return outputLines;
+  }
+
+  /**
+   * Executes the command, streaming its output one line at a time.
+   *
+   * @param lines consumer of output lines.
+   * @return the command's exit code.
+   */
+  public int execute(Consumer<String> lines) {
     try {
       start();
-      return gatherOutput();
+      return gatherOutput(lines);
+    } catch (IOException e) {
+      throw new RuntimeException("Failed to execute process: " + args, e);
+    } catch (InterruptedException e) {
+      throw new RuntimeException("Interrupted while executing process: " + args, e);
+    }
+  }
+
+  /**
+   * Executes the command, streaming its raw output in chunks.
+   *
+   * @param chunks consumer of output chunks.
+   * @return the command's exit code.
+   */
+  public int execute(Chunks chunks) {
+    try {
+      start();
+      return gatherOutput(chunks);
     } catch (IOException e) {
       throw new RuntimeException("Failed to execute process: " + args, e);
     } catch (InterruptedException e) {
@@ -201,96 +394,250 @@ public class Command {
 
 
   /**
-   * Executes a command with a specified timeout. If the process does not
-   * complete normally before the timeout has elapsed, it will be destroyed.
+   * Executes the command without blocking the calling thread. The process
+   * output is spooled to a temporary file, so no thread is parked on the
+   * process while it runs; the spool is read on a small shared pool once
+   * the process exits, and then deleted.
+   *
+   * @return a future completed with the command's exit code and output, or
+   *    completed exceptionally if the command failed.
+   */
+  public CompletableFuture<Result> executeAsync() {
+    return executeAsync(0);
+  }
+
+  /**
+   * Executes the command without blocking the calling thread. If the process
+   * does not complete before the timeout has elapsed, its whole process tree
+   * is terminated and the returned future completes exceptionally with a
+   * {@link TimeoutException}. Cancelling the returned future terminates the
+   * process tree as well.
    *
    * @param timeoutSeconds how long to wait, or 0 to wait indefinitely
-   * @return the command's output, or null if the command timed out
+   * @return a future completed with the command's exit code and output.
    */
-  public List<String> executeWithTimeout(int timeoutSeconds) throws TimeoutException {
-    if (timeoutSeconds == 0) {
-      return execute();
+  public CompletableFuture<Result> executeAsync(int timeoutSeconds) {
+    final List<String> outputLines = new ArrayList<>();
+    return cancellable(executeAsync(timeoutSeconds, outputLines::add)
+      .thenApply(exitValue -> new Result(exitValue, outputLines)));
+  }
+
+  /**
+   * Executes the command without blocking the calling thread, like
+   * {@link #executeAsync(int)}, but hands the output to a consumer one line
+   * at a time instead of collecting it. The output is not streamed live:
+   * it is spooled to a temporary file while the process runs and replayed
+   * to the consumer after the process exits, so the consumer sees nothing
+   * until then, and the spool takes as much disk space as the output. Only
+   * the last few lines are retained in memory (see
+   * {@link Builder#tail(int)}), to report a failure. Use
+   * {@link #execute(Consumer)} to consume output as it is produced.
+   *
+   * @param timeoutSeconds how long to wait, or 0 to wait indefinitely
+   * @param lines consumer of output lines; called on a shared pool thread,
+   *    after the process exits.
+   * @return a future completed with the command's exit code.
+   */
+  public CompletableFuture<Integer> executeAsync(int timeoutSeconds, Consumer<String> lines) {
+    if(isStarted()){
+      throw new IllegalStateException("Already started!");
     }
 
-    scheduleTimeout(timeoutSeconds);
-    return execute();
+    final CompletableFuture<Integer> failed = new CompletableFuture<>();
+
+    final Path output;
+    try {
+      output = Files.createTempFile("command", ".out");
+    } catch (IOException e) {
+      failed.completeExceptionally(new RuntimeException("Failed to execute process: " + args, e));
+      return failed;
+    }
+
+    try {
+      log.info("starting command");
+      process = processBuilder().redirectOutput(output.toFile()).start();
+    } catch (IOException e) {
+      deleteQuietly(output);
+      failed.completeExceptionally(new RuntimeException("Failed to execute process: " + args, e));
+      return failed;
+    }
+
+    if (timeoutSeconds > 0) {
+      scheduleTimeout(timeoutSeconds);
+    }
+
+    return cancellable(process.onExit().thenApplyAsync(p -> {
+      cancelTimeout();
+
+      try {
+        if (wasTerminated(p.exitValue())) {
+          throw new CompletionException(timedOut(timeoutSeconds));
+        }
+
+        final Tail tail = new Tail(tailLines);
+        try (BufferedReader bufferedReader = new BufferedReader(new InputStreamReader(Files.newInputStream(output), StandardCharsets.UTF_8))) {
+          String outputLine;
+          while ((outputLine = bufferedReader.readLine()) != null) {
+            if (console != null) {
+              console.println(outputLine);
+            }
+
+            tail.add(outputLine);
+            lines.accept(outputLine);
+          }
+        }
+
+        final int exitValue = p.exitValue();
+        if (exitValue != 0 && !permitNonZeroExitStatus) {
+          throw new CommandFailedException(args, tail);
+        }
+
+        return exitValue;
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      } finally {
+        deleteQuietly(output);
+      }
+    }, drainer));
   }
 
   /**
-   * Destroys the underlying process and closes its associated streams.
+   * Terminates the process tree if a future of this command is cancelled.
    */
-  private void destroy() {
-    Process process = this.process;
-    if (process == null) {
-      throw new IllegalStateException();
+  private <T> CompletableFuture<T> cancellable(CompletableFuture<T> future) {
+    future.whenComplete((r, t) -> {
+      if (future.isCancelled()) {
+        log.info("terminating cancelled command " + this);
+        terminate();
+      }
+    });
+
+    return future;
+  }
+
+  private void deleteQuietly(Path file){
+    try {
+      Files.deleteIfExists(file);
+    } catch (IOException e) {
+      log.warn("couldn't delete " + file);
     }
-    if (destroyed) {
-      return;
+  }
+
+  /**
+   * Executes a command with a specified timeout. If the process does not
+   * complete normally before the timeout has elapsed, its whole process
+   * tree will be terminated.
+   *
+   * @param timeoutSeconds how long to wait, or 0 to wait indefinitely
+   * @return the command's output
+   * @throws TimeoutException if the command timed out.
+   */
+  public List<String> executeWithTimeout(int timeoutSeconds) throws TimeoutException {
+    if (timeoutSeconds == 0) {
+      return execute();
     }
 
-    destroyed = true;
-    process.destroy();
+    scheduleTimeout(timeoutSeconds);
+
     try {
-      process.waitFor();
-      int exitValue = process.exitValue();
-      log.info("received exit value " + exitValue + " from destroyed command " + this);
-    } catch (IllegalThreadStateException | InterruptedException destroyUnsuccessful) {
-      log.warn("couldn't destroy " + this);
+      final List<String> output = new ArrayList<>();
+      final int exitValue = execute(output::add);
+      if (wasTerminated(exitValue)) {
+        throw timedOut(timeoutSeconds);
+      }
+
+      return output;
+    } catch (RuntimeException e) {
+      // a command only fails with a nonzero exit status
+      if (destroyed) {
+        throw timedOut(timeoutSeconds);
+      }
+
+      throw e;
+    } finally {
+      cancelTimeout();
     }
   }
 
+  /**
+   * A timeout may fire just as the process exits on its own; such a
+   * process was not terminated if it exited successfully.
+   */
+  private boolean wasTerminated(int exitValue) {
+    return destroyed && exitValue != 0;
+  }
+
+  private TimeoutException timedOut(int timeoutSeconds) {
+    return new TimeoutException("Command timed out after " + timeoutSeconds + " seconds: " + this);
+  }
 
   /**
-   * Sets the time at which this process will be killed. If a timeout has
-   * already been scheduled, it will be rescheduled.
+   * Sets the time at which this process will be terminated. If a timeout
+   * has already been scheduled, it will be rescheduled.
    *
    * @param timeoutSeconds timeout value in seconds
    */
   private void scheduleTimeout(int timeoutSeconds) {
-    timeoutNanoTime = System.nanoTime() + TimeUnit.SECONDS.toNanos(timeoutSeconds);
-
-    new TimeoutTask() {
-      @Override protected void onTimeout(Process process) {
-        // send a quit signal immediately
-        log.info("sending quit signal to command " + Command.this);
-        sendQuitSignal(process);
-
-        // hard kill in 2 seconds
-        timeoutNanoTime = System.nanoTime() + TimeUnit.SECONDS.toNanos(2);
-        new TimeoutTask() {
-          @Override protected void onTimeout(Process process) {
-            log.info("killing timed out command " + Command.this);
-            destroy();
-          }
-        }.schedule();
-      }
-    }.schedule();
-  }
+    cancelTimeout();
 
-  private void sendQuitSignal(Process process) {
-    final List<String> args = Lists.newArrayList(
-      "kill", "-3", Integer.toString(getPid(process))
-    );
+    timeout = timer.schedule(() -> {
+      log.info("terminating timed out command " + Command.this);
+      terminate();
+    }, timeoutSeconds, TimeUnit.SECONDS);
+  }
 
-    new Command(log, args).execute();
+  /**
+   * Cancels a scheduled timeout, if any. Cancelled timeouts are removed
+   * from the shared timer right away.
+   */
+  private void cancelTimeout() {
+    final ScheduledFuture<?> scheduled = timeout;
+    if (scheduled != null) {
+      scheduled.cancel(false);
+    }
   }
 
   /**
-   * Return the PID of this command's process.
+   * Terminates the underlying process and all of its descendants. Each
+   * process is first asked to terminate; processes still alive after a
+   * grace period are killed forcibly. A process that already exited is
+   * left alone, and not marked as terminated.
    */
-  private int getPid(Process process) {
-    try {
-      // See org.openqa.selenium.ProcessUtils.getProcessId()
-      Field field = process.getClass().getDeclaredField("pid");
-      field.setAccessible(true);
-      return (Integer) field.get(process);
-    } catch (Exception e) {
-      throw new RuntimeException(e);
+  private void terminate() {
+    final Process process = this.process;
+    if (process == null || !process.isAlive()) {
+      return;
+    }
+
+    synchronized (this) {
+      if (destroyed) return;
+      destroyed = true;
     }
+
+    // collect descendants first; they are re-parented once their parent dies
+    final List<ProcessHandle> tree = Stream.concat(
+      process.descendants(),
+      Stream.of(process.toHandle())
+    ).collect(Collectors.toList());
+
+    tree.forEach(ProcessHandle::destroy);
+
+    timer.schedule(() -> tree.stream()
+      .filter(ProcessHandle::isAlive)
+      .forEach(each -> {
+        log.info("killing process " + each.pid() + " of timed out command " + Command.this);
+        each.destroyForcibly();
+      }), GRACE_SECONDS, TimeUnit.SECONDS);
   }
 
-  private boolean timedOut() {
-    return System.nanoTime() >= timeoutNanoTime;
+  private static ScheduledThreadPoolExecutor newTimer() {
+    final ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1,
+      new ThreadFactoryBuilder().setDaemon(true).setNameFormat("command-timer-%d").build()
+    );
+
+    executor.setRemoveOnCancelPolicy(true);
+
+    return executor;
   }
 
 
@@ -310,6 +657,8 @@ public class Command {
 
     private File        workingDirectory;
     private boolean     permitNonZeroExitStatus;
+    private boolean     discardErrors;
+    private int         tailLines;
     private PrintStream console;
     private int         maxCommandLength;
 
@@ -324,6 +673,8 @@ public class Command {
 
       this.workingDirectory         = null;
       this.permitNonZeroExitStatus  = false;
+      this.discardErrors            = false;
+      this.tailLines                = TAIL_LINES;
 
       this.console = null;
       this.maxCommandLength = Integer.MAX_VALUE;
@@ -391,6 +742,30 @@ public class Command {
       return this;
     }
 
+    /**
+     * Discards the process' standard error instead of merging it into its
+     * output; e.g., for processes whose output follows a protocol.
+     *
+     * @return self
+     */
+    public Builder discardErrors() {
+      this.discardErrors = true;
+      return this;
+    }
+
+    /**
+     * Sets how many of the last output lines are kept to report a failure
+     * when the output is streamed.
+     *
+     * @param lines number of lines to keep (at least 1).
+     * @return self
+     */
+    public Builder tail(int lines) {
+      Preconditions.checkArgument(lines > 0, "Expected lines > 0");
+      this.tailLines = lines;
+      return this;
+    }
+
     /**
      * Sets the command's print stream.
      *
@@ -429,6 +804,43 @@ public class Command {
       return build().execute();
     }
 
+    /**
+     * Shortcut to execute a command, streaming its output.
+     * @param lines consumer of output lines.
+     * @return the exit code of the command.
+     */
+    public int execute(Consumer<String> lines) {
+      return build().execute(lines);
+    }
+
+    /**
+     * Shortcut to execute a command, streaming its raw output.
+     * @param chunks consumer of output chunks.
+     * @return the exit code of the command.
+     */
+    public int execute(Chunks chunks) {
+      return build().execute(chunks);
+    }
+
+    /**
+     * Shortcut to execute a command without blocking.
+     * @return a future completed with the
+     *    exit code and output of the command.
+     */
+    public CompletableFuture<Result> executeAsync() {
+      return build().executeAsync();
+    }
+
+    /**
+     * Shortcut to execute a command without blocking.
+     * @param timeoutSeconds how long to wait, or 0 to wait indefinitely
+     * @return a future completed with the
+     *    exit code and output of the command.
+     */
+    public CompletableFuture<Result> executeAsync(int timeoutSeconds) {
+      return build().executeAsync(timeoutSeconds);
+    }
+
     @Override public String toString() {
       final String left  = Objects.isNull(this.args) ? "" : this.args.toString();
       final String right = Objects.isNull(workingDirectory) ? "" : workingDirectory.toString();
@@ -436,19 +848,125 @@ public class Command {
     }
   }
 
+  /**
+   * Exit code and output of an executed command.
+   */
+  public static class Result {
+    private final int           exitCode;
+    private final List<String>  output;
+
+    Result(int exitCode, List<String> output){
+      this.exitCode = exitCode;
+      this.output   = Collections.unmodifiableList(output);
+    }
+
+    /**
+     * @return the exit code of the command.
+     */
+    public int exitCode(){
+      return exitCode;
+    }
+
+    /**
+     * @return the lines displayed on the terminal.
+     */
+    public List<String> output(){
+      return output;
+    }
+  }
+
+  /**
+   * Consumer of raw output chunks.
+   */
+  public interface Chunks {
+    /**
+     * Consumes a chunk of output.
+     *
+     * @param buffer buffer holding the chunk; reused between calls.
+     * @param offset where the chunk starts.
+     * @param length number of bytes in the chunk.
+     */
+    void accept(byte[] buffer, int offset, int length);
+  }
+
+  /**
+   * Bounded ring of the last output lines of a command. Lines longer than
+   * a fixed limit are truncated, so a tail never grows beyond
+   * lines * {@value #MAX_LINE} characters. Raw output is decoded before it
+   * is truncated, so multi-byte characters are never split.
+   */
+  private static class Tail {
+    private static final int MAX_LINE  = 1024;
+    private static final int MAX_BYTES = MAX_LINE * 4; // enough for MAX_LINE characters in UTF-8
+
+    private final int                   capacity;
+    private final ArrayDeque<String>    lines;
+    private final ByteArrayOutputStream partial;
+
+    private long dropped;
+
+    Tail(int capacity){
+      this.capacity = capacity;
+      this.lines    = new ArrayDeque<>(Math.min(capacity, TAIL_LINES));
+      this.partial  = new ByteArrayOutputStream();
+      this.dropped  = 0;
+    }
+
+    void add(String line){
+      if (lines.size() == capacity) {
+        lines.removeFirst();
+        dropped++;
+      }
+
+      lines.addLast(line.length() > MAX_LINE ? truncate(line) + "..." : line);
+    }
+
+    private static String truncate(String line){
+      // a surrogate pair is one character
+      final int end = Character.isHighSurrogate(line.charAt(MAX_LINE - 1)) ? MAX_LINE - 1 : MAX_LINE;
+      return line.substring(0, end);
+    }
+
+    void add(byte[] buffer, int offset, int length){
+      for (int idx = offset; idx < offset + length; idx++) {
+        if (buffer[idx] == '\n') {
+          flush();
+        } else if (partial.size() < MAX_BYTES) {
+          partial.write(buffer[idx]);
+        }
+      }
+    }
+
+    void flush(){
+      if (partial.size() == 0) return;
+
+      add(new String(partial.toByteArray(), StandardCharsets.UTF_8));
+      partial.reset();
+    }
+
+    List<String> lines(){
+      return new ArrayList<>(lines);
+    }
+
+    long dropped(){
+      return dropped;
+    }
+  }
+
   /**
    * Command failed to execute exception.
    */
   private static class CommandFailedException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
 
     /**
      * Construct a new CommandFailedException object.
      *
      * @param args list of command's args.
-     * @param outputLines list of output lines displayed on terminal.
+     * @param tail last output lines displayed on terminal.
      */
-    public CommandFailedException(List<String> args, List<String> outputLines) {
-      super(formatMessage(args, outputLines));
+    public CommandFailedException(List<String> args, Tail tail) {
+      super(formatMessage(args, tail.lines(), tail.dropped()));
     }
 
     /**
@@ -456,9 +974,10 @@ public class Command {
      *
      * @param args list of command's args.
      * @param outputLines list of output lines displayed on terminal.
+     * @param dropped number of earlier lines not included.
      * @return formatted message.
      */
-    static String formatMessage(List<String> args, List<String> outputLines) {
+    static String formatMessage(List<String> args, List<String> outputLines, long dropped) {
       StringBuilder result = new StringBuilder();
       result.append("Command failed:");
 
@@ -466,6 +985,10 @@ public class Command {
         result.append(" ").append(arg);
       }
 
+      if (dropped > 0) {
+        result.append("\n  (").append(dropped).append(" earlier lines omitted)");
+      }
+
       for (String outputLine : outputLines) {
         result.append("\n  ").append(outputLine);
       }
@@ -473,29 +996,4 @@ public class Command {
       return result.toString();
     }
   }
-
-  /**
-   * Runs some code when the command times out.
-   */
-  private abstract class TimeoutTask implements Runnable {
-    final void schedule() {
-      timer.schedule(this, System.nanoTime() - timeoutNanoTime, TimeUnit.NANOSECONDS);
-    }
-
-    protected abstract void onTimeout(Process process);
-
-    @Override public final void run() {
-      Process process = Command.this.process;
-
-      // don't do anything if we have already destroyed this command
-      if (destroyed) { return; }
-
-      if (timedOut()) {
-        onTimeout(process);
-      } else {
-        // reschedule the kill operation
-        timer.schedule(this, System.nanoTime() - timeoutNanoTime, TimeUnit.NANOSECONDS);
-      }
-    }
-  }
 }
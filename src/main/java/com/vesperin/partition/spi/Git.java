@@ -1,13 +1,16 @@
 package com.vesperin.partition.spi;
 
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 import com.google.gson.Gson;
 import com.google.gson.stream.JsonReader;
 import com.vesperin.partition.utils.IO;
 
+import java.io.ByteArrayOutputStream;
 import java.io.FileReader;
 import java.io.IOException;
 import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
@@ -15,6 +18,7 @@ import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.function.Consumer;
 
 /**
  * @author Huascar Sanchez
@@ -101,8 +105,27 @@ public class Git {
     final List<String> names = Lists.newArrayList();
 
     try {
+      readUrls(json).forEach(eachUrl -> names.add(Git.cloneRepository(eachUrl, to)));
+    } catch (IOException e){
+      log("Unable to read file", e);
+    }
+
+    return names;
+  }
+
+  /**
+   * Reads the git-url field of every repository in a corpus.json file.
+   *
+   * @param json the path to corpus.json file
+   * @return list of git urls
+   * @throws IOException if unable to read file.
+   */
+  public static List<String> readUrls(Path json) throws IOException {
+
+    final List<String> urls = Lists.newArrayList();
+
+    try (JsonReader reader = new JsonReader(new FileReader(json.toFile()))) {
       Gson gson = new Gson();
-      final JsonReader reader = new JsonReader(new FileReader(json.toFile()));
 
       final Map<String, Map<String, Map<String, String>>> records = gson.fromJson(reader, Map.class);
 
@@ -113,17 +136,256 @@ public class Git {
 
           eachRepositoryEntry.keySet().stream()
             .filter("git-url"::equals)
-            .forEach(eachEntryKey -> names.add(Git.cloneRepository(eachRepositoryEntry.get(eachEntryKey), to)));
+            .forEach(eachEntryKey -> urls.add(eachRepositoryEntry.get(eachEntryKey)));
 
         }
       }
-    } catch (IOException e){
-      log("Unable to read file", e);
     }
 
-    return names;
+    return urls;
+  }
+
+
+  /**
+   * Reads the git-ref field of every repository in a corpus.json file.
+   *
+   * @param json the path to corpus.json file
+   * @return git refs keyed by git url; repositories without a git-ref
+   *    are left out.
+   * @throws IOException if unable to read file.
+   */
+  public static Map<String, String> readRefs(Path json) throws IOException {
+
+    final Map<String, String> refs = Maps.newLinkedHashMap();
+
+    try (JsonReader reader = new JsonReader(new FileReader(json.toFile()))) {
+      Gson gson = new Gson();
+
+      final Map<String, Map<String, Map<String, String>>> records = gson.fromJson(reader, Map.class);
+
+      for(Map<String, Map<String, String>> eachRecordEntry : records.values()){
+        for(Map<String, String> eachRepositoryEntry : eachRecordEntry.values()){
+          final String url = eachRepositoryEntry.get("git-url");
+          final String ref = eachRepositoryEntry.get("git-ref");
+
+          if(!Objects.isNull(url) && !Objects.isNull(ref)){
+            refs.put(url, ref);
+          }
+        }
+      }
+    }
+
+    return refs;
+  }
+
+  /**
+   * Checks out a given revision of a repository, fetching it first if it
+   * is not available locally.
+   *
+   * @param repository the repository's directory
+   * @param ref the revision to check out
+   * @throws RuntimeException if the revision cannot be checked out.
+   */
+  public static void checkout(Path repository, String ref){
+    if(ref.equals(headOf(repository))) return;
+
+    fetchIfMissing(repository, ref);
+
+    Command.of(LOGGER)
+      .arguments("git", "checkout", "--quiet", "--detach", ref)
+      .workingDirectory(repository.toFile())
+      .execute();
+  }
+
+  private static void fetchIfMissing(Path repository, String ref){
+    try {
+      Command.of(LOGGER)
+        .arguments("git", "cat-file", "-e", ref + "^{commit}")
+        .workingDirectory(repository.toFile())
+        .execute();
+    } catch (RuntimeException missing){
+      Command.of(LOGGER)
+        .arguments("git", "fetch", "--quiet", "origin")
+        .workingDirectory(repository.toFile())
+        .execute();
+    }
+  }
+
+  /**
+   * Clones a repository without checking out a working tree. Repositories
+   * already cloned are left untouched.
+   *
+   * @param gitUrl git url
+   * @param to directory where clone will take place.
+   * @return the path of the cloned repository.
+   */
+  public static Path cloneWithoutCheckout(String gitUrl, Path to){
+    final Path repository = to.resolve(from(gitUrl).toFile().getName());
+
+    if(!Files.exists(repository)){
+      log(Lists.newArrayList("cloning " + repository.toFile().getName() + " project (no checkout)."));
+      new Mkdir().mkdir(to.toFile());
+
+      Command.of(LOGGER)
+        .arguments("git", "clone", "--quiet", "--no-checkout", gitUrl, repository.toString())
+        .execute();
+    }
+
+    return repository;
+  }
+
+  /**
+   * Points HEAD of a repository at a given revision without touching any
+   * working tree, fetching the revision first if it is not available
+   * locally. Meant for clones without a working tree.
+   *
+   * @param repository the repository's directory
+   * @param ref the revision to point HEAD at
+   * @throws RuntimeException if the revision cannot be resolved.
+   */
+  public static void pin(Path repository, String ref){
+    if(ref.equals(headOf(repository))) return;
+
+    fetchIfMissing(repository, ref);
+
+    Command.of(LOGGER)
+      .arguments("git", "update-ref", "--no-deref", "HEAD", ref + "^{commit}")
+      .workingDirectory(repository.toFile())
+      .execute();
+  }
+
+  /**
+   * Writes a revision of a repository into a zip archive (git archive),
+   * fetching the revision first if it is not available locally.
+   *
+   * @param repository the repository's directory
+   * @param ref the revision to archive
+   * @param archive the zip file to write
+   * @throws RuntimeException if the archive cannot be written.
+   */
+  public static void archive(Path repository, String ref, Path archive){
+    fetchIfMissing(repository, ref);
+
+    Command.of(LOGGER)
+      .arguments("git", "archive", "--format=zip", "-o", archive.toAbsolutePath().toString(), ref)
+      .workingDirectory(repository.toFile())
+      .execute();
+  }
+
+  /**
+   * Lists the files that differ between two revisions of a repository
+   * (git diff --name-status -z). Renames are reported as a deletion plus an
+   * addition. Paths are kept as is, whatever characters they contain.
+   *
+   * @param repository the repository's directory
+   * @param from the old revision
+   * @param to the new revision
+   * @return the changed files.
+   * @throws RuntimeException if the revisions cannot be compared.
+   */
+  public static List<Change> diff(Path repository, String from, String to){
+    final List<Change> changes = Lists.newArrayList();
+
+    // <status> NUL <path> NUL, paths verbatim (-z never quotes them); streamed,
+    // so a large diff's raw output is never held in memory
+    final String[] status = new String[1];
+    Command.of(LOGGER)
+      .arguments("git", "diff", "--name-status", "--no-renames", "-z", from, to)
+      .workingDirectory(repository.toFile())
+      .execute(nulTerminated(each -> {
+        if(Objects.isNull(status[0])){
+          status[0] = each;
+          return;
+        }
+
+        if(!status[0].isEmpty()) changes.add(new Change(status[0].charAt(0), each));
+        status[0] = null;
+      }));
+
+    return changes;
+  }
+
+  /**
+   * Splits raw output into NUL terminated records (as written by git's -z
+   * option), decoded as UTF-8.
+   *
+   * @param records consumer of records.
+   * @return a consumer of output chunks.
+   */
+  static Command.Chunks nulTerminated(Consumer<String> records){
+    final ByteArrayOutputStream record = new ByteArrayOutputStream(256);
+    return (buffer, offset, length) -> {
+      int start = offset;
+      for(int idx = offset; idx < offset + length; idx++){
+        if(buffer[idx] != 0) continue;
+
+        record.write(buffer, start, idx - start);
+        records.accept(new String(record.toByteArray(), StandardCharsets.UTF_8));
+        record.reset();
+        start = idx + 1;
+      }
+
+      record.write(buffer, start, offset + length - start);
+    };
+  }
+
+  /**
+   * Resolves the revision currently checked out in a repository.
+   *
+   * @param repository the repository's directory
+   * @return the commit id of HEAD; null if it cannot be resolved.
+   */
+  public static String headOf(Path repository){
+    try {
+      final List<String> output = Command.of(LOGGER)
+        .arguments("git", "rev-parse", "HEAD")
+        .workingDirectory(repository.toFile())
+        .execute();
+
+      return output.isEmpty() ? null : output.get(0).trim();
+    } catch (RuntimeException e){
+      return null;
+    }
   }
 
+  /**
+   * A file changed between two revisions.
+   */
+  public static class Change {
+    private final char    status;
+    private final String  path;
+
+    Change(char status, String path){
+      this.status = status;
+      this.path   = path;
+    }
+
+    /**
+     * @return the change's status; e.g., 'A' (added), 'M' (modified),
+     *    or 'D' (deleted).
+     */
+    public char status(){
+      return status;
+    }
+
+    /**
+     * @return the file's path, relative to the repository's root.
+     */
+    public String path(){
+      return path;
+    }
+
+    /**
+     * @return true if the file no longer exists in the new revision.
+     */
+    public boolean isDeletion(){
+      return status == 'D';
+    }
+
+    @Override public String toString() {
+      return status + "\t" + path;
+    }
+  }
 
   public static Path from(String gitUrl){
     if(Objects.isNull(gitUrl)) throw new IllegalArgumentException("null git url");
@@ -148,7 +410,7 @@ public class Git {
         }
 
         final Rsync move = new Rsync();
-        move.rsync(from.toFile(), to.toFile());
+        move.move(from.toFile(), to.toFile());
       }
 
       log(output);
@@ -0,0 +1,217 @@
+package com.vesperin.partition.spi;
+
+import com.google.common.collect.Lists;
+import com.vesperin.base.Source;
+import com.vesperin.partition.utils.IO;
+import com.vesperin.partition.utils.Sources;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Reads files straight from a repository's object store, without a working
+ * tree. Files are listed with git ls-tree, and their contents are streamed
+ * through one long-lived git cat-file --batch process, one blob at a time.
+ *
+ * @author Huascar Sanchez
+ */
+public class GitObjects implements Closeable {
+  private static final ExecutionLog LOGGER = new BasicExecutionLog(System.out);
+
+  private final Path          repository;
+  private final Command       batch;
+  private final InputStream   in;
+  private final OutputStream  out;
+
+  private GitObjects(Path repository, Command batch){
+    this.repository = repository;
+    this.batch      = batch;
+    this.in         = new BufferedInputStream(batch.getInputStream(), 1 << 16);
+    this.out        = new BufferedOutputStream(batch.getOutputStream());
+  }
+
+  /**
+   * Starts reading the object store of a repository.
+   *
+   * @param repository the repository's directory (a clone, with or without
+   *    a working tree)
+   * @return a new GitObjects object; it must be closed.
+   * @throws RuntimeException if git cat-file cannot be started.
+   */
+  public static GitObjects open(Path repository){
+    final Command batch = Command.of(LOGGER)
+      .arguments("git", "cat-file", "--batch")
+      .workingDirectory(repository.toFile())
+      .discardErrors()
+      .build();
+
+    try {
+      batch.start();
+    } catch (IOException e){
+      throw new RuntimeException("Unable to read objects of " + repository, e);
+    }
+
+    return new GitObjects(repository, batch);
+  }
+
+  /**
+   * Lists the files (blobs) of a revision, keeping those that would be
+   * collected by {@link IO#collectFiles(Path, String, String...)}. Paths
+   * are filtered before any content is read.
+   *
+   * @param ref the revision to list
+   * @param extension extension of files to keep
+   * @param keywords hints which files to ignore (based on their names)
+   * @return the matching files.
+   * @throws RuntimeException if the revision cannot be listed; the message
+   *    includes git's error output.
+   */
+  public List<Blob> list(String ref, String extension, String... keywords){
+    final List<Blob> blobs = Lists.newArrayList();
+
+    // <mode> SP <type> SP <object> TAB <path> NUL, paths verbatim (-z never
+    // quotes them); streamed, so only matching entries of a large tree are kept
+    Command.of(LOGGER)
+      .arguments("git", "ls-tree", "-r", "-z", ref)
+      .workingDirectory(repository.toFile())
+      .execute(Git.nulTerminated(each -> {
+        final int tab = each.indexOf('\t');
+        if(tab < 0) return;
+
+        final String[] meta = each.substring(0, tab).split(" ");
+        final String   path = each.substring(tab + 1);
+
+        if(meta.length == 3 && isRegularFile(meta[0], meta[1]) && IO.isCollectable(path, extension, keywords)){
+          blobs.add(new Blob(meta[2], path));
+        }
+      }));
+
+    return blobs;
+  }
+
+  /**
+   * Only regular files (100644) and executables (100755) hold source code;
+   * symbolic links (120000) are blobs too, but hold the link's target.
+   */
+  private static boolean isRegularFile(String mode, String type){
+    return "blob".equals(type) && ("100644".equals(mode) || "100755".equals(mode));
+  }
+
+  /**
+   * Reads the files of a revision as source objects.
+   *
+   * @param ref the revision to read
+   * @param extension extension of files to read
+   * @param keywords hints which files to ignore (based on their names)
+   * @return the list of source objects.
+   */
+  public List<Source> sources(String ref, String extension, String... keywords){
+    final List<Source> sources = Lists.newArrayList();
+    for(Blob each : list(ref, extension, keywords)){
+      final byte[] content = read(each.id());
+      if(!Objects.isNull(content)){
+        sources.add(Sources.from(each.path(), content));
+      }
+    }
+
+    return sources;
+  }
+
+  /**
+   * Reads the contents of an object.
+   *
+   * @param id the object's id
+   * @return the object's bytes; null if the object is missing.
+   */
+  public byte[] read(String id){
+    try {
+      out.write((id + "\n").getBytes(StandardCharsets.UTF_8));
+      out.flush();
+
+      // <object> SP <type> SP <size> LF <contents> LF, or <object> SP missing LF
+      final String   header = readLine();
+      final String[] parts  = header.split(" ");
+      if(parts.length != 3) return null;
+
+      final byte[] content = new byte[Integer.parseInt(parts[2])];
+      int read = 0;
+      while(read < content.length){
+        final int n = in.read(content, read, content.length - read);
+        if(n < 0) throw new EOFException("Truncated object " + id);
+        read += n;
+      }
+
+      if(in.read() != '\n') throw new IOException("Malformed object " + id);
+
+      return content;
+    } catch (IOException e){
+      throw new RuntimeException("Unable to read object " + id + " of " + repository, e);
+    }
+  }
+
+  private String readLine() throws IOException {
+    final ByteArrayOutputStream line = new ByteArrayOutputStream(64);
+
+    int each;
+    while((each = in.read()) != '\n'){
+      if(each < 0) throw new EOFException("git cat-file exited unexpectedly");
+      line.write(each);
+    }
+
+    return new String(line.toByteArray(), StandardCharsets.UTF_8);
+  }
+
+  @Override public void close() {
+    try {
+      // cat-file exits once its input is closed
+      out.close();
+      batch.waitFor();
+    } catch (IOException e){
+      batch.destroy();
+    } catch (InterruptedException e){
+      batch.destroy();
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * A file stored in the object store.
+   */
+  public static class Blob {
+    private final String id;
+    private final String path;
+
+    Blob(String id, String path){
+      this.id   = id;
+      this.path = path;
+    }
+
+    /**
+     * @return the blob's object id.
+     */
+    public String id(){
+      return id;
+    }
+
+    /**
+     * @return the file's path, relative to the repository's root.
+     */
+    public String path(){
+      return path;
+    }
+
+    @Override public String toString() {
+      return id + "\t" + path;
+    }
+  }
+}
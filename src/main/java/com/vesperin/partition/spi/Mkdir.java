@@ -4,17 +4,19 @@ package com.vesperin.partition.spi;
  * @author Huascar Sanchez
  */
 
-import com.google.common.collect.Lists;
-
 import java.io.File;
-import java.util.List;
+import java.io.IOException;
+import java.nio.file.Files;
 
 /**
- * A mkdir command.
+ * A mkdir command. Parent directories are created as needed.
  */
 public final class Mkdir {
   public void mkdir(File directory) {
-    final List<String> args = Lists.newArrayList("mkdir", "-p", directory.getPath());
-    new Command(args).execute();
+    try {
+      Files.createDirectories(directory.toPath());
+    } catch (IOException e) {
+      throw new RuntimeException("Failed to create directory: " + directory, e);
+    }
   }
 }
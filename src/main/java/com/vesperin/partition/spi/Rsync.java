@@ -1,16 +1,54 @@
 package com.vesperin.partition.spi;
 
-import com.google.common.collect.Lists;
+import com.vesperin.partition.utils.IO;
 
 import java.io.File;
-import java.util.List;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 
 /**
+ * An in-process equivalent of {@code rsync -a from to}: the {@code from}
+ * directory is replicated inside the {@code to} directory (created if
+ * missing), preserving file attributes and symbolic links. Files already
+ * at the destination are overwritten; files only there are kept.
+ *
  * @author Huascar Sanchez
  */
 public class Rsync {
   public void rsync(File from, File to){
-    final List<String> args = Lists.newArrayList("rsync", "-a", from.getPath(), to.getPath());
-    new Command(args).execute();
+    try {
+      IO.copyDirectoryTree(
+        from.toPath(),
+        target(from, to),
+        StandardCopyOption.REPLACE_EXISTING,
+        StandardCopyOption.COPY_ATTRIBUTES,
+        LinkOption.NOFOLLOW_LINKS
+      );
+    } catch (IOException e) {
+      throw new RuntimeException("Failed to rsync " + from + " into " + to, e);
+    }
+  }
+
+  /**
+   * Moves the {@code from} directory inside the {@code to} directory. Within
+   * the same file system, this is a single rename.
+   *
+   * @param from the directory to move
+   * @param to the destination's parent directory; created if missing
+   */
+  public void move(File from, File to){
+    try {
+      IO.moveDirectoryTree(from.toPath(), target(from, to));
+    } catch (IOException e) {
+      throw new RuntimeException("Failed to move " + from + " into " + to, e);
+    }
+  }
+
+  private static Path target(File from, File to) throws IOException {
+    Files.createDirectories(to.toPath());
+    return to.toPath().resolve(from.toPath().toAbsolutePath().normalize().getFileName());
   }
 }
@@ -0,0 +1,266 @@
+package com.vesperin.partition.utils;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import static java.nio.file.StandardOpenOption.APPEND;
+import static java.nio.file.StandardOpenOption.CREATE;
+
+/**
+ * Records the stage each project reached during a run (cloned, words
+ * extracted, or failed), so an interrupted or partially failed run can
+ * be resumed without redoing finished work.
+ *
+ * <p>Each entry records the inputs it was computed from: the search scope,
+ * the stop words fingerprint, and the git-ref the project was pinned to.
+ * Entries whose scope or fingerprint differ from the current run's are
+ * ignored when loading; an entry whose git-ref differs from the corpus'
+ * is not considered extracted.
+ *
+ * <p>The checkpoint is a journal: every change appends one JSON line,
+ * and the last line of a project wins. Loading compacts the journal.
+ *
+ * @author Huascar Sanchez
+ */
+public class Checkpoint {
+  private static final Gson GSON = new Gson();
+
+  private final Path    file;
+  private final String  scope;
+  private final String  stopWords;
+  private final Map<String, Entry> entries;
+
+  /**
+   * Project stages.
+   */
+  public enum Stage { CLONED, EXTRACTED, FAILED }
+
+  private Checkpoint(Path file, String scope, String stopWords, Map<String, Entry> entries){
+    this.file       = file;
+    this.scope      = scope;
+    this.stopWords  = stopWords;
+    this.entries    = entries;
+  }
+
+  /**
+   * Starts a new checkpoint, discarding any existing one.
+   *
+   * @param file the checkpoint file
+   * @param scope the run's search scope
+   * @param stopWords the run's stop words fingerprint
+   * @return a new checkpoint.
+   * @throws IOException unexpected error has occurred.
+   */
+  public static Checkpoint create(Path file, String scope, String stopWords) throws IOException {
+    Files.deleteIfExists(file);
+    return new Checkpoint(
+      Objects.requireNonNull(file), Objects.requireNonNull(scope),
+      Objects.requireNonNull(stopWords), Maps.newLinkedHashMap()
+    );
+  }
+
+  /**
+   * Loads an existing checkpoint, keeping only the entries computed with
+   * the given scope and stop words; if there is none, starts a new one.
+   * A truncated last line (e.g., the run was killed while writing it) is
+   * ignored.
+   *
+   * @param file the checkpoint file
+   * @param scope the run's search scope
+   * @param stopWords the run's stop words fingerprint
+   * @return the loaded checkpoint.
+   * @throws IOException unexpected error has occurred.
+   */
+  public static Checkpoint load(Path file, String scope, String stopWords) throws IOException {
+    if(!Files.exists(file)) return create(file, scope, stopWords);
+
+    final List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+
+    final Map<String, Entry> entries = Maps.newLinkedHashMap();
+    for(int idx = 0; idx < lines.size(); idx++){
+      final String line = lines.get(idx).trim();
+      if(line.isEmpty()) continue;
+
+      final Entry entry;
+      try {
+        entry = GSON.fromJson(line, Entry.class);
+      } catch (JsonParseException e){
+        if(idx == lines.size() - 1) break;
+        throw new IOException("Malformed checkpoint " + file + " at line " + (idx + 1), e);
+      }
+
+      if(Objects.isNull(entry) || Objects.isNull(entry.project) || Objects.isNull(entry.stage)) continue;
+
+      if(scope.equals(entry.scope) && stopWords.equals(entry.stopWords)){
+        entries.put(entry.project, entry);
+      } else {
+        entries.remove(entry.project);
+      }
+    }
+
+    final Checkpoint checkpoint = new Checkpoint(file, scope, stopWords, entries);
+    checkpoint.compact();
+
+    return checkpoint;
+  }
+
+  /**
+   * @return a checkpoint which is never saved.
+   */
+  public static Checkpoint inMemory(){
+    return new Checkpoint(null, "", "", Maps.newLinkedHashMap());
+  }
+
+  /**
+   * Returns the stage reached by a project.
+   *
+   * @param project the project's name
+   * @return the project's stage; null if the project was not seen.
+   */
+  public synchronized Stage stageOf(String project){
+    final Entry entry = entries.get(project);
+    return Objects.isNull(entry) ? null : entry.stage;
+  }
+
+  /**
+   * Checks whether the words of a project, pinned to a given git-ref, were
+   * already extracted.
+   *
+   * @param project the project's name
+   * @param revision the git-ref the project is pinned to; null if none.
+   * @return true if its words were extracted at that git-ref; false otherwise.
+   */
+  public synchronized boolean isExtracted(String project, String revision){
+    final Entry entry = entries.get(project);
+    return !Objects.isNull(entry)
+      && entry.stage == Stage.EXTRACTED
+      && Objects.equals(entry.revision, revision);
+  }
+
+  /**
+   * Returns the words extracted from a project.
+   *
+   * @param project the project's name
+   * @return the project's words; empty if they were not extracted.
+   */
+  public synchronized List<String> wordsOf(String project){
+    final Entry entry = entries.get(project);
+    return Objects.isNull(entry) || Objects.isNull(entry.words)
+      ? Collections.emptyList()
+      : ImmutableList.copyOf(entry.words);
+  }
+
+  /**
+   * Records a cloned project.
+   *
+   * @param project the project's name
+   * @param revision the git-ref the project is pinned to; null if none.
+   * @throws IOException unexpected error has occurred.
+   */
+  public synchronized void cloned(String project, String revision) throws IOException {
+    record(new Entry(project, Stage.CLONED, revision, null, null));
+  }
+
+  /**
+   * Records the words extracted from a project, at the git-ref it was
+   * cloned at.
+   *
+   * @param project the project's name
+   * @param words the project's words
+   * @throws IOException unexpected error has occurred.
+   */
+  public synchronized void extracted(String project, List<String> words) throws IOException {
+    record(new Entry(project, Stage.EXTRACTED, revisionOf(project), Lists.newArrayList(words), null));
+  }
+
+  /**
+   * Records a failed project.
+   *
+   * @param project the project's name
+   * @param cause why the project failed
+   * @throws IOException unexpected error has occurred.
+   */
+  public synchronized void failed(String project, Throwable cause) throws IOException {
+    record(new Entry(project, Stage.FAILED, revisionOf(project), null, String.valueOf(cause.getMessage())));
+  }
+
+  /**
+   * @return the names of the failed projects and why they failed.
+   */
+  public synchronized Map<String, String> failures(){
+    final Map<String, String> failures = Maps.newLinkedHashMap();
+    entries.forEach((k, v) -> {
+      if(v.stage == Stage.FAILED) failures.put(k, v.error);
+    });
+
+    return failures;
+  }
+
+  /**
+   * Returns the git-ref a project was cloned at.
+   *
+   * @param project the project's name
+   * @return the project's git-ref; null if it has none or was not seen.
+   */
+  public synchronized String revisionOf(String project){
+    final Entry entry = entries.get(project);
+    return Objects.isNull(entry) ? null : entry.revision;
+  }
+
+  private void record(Entry entry) throws IOException {
+    entry.scope     = scope;
+    entry.stopWords = stopWords;
+    entries.put(entry.project, entry);
+
+    if(Objects.isNull(file)) return;
+
+    Files.createDirectories(file.toAbsolutePath().getParent());
+
+    // one line per change; cost is proportional to the entry, not the checkpoint
+    Files.write(file, (GSON.toJson(entry) + "\n").getBytes(StandardCharsets.UTF_8), CREATE, APPEND);
+  }
+
+  private void compact() throws IOException {
+    final Path parent = file.toAbsolutePath().getParent();
+    Files.createDirectories(parent);
+
+    final StringBuilder journal = new StringBuilder();
+    entries.values().forEach(e -> journal.append(GSON.toJson(e)).append('\n'));
+
+    // written to a temporary file first, so a crash never loses the journal
+    final Path temp = Files.createTempFile(parent, file.getFileName().toString(), ".tmp");
+    Files.write(temp, journal.toString().getBytes(StandardCharsets.UTF_8));
+    Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  private static class Entry {
+    String        project;
+    Stage         stage;
+    String        scope;
+    String        stopWords;
+    String        revision;
+    List<String>  words;
+    String        error;
+
+    Entry(String project, Stage stage, String revision, List<String> words, String error){
+      this.project  = project;
+      this.stage    = stage;
+      this.revision = revision;
+      this.words    = words;
+      this.error    = error;
+    }
+  }
+}
@@ -0,0 +1,174 @@
+package com.vesperin.partition.utils;
+
+import com.google.common.collect.Lists;
+
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Quality of a grouping, measured against the goal of keeping projects in
+ * different clusters apart while keeping projects in the same cluster
+ * together:
+ *
+ * <ul>
+ *   <li>minInterOverlap: the minimum number of words shared by two projects
+ *   in different clusters (the quantity the README asks to maximize);</li>
+ *   <li>maxInterOverlap: the maximum number of words shared by two projects
+ *   in different clusters; i.e., the strongest link a grouping cuts;</li>
+ *   <li>meanInterOverlap: the mean number of words shared by two projects
+ *   in different clusters;</li>
+ *   <li>cohesion: per cluster, the mean number of words shared by each pair
+ *   of its projects (null for singletons); and meanCohesion, its mean
+ *   over non-singleton clusters;</li>
+ *   <li>the number of clusters and singleton clusters.</li>
+ * </ul>
+ *
+ * Sums are computed from the postings of the overlap structure, per word
+ * and cluster, without looking at pairs. Minimum and maximum overlaps come
+ * from enumerating, through the same postings, only the pairs that share
+ * words; pairs sharing nothing are accounted for by counting. No edge list
+ * or pairwise matrix is built.
+ *
+ * @author Huascar Sanchez
+ */
+public class ClusterQuality {
+  int           clusters;
+  int           singletons;
+  int           minInterOverlap;
+  int           maxInterOverlap;
+  double        meanInterOverlap;
+  double        meanCohesion;
+  List<Double>  cohesion;
+
+  private ClusterQuality(){}
+
+  /**
+   * Measures a grouping.
+   *
+   * @param overlaps number of shared words between elements.
+   * @param clusterOf the cluster (0 .. k-1) of each element in the overlap
+   *    structure.
+   * @param k number of clusters
+   * @return the grouping's quality.
+   */
+  public static ClusterQuality of(Overlaps overlaps, int[] clusterOf, int k){
+    Objects.requireNonNull(overlaps);
+    Objects.requireNonNull(clusterOf);
+
+    final long[] sizes      = new long[k];
+    final long[] intraSums  = new long[k];
+    for(int each : clusterOf) sizes[each]++;
+
+    // a word held by c projects of a cluster is shared by C(c, 2) of its
+    // pairs; the remaining C(df, 2) - sum C(c, 2) pairs cross clusters
+    final int[] counts  = new int[k];
+    final int[] touched = new int[k];
+
+    long crossTotal = 0;
+    for(int word = 0; word < overlaps.vocabulary(); word++){
+      final int frequency = overlaps.frequency(word);
+      if(frequency < 2) continue;
+
+      final int[] found = {0};
+      overlaps.forEachContaining(word, x -> {
+        if(counts[clusterOf[x]]++ == 0) touched[found[0]++] = clusterOf[x];
+      });
+
+      long inside = 0;
+      for(int idx = 0; idx < found[0]; idx++){
+        final int  c     = touched[idx];
+        final long pairs = (long) counts[c] * (counts[c] - 1) / 2;
+
+        intraSums[c] += pairs;
+        inside       += pairs;
+        counts[c]     = 0;
+      }
+
+      crossTotal += (long) frequency * (frequency - 1) / 2 - inside;
+    }
+
+    // the strongest and weakest cut links, among pairs sharing something
+    final long[] crossEdges = {0};
+    final int[]  minCross   = {Integer.MAX_VALUE};
+    final int[]  maxCross   = {0};
+    overlaps.forEachPair(1, (x, y, w) -> {
+      if(clusterOf[x] == clusterOf[y]) return;
+
+      crossEdges[0]++;
+      minCross[0] = Math.min(minCross[0], w);
+      maxCross[0] = Math.max(maxCross[0], w);
+    });
+
+    long n      = 0;
+    long inside = 0;
+    for(long each : sizes){
+      n      += each;
+      inside += each * (each - 1) / 2;
+    }
+
+    final long crossPairs = n * (n - 1) / 2 - inside;
+
+    final ClusterQuality quality = new ClusterQuality();
+    quality.clusters          = k;
+    quality.cohesion          = Lists.newArrayListWithCapacity(k);
+    quality.maxInterOverlap   = maxCross[0];
+    quality.minInterOverlap   = crossPairs == 0 ? 0
+      : crossEdges[0] < crossPairs ? 0 : minCross[0]; // some cross pair shares nothing
+    quality.meanInterOverlap  = crossPairs == 0 ? 0 : (double) crossTotal / crossPairs;
+
+    double total = 0;
+    int    counted = 0;
+    for(int c = 0; c < k; c++){
+      if(sizes[c] < 2){
+        quality.singletons++;
+        quality.cohesion.add(null);
+        continue;
+      }
+
+      final double mean = (double) intraSums[c] / (sizes[c] * (sizes[c] - 1) / 2);
+      quality.cohesion.add(mean);
+
+      total += mean;
+      counted++;
+    }
+
+    quality.meanCohesion = counted == 0 ? 0 : total / counted;
+
+    return quality;
+  }
+
+  /**
+   * @return the minimum number of words shared across clusters.
+   */
+  public int minInterOverlap(){
+    return minInterOverlap;
+  }
+
+  /**
+   * @return the maximum number of words shared across clusters.
+   */
+  public int maxInterOverlap(){
+    return maxInterOverlap;
+  }
+
+  /**
+   * @return the mean number of words shared across clusters.
+   */
+  public double meanInterOverlap(){
+    return meanInterOverlap;
+  }
+
+  /**
+   * @return the mean cohesion of non-singleton clusters.
+   */
+  public double meanCohesion(){
+    return meanCohesion;
+  }
+
+  /**
+   * @return the number of singleton clusters.
+   */
+  public int singletons(){
+    return singletons;
+  }
+}
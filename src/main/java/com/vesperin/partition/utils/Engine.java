@@ -0,0 +1,94 @@
+package com.vesperin.partition.utils;
+
+import com.vesperin.text.Grouping;
+
+import java.util.Objects;
+
+/**
+ * Grouping engines supported by a {@link ProjectIndex}.
+ *
+ * @author Huascar Sanchez
+ */
+public enum Engine {
+  /**
+   * Links each project to its nearest neighbour when they share more words
+   * than the overlapping factor (see {@link GroupMaker}).
+   */
+  GREEDY("g", true) {
+    @Override Grouping.Groups makeGroups(int overlap, Overlaps overlaps, ProjectIndex index){
+      return GroupMaker.makeGroups(overlap, overlaps, index.names());
+    }
+  },
+
+  /**
+   * Cuts a maximum spanning forest of the overlap graph into floor(sqrt(N))
+   * clusters (see {@link KruskalGroupMaker}). Ignores the overlapping factor.
+   */
+  KRUSKAL("k", false) {
+    @Override Grouping.Groups makeGroups(int overlap, Overlaps overlaps, ProjectIndex index){
+      return KruskalGroupMaker.makeGroups(overlaps, index.names());
+    }
+  },
+
+  /**
+   * Runs k-means over a latent semantic index of the projects' word sets,
+   * producing floor(sqrt(N)) clusters (see {@link LsiGroupMaker}). Ignores
+   * the overlapping factor.
+   */
+  LSI("l", false) {
+    @Override Grouping.Groups makeGroups(int overlap, Overlaps overlaps, ProjectIndex index){
+      return LsiGroupMaker.makeGroups(index.wordSets(), index.symbols().size(), index.names());
+    }
+  },
+
+  /**
+   * Detects communities through label propagation over the graph of
+   * projects sharing more words than the overlapping factor (see
+   * {@link PropagationGroupMaker}).
+   */
+  PROPAGATION("p", true) {
+    @Override Grouping.Groups makeGroups(int overlap, Overlaps overlaps, ProjectIndex index){
+      return PropagationGroupMaker.makeGroups(overlap, overlaps, index.names());
+    }
+  };
+
+  private final String  key;
+  private final boolean thresholded;
+
+  Engine(String key, boolean thresholded){
+    this.key          = key;
+    this.thresholded  = thresholded;
+  }
+
+  /**
+   * Finds an engine by its command-line key.
+   *
+   * @param key the engine's key; e.g., "g" or "k".
+   * @return the matching engine.
+   * @throws IllegalArgumentException if no engine matches the key.
+   */
+  public static Engine from(String key){
+    for(Engine each : values()){
+      if(each.key.equals(Objects.requireNonNull(key))) return each;
+    }
+
+    throw new IllegalArgumentException(String.format("Unknown algorithm: %s", key));
+  }
+
+  /**
+   * @return the engine's command-line key.
+   */
+  public String key(){
+    return key;
+  }
+
+  /**
+   * @return true if the engine's groups depend on the overlapping factor;
+   *    false if it ignores it.
+   */
+  public boolean usesOverlap(){
+    return thresholded;
+  }
+
+  abstract Grouping.Groups makeGroups(int overlap, Overlaps overlaps, ProjectIndex index);
+}
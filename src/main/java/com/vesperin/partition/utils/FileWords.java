@@ -0,0 +1,179 @@
+package com.vesperin.partition.utils;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Words contributed by each source file of a project, at a given git
+ * revision. A project's words are the union of its files' words, so when
+ * the project moves to a new revision, only the files that changed need to
+ * be parsed again: their old contributions are subtracted and the new ones
+ * added. Stored as one JSON file per project; an entry is only reused if
+ * its search scope and stop word fingerprint match.
+ *
+ * @author Huascar Sanchez
+ */
+public class FileWords {
+  private static final Gson GSON = new Gson();
+
+  private String project;
+  private String revision;
+  private String scope;
+  private String stopWords;
+  private Map<String, List<String>> files;
+
+  private transient Map<String, Integer> counts;
+
+  private FileWords(String project, String scope, String stopWords){
+    this.project    = Objects.requireNonNull(project);
+    this.scope      = Objects.requireNonNull(scope);
+    this.stopWords  = Objects.requireNonNull(stopWords);
+    this.revision   = null;
+    this.files      = Maps.newTreeMap();
+    this.counts     = Maps.newHashMap();
+  }
+
+  /**
+   * Starts an empty set of file contributions.
+   *
+   * @param project the project's name
+   * @param scope the search scope
+   * @param stopWords the stop words fingerprint
+   * @return a new FileWords object.
+   */
+  public static FileWords empty(String project, String scope, String stopWords){
+    return new FileWords(project, scope, stopWords);
+  }
+
+  /**
+   * Loads the stored file contributions of a project.
+   *
+   * @param directory the store's directory
+   * @param project the project's name
+   * @param scope the search scope
+   * @param stopWords the stop words fingerprint
+   * @return the stored contributions; null if there is no valid entry.
+   */
+  public static FileWords load(Path directory, String project, String scope, String stopWords){
+    final Path file = fileOf(directory, project);
+    if(!Files.exists(file)) return null;
+
+    try {
+      final FileWords stored = GSON.fromJson(
+        new String(Files.readAllBytes(file), StandardCharsets.UTF_8), FileWords.class
+      );
+
+      if(Objects.isNull(stored) || Objects.isNull(stored.files) || Objects.isNull(stored.revision)
+        || !project.equals(stored.project) || !scope.equals(stored.scope)
+        || !stopWords.equals(stored.stopWords)){
+        return null;
+      }
+
+      final FileWords result = new FileWords(project, scope, stopWords);
+      result.revision = stored.revision;
+      stored.files.forEach(result::put);
+
+      return result;
+    } catch (IOException | JsonParseException e){
+      return null;
+    }
+  }
+
+  /**
+   * Stores these file contributions, replacing any previous entry.
+   *
+   * @param directory the store's directory
+   */
+  public void save(Path directory){
+    try {
+      Files.createDirectories(directory);
+
+      // written to a temporary file first, so readers never see partial entries
+      final Path file = fileOf(directory, project);
+      final Path temp = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+      Files.write(temp, GSON.toJson(this).getBytes(StandardCharsets.UTF_8));
+      Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } catch (IOException e){
+      throw new RuntimeException("Unable to store file words of " + project, e);
+    }
+  }
+
+  private static Path fileOf(Path directory, String project){
+    return directory.resolve(project.replaceAll("[^A-Za-z0-9._-]", "_") + ".json");
+  }
+
+  /**
+   * Sets (or replaces) the words contributed by a file.
+   *
+   * @param path the file's path, relative to the project's root
+   * @param words the file's words
+   */
+  public void put(String path, List<String> words){
+    remove(path);
+
+    final List<String> contribution = ImmutableList.copyOf(words);
+    files.put(path, contribution);
+    contribution.forEach(w -> counts.merge(w, 1, Integer::sum));
+  }
+
+  /**
+   * Subtracts the words contributed by a file.
+   *
+   * @param path the file's path, relative to the project's root
+   */
+  public void remove(String path){
+    final List<String> contribution = files.remove(path);
+    if(Objects.isNull(contribution)) return;
+
+    contribution.forEach(w -> counts.computeIfPresent(w, (k, v) -> v == 1 ? null : v - 1));
+  }
+
+  /**
+   * @return the revision these contributions were computed at; null if unknown.
+   */
+  public String revision(){
+    return revision;
+  }
+
+  /**
+   * Sets the revision these contributions were computed at.
+   *
+   * @param revision the project's git revision
+   */
+  public void revision(String revision){
+    this.revision = revision;
+  }
+
+  /**
+   * @return the number of files contributing words.
+   */
+  public int size(){
+    return files.size();
+  }
+
+  /**
+   * @return the project's words; words contributed by more files come
+   *    first, ties in alphabetical order.
+   */
+  public List<String> words(){
+    final List<String> words = Lists.newArrayList(counts.keySet());
+    words.sort((a, b) -> counts.get(a).equals(counts.get(b))
+      ? a.compareTo(b)
+      : Integer.compare(counts.get(b), counts.get(a))
+    );
+
+    return words;
+  }
+}
@@ -0,0 +1,177 @@
+package com.vesperin.partition.utils;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Maps;
+import com.google.common.hash.Hasher;
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Domain glossaries (e.g., image processing, physics engines). All
+ * glossaries share a single lookup table mapping each word to the set of
+ * glossaries containing it (a bit mask), so a project's word set is scored
+ * against every glossary in one pass.
+ *
+ * @author Huascar Sanchez
+ */
+public class Glossaries {
+  private static final String RESOURCE  = "/glossaries.json";
+  private static final int    MIN_SCORE = 5;     // glossary words a project must use
+  private static final double MIN_SHARE = 0.05;  // ... as a fraction of its word set
+  private static final int    MARGIN    = 2;     // times the runner-up's score
+
+  private final List<String>                  names;
+  private final ImmutableMap<String, Integer> masks;
+  private final List<StopWordFilter>          filters;
+
+  private Glossaries(Map<String, ? extends Collection<String>> glossaries){
+    if(glossaries.size() > Integer.SIZE){
+      throw new IllegalArgumentException("At most " + Integer.SIZE + " glossaries are supported");
+    }
+
+    this.names = ImmutableList.copyOf(glossaries.keySet());
+
+    final Map<String, Integer> masks = Maps.newHashMap();
+    int bit = 0;
+    for(Collection<String> each : glossaries.values()){
+      final int mask = 1 << bit++;
+      for(String word : each){
+        if(word.isEmpty()) continue;
+        masks.merge(word, mask, (a, b) -> a | b);
+      }
+    }
+
+    this.masks = ImmutableMap.copyOf(masks);
+
+    // a domain drops the words of every other domain, except its own
+    final ImmutableList.Builder<StopWordFilter> filters = ImmutableList.builder();
+    for(int domain = 0; domain < names.size(); domain++){
+      final int own = 1 << domain;
+      final ImmutableSet<String> overlay = this.masks.entrySet().stream()
+        .filter(e -> (e.getValue() & own) == 0)
+        .map(Map.Entry::getKey)
+        .collect(ImmutableSet.toImmutableSet());
+
+      filters.add(StopWordFilter.empty().withOverlay(overlay));
+    }
+
+    this.filters = filters.build();
+  }
+
+  /**
+   * Creates a set of glossaries.
+   *
+   * @param glossaries glossary words, keyed by domain name.
+   * @return a new Glossaries object.
+   */
+  public static Glossaries of(Map<String, ? extends Collection<String>> glossaries){
+    return new Glossaries(Objects.requireNonNull(glossaries));
+  }
+
+  /**
+   * Loads the glossaries bundled with this application.
+   *
+   * @return a new Glossaries object.
+   */
+  public static Glossaries fromResources(){
+    try (InputStream stream = Glossaries.class.getResourceAsStream(RESOURCE)){
+      if(Objects.isNull(stream)) throw new IllegalStateException("Unable to find " + RESOURCE);
+
+      final Reader reader = new InputStreamReader(stream, StandardCharsets.UTF_8);
+      final Map<String, Map<String, List<String>>> json = new Gson().fromJson(
+        reader, new TypeToken<Map<String, Map<String, List<String>>>>(){}.getType()
+      );
+
+      return of(json.get("glossaries"));
+    } catch (IOException e){
+      throw new RuntimeException(e);
+    }
+  }
+
+  /**
+   * Detects the domain of a word set; i.e., the glossary sharing the most
+   * words with it. A domain's stop words strip real words from a project,
+   * so a few incidental glossary words are not enough: the best glossary
+   * must share at least {@value #MIN_SCORE} words, and 5% of the word set,
+   * with the project, and at least {@value #MARGIN} times as many as the
+   * runner-up. Ties are not resolved.
+   *
+   * @param words the word set of a project.
+   * @return the detected domain; -1 if none.
+   */
+  public int detect(Set<String> words){
+    final int[] scores = new int[names.size()];
+
+    for(String each : words){
+      final Integer mask = masks.get(each);
+      if(Objects.isNull(mask)) continue;
+
+      for(int bits = mask; bits != 0; bits &= bits - 1){
+        scores[Integer.numberOfTrailingZeros(bits)]++;
+      }
+    }
+
+    int best = -1; int runnerUp = 0;
+    for(int domain = 0; domain < scores.length; domain++){
+      if(best == -1 || scores[domain] > scores[best]){
+        if(best != -1) runnerUp = scores[best];
+        best = domain;
+      } else {
+        runnerUp = Math.max(runnerUp, scores[domain]);
+      }
+    }
+
+    if(best == -1) return -1;
+
+    final int score = scores[best];
+    if(score < MIN_SCORE || score < MIN_SHARE * words.size()) return -1;
+
+    return score >= (long) MARGIN * runnerUp ? best : -1;
+  }
+
+  /**
+   * Returns the stop word filter of a domain.
+   *
+   * @param domain the domain
+   * @return the domain's filter; an empty filter if domain is -1.
+   */
+  public StopWordFilter filter(int domain){
+    return domain == -1 ? StopWordFilter.empty() : filters.get(domain);
+  }
+
+  /**
+   * Feeds the glossaries' contents (names and words) to a hasher; equal
+   * glossaries produce equal hashes, regardless of word order.
+   *
+   * @param hasher the hasher to update
+   */
+  public void hash(Hasher hasher){
+    names.forEach(each -> hasher.putString(each, StandardCharsets.UTF_8).putByte((byte) 0));
+    masks.keySet().stream().sorted().forEach(each -> hasher
+      .putString(each, StandardCharsets.UTF_8)
+      .putByte((byte) 0)
+      .putInt(masks.get(each))
+    );
+  }
+
+  /**
+   * @param domain the domain
+   * @return the domain's name.
+   */
+  public String name(int domain){
+    return names.get(domain);
+  }
+}
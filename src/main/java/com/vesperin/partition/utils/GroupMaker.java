@@ -1,18 +1,15 @@
 package com.vesperin.partition.utils;
 
-import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
-import com.google.common.collect.Maps;
-import com.google.common.collect.Sets;
 import com.vesperin.text.Grouping;
 import com.vesperin.text.Project;
 import com.vesperin.text.Selection.Word;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 import java.util.stream.Collectors;
@@ -26,93 +23,100 @@ public class GroupMaker {
 
   private GroupMaker(){}
 
+  /**
+   * Clamps an overlapping factor to the supported range.
+   *
+   * @param overlap overlapping factor
+   * @return the overlapping factor actually used when making groups.
+   */
+  public static int threshold(int overlap){
+    return Math.min(Math.max(Math.max(0, overlap), OVERLAP), MAX_OVERLAP);
+  }
+
   /**
    * Makes a list of groups from a list of projects. Each group contains
    * projects sharing a number of words greater than some overlapping factor.
    *
-   * @param overlap overlapping factor (>= 3 and < 10).
+   * @param overlap overlapping factor; clamped to 3..30 (see {@link #threshold(int)}).
    * @param projects list of projects to group.
    * @param <T> type of elements stored in a project.
    * @return a new group of groups.
    */
   public static <T> Grouping.Groups makeGroups(int overlap, List<Project<T>> projects){
+    final Symbols  symbols  = new Symbols();
+    final Overlaps overlaps = Overlaps.of(
+      projects.stream()
+        .map(p -> symbols.intern(p.wordSet().stream().map(Word::element).collect(Collectors.toList())))
+        .collect(Collectors.toList())
+    );
+
+    return makeGroups(overlap, overlaps, projects);
+  }
 
-    final int threshold = Math.min(Math.max(Math.max(0, overlap), OVERLAP), MAX_OVERLAP);
-
-    final Map<String, Project<T>>  map   = Maps.newHashMap();
-    final Map<String, Set<String>> index = Maps.newHashMap();
-    final Set<String> missed = Sets.newHashSet();
-
-    projects.forEach(p -> map.put(p.name(), p));
-
-    for(Project<T> a : projects) {
-      Project<T> max = null;
-
-      for(Project<T> b: projects) {
-        if(Objects.equals(a, b)) continue;
+  /**
+   * Makes a list of groups from a precomputed overlap structure. Each
+   * element is linked to its nearest element when they share more words
+   * than the overlapping factor (sharing exactly that many is not enough);
+   * groups are the transitive closure of these links. Elements without such
+   * a link, either way, remain in their own singleton group. Groups are
+   * ordered by their first element, and elements keep their given order.
+   *
+   * @param overlap overlapping factor; clamped to 3..30 (see {@link #threshold(int)}).
+   * @param overlaps number of shared words between elements.
+   * @param elements elements to group; one per entry in the overlap structure.
+   * @param <E> type of grouped elements.
+   * @return a new group of groups.
+   */
+  public static <E> Grouping.Groups makeGroups(int overlap, Overlaps overlaps, List<E> elements){
 
-        if(Objects.isNull(max)){
-          max = b;
-        } else {
+    final int threshold = threshold(overlap);
+    final int n         = elements.size();
 
-          final Set<Word> sharedMax = Sets.intersection(a.wordSet(), max.wordSet());
-          final Set<Word> sharedB   = Sets.intersection(a.wordSet(), b.wordSet());
+    final UnionFind sets = new UnionFind(n);
+    for(int a = 0; a < n; a++) {
+      final int max = overlaps.nearest(a);
 
-          if(sharedB.size() > sharedMax.size()){
-            max = b;
-          }
-        }
+      if(max != -1 && overlaps.shared(max, a) > threshold){
+        sets.union(a, max);
       }
+    }
 
-      if(Objects.isNull(max)) continue;
-
-
-      final Set<Word> common = Sets.intersection(max.wordSet(), a.wordSet());
-
-      if(common.size() > threshold){
+    final int[] roots = new int[n];
+    for(int a = 0; a < n; a++){
+      roots[a] = sets.find(a);
+    }
 
-        if(!index.containsKey(a.name())){
+    return groupsOf(roots, elements);
+  }
 
-          if(index.containsKey(max.name())){
-            final Set<String> other = index.get(max.name());
-            if(!other.contains(a.name())) {
-              index.get(max.name()).add(a.name());
-            }
-          } else {
-            index.put(a.name(), Sets.newHashSet(max.name()));
-          }
-        } else {
-          index.get(a.name()).add(max.name());
-        }
-      } else {
-        if(!common.isEmpty()){
-          index.put(a.name(), Sets.newHashSet(max.name()));
-        } else {
-          missed.add(a.name());
-        }
-      }
-    }
+  /**
+   * Turns a labelling of elements into groups: elements with the same label
+   * end up in the same group. Groups are ordered by their first element,
+   * and elements keep their original order.
+   *
+   * @param labels non-negative label of each element; one per element
+   * @param elements elements to group
+   * @param <E> type of grouped elements.
+   * @return a new group of groups.
+   */
+  static <E> Grouping.Groups groupsOf(int[] labels, List<E> elements){
+    int max = -1;
+    for(int each : labels) max = Math.max(max, each);
 
-    if(!missed.isEmpty()){
-      final String missedProject = Iterables.get(missed, 0);
-      index.put(missedProject, Sets.newHashSet(missedProject));
-    }
+    final int[] slots = new int[max + 1];
+    Arrays.fill(slots, -1);
 
     final List<Grouping.Group> groups = Lists.newArrayList();
-    for(String key : index.keySet()){
-      final Grouping.Group group = Grouping.newGroup();
-      final Project<T> head = map.get(key);
-      final Set<Project<T>> tail = index.get(key).stream()
-        .map(map::get)
-        .collect(Collectors.toSet());
-
-      group.add(head);
-      tail.forEach(group::add);
+    for(int idx = 0; idx < elements.size(); idx++){
+      final int label = labels[idx];
+      if(slots[label] == -1){
+        slots[label] = groups.size();
+        groups.add(Grouping.newGroup());
+      }
 
-      groups.add(group);
+      groups.get(slots[label]).add(elements.get(idx));
     }
 
-
     return Grouping.Groups.of(groups);
   }
 
@@ -133,6 +137,43 @@ public class GroupMaker {
   }
 
 
+  /**
+   * Intersects a list of word sets, represented as sorted word ids, in
+   * order. If the running intersection becomes empty, it restarts from the
+   * current word set.
+   *
+   * @param sortedList word sets sorted by size
+   * @return the sorted ids of the common words.
+   */
+  public static int[] getCommonIds(List<int[]> sortedList) {
+    int[] common = new int[0];
+
+    for(int idx = 0; idx < sortedList.size(); idx++){
+      if(idx == 0) {
+        common = sortedList.get(idx);
+      } else {
+        final int[] retained = intersect(common, sortedList.get(idx));
+        common = retained.length == 0 ? sortedList.get(idx) : retained;
+      }
+    }
+
+    return common;
+  }
+
+  private static int[] intersect(int[] a, int[] b){
+    final int[] result = new int[Math.min(a.length, b.length)];
+
+    int i = 0, j = 0, k = 0;
+    while(i < a.length && j < b.length){
+      if(a[i] < b[j]) { i++; } else if(a[i] > b[j]) { j++; } else {
+        result[k++] = a[i];
+        i++; j++;
+      }
+    }
+
+    return Arrays.copyOf(result, k);
+  }
+
   public static <T> Set<T> getCommonElements(List<? extends Set<T>> sortedList) {
 
     final Set<T> common = new LinkedHashSet<>();
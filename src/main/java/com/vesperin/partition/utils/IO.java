@@ -8,15 +8,19 @@ import com.google.common.collect.Sets;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.nio.file.*;
 import java.nio.file.attribute.BasicFileAttributes;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
-import java.util.EnumSet;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
@@ -34,6 +38,11 @@ public class IO {
     new File(System.getProperty("user.home") + "/.m2/repository")
   );
 
+  // file tree operations are I/O bound; a few more workers than cores keep the disk busy
+  private static final ForkJoinPool TREE_WORKERS = new ForkJoinPool(
+    Math.max(2, Math.min(16, 2 * Runtime.getRuntime().availableProcessors()))
+  );
+
   private IO(){
     throw new Error("Utility class");
   }
@@ -187,6 +196,30 @@ public class IO {
 
   }
 
+  /**
+   * Tells whether a file would be collected by
+   * {@link #collectFiles(Path, String, String...)}; i.e., it has the given
+   * extension and its name contains none of the given keywords. Only the
+   * file's name is checked, so this works on paths of files that are not
+   * on disk (e.g., paths reported by git).
+   *
+   * @param path the file's path; '/' separated
+   * @param extension extension of files to collect
+   * @param keywords hints which files to ignore (based on their names)
+   * @return true if the file should be collected; false otherwise.
+   */
+  public static boolean isCollectable(String path, String extension, String... keywords){
+    final String fileName = path.substring(path.lastIndexOf('/') + 1);
+    if(!fileName.endsWith("." + extension)) return false;
+
+    final String name = fileName.replace(".java", "");
+    for(String each : keywords){
+      if(name.contains(each)) return false;
+    }
+
+    return true;
+  }
+
   private static Predicate<File> inTheClub(Set<String> blackSet){
     return e -> {
       for(String each : blackSet){
@@ -257,15 +290,33 @@ public class IO {
 
   /**
    * Completely removes given file tree starting at and including the given path.
+   * Subdirectories are deleted in parallel; symbolic links are deleted, never
+   * followed. If the path itself is a symbolic link, only the link is deleted.
    *
    * @param path the directory to delete.
+   * @return the number of deleted files and their size in bytes.
    * @throws IOException unexpected error has occurred.
    */
-  public static void deleteDirectory(Path path) throws IOException {
-    if (Files.exists(path)) {
-      validate(path);
-      Files.walkFileTree(path, new DeleteDirectoryVisitor());
+  public static Stats deleteDirectory(Path path) throws IOException {
+    final Stats stats = new Stats();
+    if (!Files.exists(Preconditions.checkNotNull(path), LinkOption.NOFOLLOW_LINKS)) {
+      return stats;
+    }
+
+    final BasicFileAttributes attrs = Files.readAttributes(
+      path, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS
+    );
+
+    if (attrs.isSymbolicLink()) {
+      Files.delete(path);
+      stats.record(attrs.size());
+      return stats;
     }
+
+    validate(path);
+    invoke(new DeleteDirectoryTask(path, stats));
+
+    return stats;
   }
 
   /**
@@ -290,16 +341,79 @@ public class IO {
    *
    * @param from the source directory
    * @param to the destination directory
+   * @return the number of copied files and their size in bytes.
+   * @throws IOException unexpected error has occurred.
+   */
+  public static Stats copyDirectoryTree(Path from, Path to) throws IOException {
+    return copyDirectoryTree(from, to, StandardCopyOption.REPLACE_EXISTING);
+  }
+
+  /**
+   * Copies a directory tree (including its content) using the given copy
+   * options. Symbolic links are followed unless
+   * {@link LinkOption#NOFOLLOW_LINKS} is given, in which case links are
+   * copied as links.
+   *
+   * @param from the source directory
+   * @param to the destination directory
+   * @param options copying options
+   * @return the number of copied files and their size in bytes.
    * @throws IOException unexpected error has occurred.
    */
-  public static void copyDirectoryTree(Path from, Path to) throws IOException {
+  public static Stats copyDirectoryTree(Path from, Path to, CopyOption... options) throws IOException {
+    return copyDirectoryTree(from, to, false, options);
+  }
+
+  /**
+   * Copies a directory tree (including its content) using the given copy
+   * options. Subdirectories are copied in parallel. If {@code hardLinks} is
+   * true, files are hard-linked instead of copied whenever the file system
+   * allows it.
+   *
+   * @param from the source directory
+   * @param to the destination directory
+   * @param hardLinks true if files should be hard-linked; false otherwise.
+   * @param options copying options
+   * @return the number of copied (or linked) files and their size in bytes.
+   * @throws IOException unexpected error has occurred.
+   */
+  public static Stats copyDirectoryTree(Path from, Path to, boolean hardLinks, CopyOption... options) throws IOException {
+    validate(from);
+
+    final Stats stats = new Stats();
+    invoke(new CopyDirectoryTask(from, to, new CopySpec(hardLinks, options), stats));
+    return stats;
+  }
+
+  /**
+   * Moves a directory tree to a new location. A move within the same file
+   * system is a single rename; otherwise (or if the destination already
+   * exists) the tree is copied, preserving file attributes and links, and
+   * then deleted.
+   *
+   * @param from the source directory
+   * @param to the destination directory
+   * @throws IOException unexpected error has occurred.
+   */
+  public static void moveDirectoryTree(Path from, Path to) throws IOException {
     validate(from);
-    Files.walkFileTree(
+
+    try {
+      Files.move(from, to, StandardCopyOption.ATOMIC_MOVE);
+      return;
+    } catch (FileSystemException ignored){
+      // different file stores or existing destination
+    }
+
+    copyDirectoryTree(
       from,
-      EnumSet.of(FileVisitOption.FOLLOW_LINKS),
-      Integer.MAX_VALUE,
-      new CopyDirectoryVisitor(from, to)
+      to,
+      StandardCopyOption.REPLACE_EXISTING,
+      StandardCopyOption.COPY_ATTRIBUTES,
+      LinkOption.NOFOLLOW_LINKS
     );
+
+    deleteDirectory(from);
   }
 
   private static void validate(Path... paths) {
@@ -315,66 +429,203 @@ public class IO {
     return System.getProperty("os.name").startsWith("Windows");
   }
 
-  private static class CopyDirectoryVisitor extends SimpleFileVisitor <Path> {
-    private final Path fromPath;
-    private final Path toPath;
-    private final StandardCopyOption copyOption;
+  private static void invoke(ForkJoinTask<?> task) throws IOException {
+    try {
+      TREE_WORKERS.invoke(task);
+    } catch (UncheckedIOException e){
+      throw e.getCause();
+    }
+  }
+
+  private static List<Path> list(Path dir) throws IOException {
+    final List<Path> entries = new ArrayList<>();
+    try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir)) {
+      stream.forEach(entries::add);
+    }
+
+    return entries;
+  }
+
+  /**
+   * Number of files and bytes affected by a file tree operation.
+   */
+  public static class Stats {
+    private final LongAdder files = new LongAdder();
+    private final LongAdder bytes = new LongAdder();
+
+    void record(long size){
+      files.increment();
+      bytes.add(size);
+    }
 
     /**
-     * Constructs a visitor which will replicate a directory tree in some new location.
-     *
-     * @param fromPath the source
-     * @param toPath the destination
+     * @return the number of affected files.
+     */
+    public long files(){
+      return files.sum();
+    }
+
+    /**
+     * @return the number of affected bytes.
      */
-    CopyDirectoryVisitor(Path fromPath, Path toPath) {
-      this(fromPath, toPath, StandardCopyOption.REPLACE_EXISTING);
+    public long bytes(){
+      return bytes.sum();
     }
 
+    @Override public String toString() {
+      return String.format("%d files, %d bytes", files(), bytes());
+    }
+  }
+
+  private static class CopySpec {
+    final boolean       hardLinks;
+    final boolean       followLinks;
+    final boolean       replace;
+    final boolean       attributes;
+    final CopyOption[]  options;
+
+    CopySpec(boolean hardLinks, CopyOption... options){
+      final List<CopyOption> optionList = Arrays.asList(Preconditions.checkNotNull(options));
+
+      this.hardLinks    = hardLinks;
+      this.followLinks  = !optionList.contains(LinkOption.NOFOLLOW_LINKS);
+      this.replace      = optionList.contains(StandardCopyOption.REPLACE_EXISTING);
+      this.attributes   = optionList.contains(StandardCopyOption.COPY_ATTRIBUTES);
+      this.options      = options;
+    }
+
+    LinkOption[] linkOptions(){
+      return followLinks ? new LinkOption[0] : new LinkOption[]{LinkOption.NOFOLLOW_LINKS};
+    }
+  }
+
+  private static class CopyDirectoryTask extends RecursiveAction {
+    private static final long serialVersionUID = 1L;
+
+    private final Path      fromPath;
+    private final Path      toPath;
+    private final CopySpec  spec;
+    private final Stats     stats;
+    private final CopyDirectoryTask parent;
 
     /**
-     * Constructs a visitor which will replicate a directory tree in some new location.
+     * Constructs a task which will replicate a directory tree in some new location.
      *
      * @param fromPath the source
      * @param toPath the destination
-     * @param copyOption copying options
+     * @param spec copying options
+     * @param stats copied files and bytes
      */
-    CopyDirectoryVisitor(Path fromPath, Path toPath, StandardCopyOption copyOption) {
-      this.fromPath   = Preconditions.checkNotNull(fromPath);
-      this.toPath     = Preconditions.checkNotNull(toPath);
-      this.copyOption = Preconditions.checkNotNull(copyOption);
+    CopyDirectoryTask(Path fromPath, Path toPath, CopySpec spec, Stats stats) {
+      this(fromPath, toPath, spec, stats, null);
+    }
+
+    private CopyDirectoryTask(Path fromPath, Path toPath, CopySpec spec, Stats stats, CopyDirectoryTask parent) {
+      this.fromPath = Preconditions.checkNotNull(fromPath);
+      this.toPath   = Preconditions.checkNotNull(toPath);
+      this.spec     = Preconditions.checkNotNull(spec);
+      this.stats    = Preconditions.checkNotNull(stats);
+      this.parent   = parent;
     }
 
+    @Override protected void compute() {
+      try {
+        final BasicFileAttributes dirAttrs = Files.readAttributes(fromPath, BasicFileAttributes.class);
+
+        // directory cycles are only possible when links are followed
+        if(spec.followLinks && isAncestor(dirAttrs.fileKey())){
+          return;
+        }
 
-    @Override public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
-      final Path targetPath = toPath.resolve(fromPath.relativize(dir));
+        if(!Files.exists(toPath)){
+          Files.createDirectory(toPath);
+        }
 
-      if(!Files.exists(targetPath)){
-        Files.createDirectory(targetPath);
+        final List<CopyDirectoryTask> subtasks = new ArrayList<>();
+        for(Path each : list(fromPath)){
+          final Path target = toPath.resolve(each.getFileName());
+          final BasicFileAttributes attrs = Files.readAttributes(each, BasicFileAttributes.class, spec.linkOptions());
+
+          if(attrs.isDirectory()){
+            subtasks.add(new CopyDirectoryTask(each, target, spec, stats, this));
+          } else {
+            copy(each, target, attrs);
+          }
+        }
+
+        invokeAll(subtasks);
+
+        if(spec.attributes){
+          // written last, since copying the content updates the directory's times
+          Files.setLastModifiedTime(toPath, dirAttrs.lastModifiedTime());
+        }
+      } catch (IOException e){
+        throw new UncheckedIOException(e);
       }
+    }
 
-      return FileVisitResult.CONTINUE;
+    private boolean isAncestor(Object fileKey) throws IOException {
+      if(fileKey == null) return false;
+
+      for(CopyDirectoryTask each = parent; each != null; each = each.parent){
+        if(fileKey.equals(Files.readAttributes(each.fromPath, BasicFileAttributes.class).fileKey())){
+          return true;
+        }
+      }
+
+      return false;
     }
 
-    @Override public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
-      Files.copy(file, toPath.resolve(fromPath.relativize(file)), copyOption);
+    private void copy(Path file, Path target, BasicFileAttributes attrs) throws IOException {
+      if(spec.hardLinks && attrs.isRegularFile()){
+        try {
+          if(spec.replace) Files.deleteIfExists(target);
+          Files.createLink(target, file);
+          stats.record(attrs.size());
+          return;
+        } catch (UnsupportedOperationException | FileSystemException ignored){
+          // different file stores; fall back to copying
+        }
+      }
 
-      return FileVisitResult.CONTINUE;
+      Files.copy(file, target, spec.options);
+      stats.record(attrs.size());
     }
   }
 
-  private static class DeleteDirectoryVisitor extends SimpleFileVisitor<Path> {
+  private static class DeleteDirectoryTask extends RecursiveAction {
+    private static final long serialVersionUID = 1L;
 
-    @Override public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
-      Files.delete(file);
-      return FileVisitResult.CONTINUE;
+    private final Path  path;
+    private final Stats stats;
+
+    DeleteDirectoryTask(Path path, Stats stats){
+      this.path   = Preconditions.checkNotNull(path);
+      this.stats  = Preconditions.checkNotNull(stats);
     }
 
-    @Override public FileVisitResult postVisitDirectory(Path dir, IOException exc) throws IOException {
-      if(exc == null){
-        Files.delete(dir);
-        return FileVisitResult.CONTINUE;
+    @Override protected void compute() {
+      try {
+        final List<DeleteDirectoryTask> subtasks = new ArrayList<>();
+        for(Path each : list(path)){
+          final BasicFileAttributes attrs = Files.readAttributes(
+            each, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS
+          );
+
+          if(attrs.isDirectory()){
+            subtasks.add(new DeleteDirectoryTask(each, stats));
+          } else {
+            Files.delete(each);
+            stats.record(attrs.size());
+          }
+        }
+
+        invokeAll(subtasks);
+
+        Files.delete(path);
+      } catch (IOException e){
+        throw new UncheckedIOException(e);
       }
-      throw exc;
     }
   }
 
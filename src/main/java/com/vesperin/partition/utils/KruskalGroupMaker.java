@@ -0,0 +1,68 @@
+package com.vesperin.partition.utils;
+
+import com.google.common.collect.Lists;
+import com.vesperin.text.Grouping;
+
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Groups elements by cutting a maximum spanning forest of their overlap
+ * graph (Kruskal's algorithm); i.e., single-linkage clustering where the
+ * weight of an edge is the number of words two elements share. Edges are
+ * added heaviest first until K = floor(sqrt(N)) clusters remain, which
+ * maximizes the overlap between elements of the same cluster while keeping
+ * the overlap across clusters as low as possible.
+ *
+ * @author Huascar Sanchez
+ */
+public class KruskalGroupMaker {
+  private KruskalGroupMaker(){
+    throw new Error("Utility class");
+  }
+
+  /**
+   * Computes the number of clusters to cut a forest of n elements into.
+   *
+   * @param n number of elements
+   * @return floor(sqrt(n)); at least 1.
+   */
+  public static int clusters(int n){
+    return Math.max(1, (int) Math.floor(Math.sqrt(n)));
+  }
+
+  /**
+   * Makes a list of groups from a precomputed overlap structure. Elements
+   * sharing no words with any other element cannot be linked, so fewer
+   * edges than needed may leave more than K clusters; those elements end
+   * up in their own singleton group.
+   *
+   * @param overlaps number of shared words between elements.
+   * @param elements elements to group; one per entry in the overlap structure.
+   * @param <E> type of grouped elements.
+   * @return a new group of groups.
+   */
+  public static <E> Grouping.Groups makeGroups(Overlaps overlaps, List<E> elements){
+    Objects.requireNonNull(overlaps);
+    Objects.requireNonNull(elements);
+
+    final int n = elements.size();
+    if(n == 0) return Grouping.Groups.of(Lists.newArrayList());
+
+    final int k = clusters(n);
+
+    final UnionFind       forest  = new UnionFind(n);
+    final Overlaps.Edges  edges   = overlaps.edges();
+
+    for(int idx = 0; idx < edges.size() && forest.count() > k; idx++){
+      forest.union(edges.from(idx), edges.to(idx));
+    }
+
+    final int[] roots = new int[n];
+    for(int idx = 0; idx < n; idx++){
+      roots[idx] = forest.find(idx);
+    }
+
+    return GroupMaker.groupsOf(roots, elements);
+  }
+}
@@ -0,0 +1,411 @@
+package com.vesperin.partition.utils;
+
+import com.google.common.collect.Lists;
+import com.vesperin.text.Grouping;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+/**
+ * Groups elements by running k-means over a latent semantic index (LSI) of
+ * their word sets. Word sets become rows of a sparse (CSR) TF-IDF matrix,
+ * which is reduced to a few latent dimensions through a randomized
+ * truncated SVD; rows are then clustered with k-means++ into
+ * K = floor(sqrt(N)) clusters, using cosine similarity.
+ *
+ * <p>Every structure is backed by primitive arrays, and matrix products,
+ * seeding and assignment steps run in parallel. Random choices are seeded,
+ * so the same input always produces the same groups.
+ *
+ * @author Huascar Sanchez
+ */
+public class LsiGroupMaker {
+  private static final int  DIMENSIONS    = 64;
+  private static final int  OVERSAMPLING  = 10;
+  private static final int  POWER_STEPS   = 2;
+  private static final int  ITERATIONS    = 100;
+  private static final long SEED          = 42L;
+
+  private LsiGroupMaker(){
+    throw new Error("Utility class");
+  }
+
+  /**
+   * Makes a list of groups from a list of word sets.
+   *
+   * @param wordSets word sets (sorted, distinct word ids); one per element.
+   * @param vocabulary number of distinct word ids (i.e., max id + 1).
+   * @param elements elements to group; one per word set.
+   * @param <E> type of grouped elements.
+   * @return a new group of groups.
+   */
+  public static <E> Grouping.Groups makeGroups(List<int[]> wordSets, int vocabulary, List<E> elements){
+    Objects.requireNonNull(wordSets);
+    Objects.requireNonNull(elements);
+
+    if(wordSets.size() != elements.size()){
+      throw new IllegalArgumentException("Expected one word set per element");
+    }
+
+    final int n = elements.size();
+    if(n == 0) return Grouping.Groups.of(Lists.newArrayList());
+
+    final Csr         matrix  = Csr.tfIdf(wordSets, vocabulary);
+    final double[][]  points  = embed(matrix, new Random(SEED));
+    final int[]       labels  = kMeans(points, KruskalGroupMaker.clusters(n), new Random(SEED));
+
+    return GroupMaker.groupsOf(labels, elements);
+  }
+
+  /**
+   * Projects the rows of a matrix onto its top singular vectors (scaled by
+   * their singular values) and normalizes them to unit length. Uses a
+   * randomized range finder with a few power iterations (Halko et al.).
+   */
+  static double[][] embed(Csr matrix, Random random){
+    if(matrix.columns() == 0){
+      // no words at all; every point is the origin
+      return new double[matrix.rows()][1];
+    }
+
+    final int rank  = Math.max(1, Math.min(DIMENSIONS, Math.min(matrix.rows(), matrix.columns())));
+    final int width = Math.min(rank + OVERSAMPLING, matrix.columns());
+
+    final Csr transposed = matrix.transpose();
+
+    final double[][] omega = new double[matrix.columns()][width];
+    for(double[] row : omega){
+      for(int j = 0; j < width; j++) row[j] = random.nextGaussian();
+    }
+
+    double[][] q = orthonormalize(matrix.times(omega));
+    for(int step = 0; step < POWER_STEPS; step++){
+      q = orthonormalize(matrix.times(transposed.times(q)));
+    }
+
+    // C = (A^T Q)^T (A^T Q) = B B^T, where B = Q^T A
+    final double[][] basis = q;
+    final double[][] z     = transposed.times(basis);
+    final double[][] c = new double[width][width];
+    IntStream.range(0, width).parallel().forEach(a -> {
+      for(int b = 0; b <= a; b++){
+        double sum = 0;
+        for(double[] row : z) sum += row[a] * row[b];
+        c[a][b] = sum;
+        c[b][a] = sum;
+      }
+    });
+
+    final double[][] vectors = new double[width][width];
+    final double[]   values  = eigen(c, vectors);
+
+    final Integer[] order = new Integer[width];
+    for(int idx = 0; idx < width; idx++) order[idx] = idx;
+    Arrays.sort(order, (a, b) -> Double.compare(values[b], values[a]));
+
+    final int dimensions = Math.min(rank, width);
+    final double[][] points = new double[matrix.rows()][dimensions];
+    IntStream.range(0, matrix.rows()).parallel().forEach(i -> {
+      final double[] point = points[i];
+      for(int d = 0; d < dimensions; d++){
+        final int    col    = order[d];
+        final double sigma  = Math.sqrt(Math.max(0, values[col]));
+
+        double sum = 0;
+        for(int j = 0; j < width; j++) sum += basis[i][j] * vectors[j][col];
+        point[d] = sum * sigma;
+      }
+
+      normalize(point);
+    });
+
+    return points;
+  }
+
+  /**
+   * Clusters unit-length points with k-means++ seeding followed by Lloyd
+   * iterations.
+   *
+   * @return the cluster of each point.
+   */
+  static int[] kMeans(double[][] points, int k, Random random){
+    final int n          = points.length;
+    final int dimensions = n == 0 ? 0 : points[0].length;
+
+    final double[][] centers = new double[k][];
+    final double[]   nearest = new double[n];
+    Arrays.fill(nearest, Double.MAX_VALUE);
+
+    centers[0] = points[random.nextInt(n)].clone();
+    for(int c = 1; c < k; c++){
+      final double[] center = centers[c - 1];
+      IntStream.range(0, n).parallel().forEach(i ->
+        nearest[i] = Math.min(nearest[i], distance(points[i], center))
+      );
+
+      double total = 0;
+      for(double each : nearest) total += each;
+
+      int chosen = random.nextInt(n);
+      if(total > 0){
+        double target = random.nextDouble() * total;
+        for(int i = 0; i < n; i++){
+          target -= nearest[i];
+          if(target <= 0){ chosen = i; break; }
+        }
+      }
+
+      centers[c] = points[chosen].clone();
+    }
+
+    final int[] labels = new int[n];
+    Arrays.fill(labels, -1);
+
+    for(int iteration = 0; iteration < ITERATIONS; iteration++){
+      final boolean changed = IntStream.range(0, n).parallel().map(i -> {
+        int    best     = 0;
+        double bestDist = Double.MAX_VALUE;
+        for(int c = 0; c < k; c++){
+          final double dist = distance(points[i], centers[c]);
+          if(dist < bestDist){ best = c; bestDist = dist; }
+        }
+
+        final int previous = labels[i];
+        labels[i] = best;
+        return previous == best ? 0 : 1;
+      }).sum() > 0;
+
+      if(!changed) break;
+
+      final double[][] sums   = new double[k][dimensions];
+      final int[]      counts = new int[k];
+      for(int i = 0; i < n; i++){
+        final double[] sum = sums[labels[i]];
+        for(int d = 0; d < dimensions; d++) sum[d] += points[i][d];
+        counts[labels[i]]++;
+      }
+
+      for(int c = 0; c < k; c++){
+        // empty clusters keep their previous center
+        if(counts[c] == 0) continue;
+
+        normalize(sums[c]);
+        centers[c] = sums[c];
+      }
+    }
+
+    return labels;
+  }
+
+  /**
+   * Computes the eigen decomposition of a small symmetric matrix with the
+   * cyclic Jacobi method.
+   *
+   * @param matrix symmetric matrix; overwritten
+   * @param vectors receives the eigenvectors, one per column
+   * @return the eigenvalues.
+   */
+  static double[] eigen(double[][] matrix, double[][] vectors){
+    final int n = matrix.length;
+    for(int i = 0; i < n; i++){
+      Arrays.fill(vectors[i], 0);
+      vectors[i][i] = 1;
+    }
+
+    for(int sweep = 0; sweep < 100; sweep++){
+      double off = 0;
+      for(int p = 0; p < n; p++){
+        for(int q = p + 1; q < n; q++) off += matrix[p][q] * matrix[p][q];
+      }
+
+      if(off < 1e-22) break;
+
+      for(int p = 0; p < n; p++){
+        for(int q = p + 1; q < n; q++){
+          if(Math.abs(matrix[p][q]) < 1e-300) continue;
+
+          final double theta = (matrix[q][q] - matrix[p][p]) / (2 * matrix[p][q]);
+          final double t     = Math.signum(theta == 0 ? 1 : theta) / (Math.abs(theta) + Math.sqrt(theta * theta + 1));
+          final double cos   = 1 / Math.sqrt(t * t + 1);
+          final double sin   = t * cos;
+
+          for(int k = 0; k < n; k++){
+            final double kp = matrix[k][p], kq = matrix[k][q];
+            matrix[k][p] = cos * kp - sin * kq;
+            matrix[k][q] = sin * kp + cos * kq;
+          }
+
+          for(int k = 0; k < n; k++){
+            final double pk = matrix[p][k], qk = matrix[q][k];
+            matrix[p][k] = cos * pk - sin * qk;
+            matrix[q][k] = sin * pk + cos * qk;
+          }
+
+          for(int k = 0; k < n; k++){
+            final double kp = vectors[k][p], kq = vectors[k][q];
+            vectors[k][p] = cos * kp - sin * kq;
+            vectors[k][q] = sin * kp + cos * kq;
+          }
+        }
+      }
+    }
+
+    final double[] values = new double[n];
+    for(int i = 0; i < n; i++) values[i] = matrix[i][i];
+    return values;
+  }
+
+  /**
+   * Orthonormalizes the columns of a dense matrix in place (modified
+   * Gram-Schmidt, applied twice for stability). Columns that become
+   * (numerically) zero are left as zero.
+   */
+  static double[][] orthonormalize(double[][] matrix){
+    final int rows    = matrix.length;
+    final int columns = rows == 0 ? 0 : matrix[0].length;
+
+    for(int pass = 0; pass < 2; pass++){
+      for(int j = 0; j < columns; j++){
+        for(int i = 0; i < j; i++){
+          double dot = 0;
+          for(double[] row : matrix) dot += row[i] * row[j];
+          for(double[] row : matrix) row[j] -= dot * row[i];
+        }
+
+        double norm = 0;
+        for(double[] row : matrix) norm += row[j] * row[j];
+        norm = Math.sqrt(norm);
+
+        for(double[] row : matrix) row[j] = norm < 1e-10 ? 0 : row[j] / norm;
+      }
+    }
+
+    return matrix;
+  }
+
+  private static double distance(double[] a, double[] b){
+    double sum = 0;
+    for(int d = 0; d < a.length; d++){
+      final double diff = a[d] - b[d];
+      sum += diff * diff;
+    }
+
+    return sum;
+  }
+
+  private static void normalize(double[] vector){
+    double norm = 0;
+    for(double each : vector) norm += each * each;
+    norm = Math.sqrt(norm);
+
+    if(norm == 0) return;
+    for(int d = 0; d < vector.length; d++) vector[d] /= norm;
+  }
+
+  /**
+   * Sparse matrix in compressed sparse row (CSR) format.
+   */
+  static class Csr {
+    private final int       columns;
+    private final int[]     rowStarts;
+    private final int[]     columnIds;
+    private final double[]  values;
+
+    Csr(int columns, int[] rowStarts, int[] columnIds, double[] values){
+      this.columns    = columns;
+      this.rowStarts  = rowStarts;
+      this.columnIds  = columnIds;
+      this.values     = values;
+    }
+
+    /**
+     * Builds a TF-IDF matrix with one row per word set and one column per
+     * word id. Word sets carry no frequencies, so term frequency is 1 and
+     * each entry is the word's inverse document frequency. Rows are
+     * normalized to unit length.
+     */
+    static Csr tfIdf(List<int[]> wordSets, int vocabulary){
+      final int[] frequencies = new int[vocabulary];
+      int entries = 0;
+      for(int[] each : wordSets){
+        for(int word : each) frequencies[word]++;
+        entries += each.length;
+      }
+
+      final int[]     rowStarts = new int[wordSets.size() + 1];
+      final int[]     columnIds = new int[entries];
+      final double[]  values    = new double[entries];
+
+      int at = 0;
+      for(int row = 0; row < wordSets.size(); row++){
+        rowStarts[row] = at;
+
+        double norm = 0;
+        for(int word : wordSets.get(row)){
+          final double idf = Math.log((double) wordSets.size() / frequencies[word]) + 1;
+          columnIds[at] = word;
+          values[at]    = idf;
+          norm += idf * idf;
+          at++;
+        }
+
+        norm = Math.sqrt(norm);
+        for(int idx = rowStarts[row]; idx < at; idx++) values[idx] /= norm;
+      }
+
+      rowStarts[wordSets.size()] = at;
+
+      return new Csr(vocabulary, rowStarts, columnIds, values);
+    }
+
+    int rows(){
+      return rowStarts.length - 1;
+    }
+
+    int columns(){
+      return columns;
+    }
+
+    Csr transpose(){
+      final int[] counts = new int[columns + 1];
+      for(int each : columnIds) counts[each + 1]++;
+      for(int idx = 1; idx < counts.length; idx++) counts[idx] += counts[idx - 1];
+
+      final int[]     starts    = counts.clone();
+      final int[]     rowIds    = new int[columnIds.length];
+      final double[]  entries   = new double[values.length];
+
+      for(int row = 0; row < rows(); row++){
+        for(int idx = rowStarts[row]; idx < rowStarts[row + 1]; idx++){
+          final int slot = counts[columnIds[idx]]++;
+          rowIds[slot]  = row;
+          entries[slot] = values[idx];
+        }
+      }
+
+      return new Csr(rows(), starts, rowIds, entries);
+    }
+
+    /**
+     * Multiplies this matrix by a dense one.
+     */
+    double[][] times(double[][] dense){
+      final int width = dense.length == 0 ? 0 : dense[0].length;
+      final double[][] result = new double[rows()][width];
+
+      IntStream.range(0, rows()).parallel().forEach(row -> {
+        final double[] target = result[row];
+        for(int idx = rowStarts[row]; idx < rowStarts[row + 1]; idx++){
+          final double[] source = dense[columnIds[idx]];
+          final double   value  = values[idx];
+          for(int j = 0; j < width; j++) target[j] += value * source[j];
+        }
+      });
+
+      return result;
+    }
+  }
+}
@@ -0,0 +1,156 @@
+package com.vesperin.partition.utils;
+
+/**
+ * The k nearest neighbours of each word set in an overlap structure; i.e.,
+ * the word sets sharing the most words with it, best first. Ties are broken
+ * in favor of the earliest added word set. Word sets sharing no words are
+ * never neighbours, so a word set may have fewer than k of them.
+ *
+ * <p>Neighbours are kept in flat primitive arrays, k slots per word set.
+ * While they are being computed, each word set's slots form a bounded
+ * min-heap whose root is its worst neighbour so far.
+ *
+ * @author Huascar Sanchez
+ */
+public class Neighbours {
+  private final int   k;
+  private final int[] ids;
+  private final int[] weights;
+  private final int[] sizes;
+
+  Neighbours(int n, int k){
+    if(k < 1) throw new IllegalArgumentException("Expected k >= 1");
+
+    this.k        = k;
+    this.ids      = new int[n * k];
+    this.weights  = new int[n * k];
+    this.sizes    = new int[n];
+  }
+
+  /**
+   * @return the maximum number of neighbours per word set.
+   */
+  public int k(){
+    return k;
+  }
+
+  /**
+   * @return the number of word sets.
+   */
+  public int size(){
+    return sizes.length;
+  }
+
+  /**
+   * @param a position of word set
+   * @return the number of neighbours of the word set (at most k).
+   */
+  public int count(int a){
+    return sizes[a];
+  }
+
+  /**
+   * @param a position of word set
+   * @param rank rank of the neighbour; 0 is the nearest.
+   * @return the position of the neighbour.
+   */
+  public int neighbour(int a, int rank){
+    return ids[slot(a, rank)];
+  }
+
+  /**
+   * @param a position of word set
+   * @param rank rank of the neighbour; 0 is the nearest.
+   * @return the number of words shared with the neighbour.
+   */
+  public int weight(int a, int rank){
+    return weights[slot(a, rank)];
+  }
+
+  /**
+   * @param a position of word set
+   * @return the position of the nearest neighbour; -1 if there is none.
+   */
+  public int nearest(int a){
+    return sizes[a] == 0 ? -1 : ids[a * k];
+  }
+
+  private int slot(int a, int rank){
+    if(rank < 0 || rank >= sizes[a]) throw new IndexOutOfBoundsException("rank " + rank);
+    return a * k + rank;
+  }
+
+  /**
+   * Offers a candidate neighbour to a word set, replacing its worst
+   * neighbour if the heap is full and the candidate is better.
+   */
+  void offer(int a, int b, int weight){
+    final int base = a * k;
+
+    if(sizes[a] < k){
+      int at = sizes[a]++;
+      ids[base + at]      = b;
+      weights[base + at]  = weight;
+
+      // sift up
+      while(at > 0){
+        final int parent = (at - 1) / 2;
+        if(!worse(base + at, base + parent)) break;
+        swap(base + at, base + parent);
+        at = parent;
+      }
+
+      return;
+    }
+
+    if(!better(weight, b, weights[base], ids[base])) return;
+
+    ids[base]     = b;
+    weights[base] = weight;
+    siftDown(base, 0, k);
+  }
+
+  /**
+   * Turns a word set's heap into a best-first list.
+   */
+  void sort(int a){
+    final int base = a * k;
+    for(int end = sizes[a] - 1; end > 0; end--){
+      swap(base, base + end);
+      siftDown(base, 0, end);
+    }
+  }
+
+  private void siftDown(int base, int at, int size){
+    while(true){
+      final int left  = 2 * at + 1;
+      final int right = left + 1;
+
+      int worst = at;
+      if(left < size && worse(base + left, base + worst)) worst = left;
+      if(right < size && worse(base + right, base + worst)) worst = right;
+      if(worst == at) return;
+
+      swap(base + at, base + worst);
+      at = worst;
+    }
+  }
+
+  private boolean worse(int x, int y){
+    return better(weights[y], ids[y], weights[x], ids[x]);
+  }
+
+  private static boolean better(int weight, int id, int otherWeight, int otherId){
+    return weight > otherWeight || (weight == otherWeight && id < otherId);
+  }
+
+  private void swap(int x, int y){
+    final int id = ids[x];
+    ids[x] = ids[y];
+    ids[y] = id;
+
+    final int weight = weights[x];
+    weights[x] = weights[y];
+    weights[y] = weight;
+  }
+}
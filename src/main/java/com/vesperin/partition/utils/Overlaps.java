@@ -0,0 +1,379 @@
+package com.vesperin.partition.utils;
+
+import com.google.common.collect.Lists;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+
+/**
+ * Pairwise number of shared words between projects. Word sets are sorted
+ * arrays of word ids (see {@link Symbols}), indexed by an inverted index
+ * (word id to projects containing it). No pairwise matrix is kept: adding
+ * a project only appends it to the postings of its words, the overlap of
+ * two projects is the intersection of their sorted word sets, and bulk
+ * queries (neighbours, edges) only visit the projects a project actually
+ * shares words with.
+ *
+ * @author Huascar Sanchez
+ */
+public class Overlaps {
+  private int[][] postings;
+  private int[]   postingSizes;
+
+  private final List<int[]>   words;
+
+  private Neighbours      nearest;
+
+  /**
+   * Constructs an empty overlap structure.
+   */
+  public Overlaps(){
+    this.postings     = new int[0][];
+    this.postingSizes = new int[0];
+    this.words        = Lists.newArrayList();
+  }
+
+  /**
+   * Builds the overlap structure of a list of word sets.
+   *
+   * @param wordSets word sets (sorted, distinct word ids), one per project.
+   * @return a new Overlaps object.
+   */
+  public static Overlaps of(List<int[]> wordSets){
+    final Overlaps overlaps = new Overlaps();
+    Objects.requireNonNull(wordSets).forEach(overlaps::add);
+    return overlaps;
+  }
+
+  /**
+   * Adds a new word set. Its cost is proportional to the size of the word
+   * set, not to the number of word sets already added.
+   *
+   * @param words the word set (sorted, distinct word ids) of a project.
+   * @return the position of the word set in this structure.
+   */
+  public int add(int[] words){
+    final int position = size();
+
+    for(int each : Objects.requireNonNull(words)){
+      ensurePosting(each);
+
+      final int[] posting = postings[each];
+      if(postingSizes[each] == posting.length){
+        postings[each] = Arrays.copyOf(posting, Math.max(4, posting.length * 2));
+      }
+
+      // positions only grow, so postings stay sorted
+      postings[each][postingSizes[each]++] = position;
+    }
+
+    this.words.add(words);
+
+    // nearest neighbours may have changed
+    nearest = null;
+
+    return position;
+  }
+
+  private void ensurePosting(int word){
+    if(word < postings.length) return;
+
+    final int capacity = Math.max(word + 1, postings.length * 2);
+    final int from     = postings.length;
+
+    postings      = Arrays.copyOf(postings, capacity);
+    postingSizes  = Arrays.copyOf(postingSizes, capacity);
+
+    for(int idx = from; idx < capacity; idx++){
+      postings[idx] = new int[0];
+    }
+  }
+
+  /**
+   * Returns the number of words shared by two word sets.
+   *
+   * @param a position of first word set
+   * @param b position of second word set
+   * @return number of shared words.
+   */
+  public int shared(int a, int b){
+    final int[] x = words.get(a);
+    final int[] y = words.get(b);
+    if(a == b) return x.length;
+
+    // merge-intersection of two sorted word sets
+    int count = 0;
+    for(int i = 0, j = 0; i < x.length && j < y.length;){
+      if(x[i] < y[j]){
+        i++;
+      } else if(x[i] > y[j]){
+        j++;
+      } else {
+        count++; i++; j++;
+      }
+    }
+
+    return count;
+  }
+
+  /**
+   * Locates the word set sharing the most words with a given word set. Ties
+   * are broken in favor of the earliest added word set. Nearest word sets
+   * are computed once, for all word sets, and reused until a new word set
+   * is added.
+   *
+   * @param a position of word set
+   * @return the position of its nearest word set; -1 if it shares no words
+   *    with any other word set.
+   */
+  public int nearest(int a){
+    if(nearest == null){
+      nearest = neighbours(1);
+    }
+
+    return nearest.nearest(a);
+  }
+
+  /**
+   * Computes the k nearest neighbours of every word set. Word sets are
+   * processed in parallel, and each one only visits the word sets it shares
+   * words with, through the inverted index.
+   *
+   * @param k maximum number of neighbours per word set
+   * @return the k nearest neighbours of every word set.
+   */
+  public Neighbours neighbours(int k){
+    final int         n           = size();
+    final Neighbours  neighbours  = new Neighbours(n, k);
+
+    if(n == 0) return neighbours;
+
+    // word sets are processed in chunks, each with scratch space of its own
+    // (reset after every word set), dropped once its chunk is done
+    final int chunks  = Math.min(n, 4 * ForkJoinPool.getCommonPoolParallelism());
+    final int size    = (n + chunks - 1) / chunks;
+
+    IntStream.range(0, chunks).parallel().forEach(chunk -> {
+      final int[] counts  = new int[n];
+      final int[] touched = new int[n];
+
+      for(int a = chunk * size; a < Math.min(n, (chunk + 1) * size); a++){
+        int found = 0;
+        for(int each : words.get(a)){
+          final int[] posting = postings[each];
+          for(int idx = 0; idx < postingSizes[each]; idx++){
+            final int b = posting[idx];
+            if(b == a) continue;
+
+            if(counts[b]++ == 0) touched[found++] = b;
+          }
+        }
+
+        for(int idx = 0; idx < found; idx++){
+          final int b = touched[idx];
+          neighbours.offer(a, b, counts[b]);
+          counts[b] = 0;
+        }
+
+        neighbours.sort(a);
+      }
+    });
+
+    return neighbours;
+  }
+
+  /**
+   * Lists every pair of word sets sharing at least one word, heaviest
+   * first. See {@link #edges(int)}.
+   *
+   * @return the weighted edges of the overlap graph.
+   */
+  public Edges edges(){
+    return edges(1);
+  }
+
+  /**
+   * Lists every pair of word sets sharing at least a given number of words,
+   * heaviest first. Pairs are found through the inverted index, so word sets
+   * that share nothing are never compared, and lighter pairs are dropped as
+   * they are found, never stored. Edges are computed on every call and not
+   * kept, so callers should drop them once used.
+   *
+   * @param minWeight minimum number of shared words of a listed pair
+   * @return the weighted edges of the overlap graph.
+   */
+  public Edges edges(int minWeight){
+    final Edges edges = new Edges();
+    forEachPair(minWeight, edges::add);
+
+    edges.sortByWeightDescending();
+    return edges;
+  }
+
+  /**
+   * Visits every pair of word sets sharing at least a given number of
+   * words, through the inverted index. Pairs (a, b) are visited with
+   * {@code a < b}, in increasing order of b.
+   *
+   * @param minWeight minimum number of shared words of a visited pair
+   * @param visitor receives each pair and its number of shared words
+   */
+  public void forEachPair(int minWeight, PairVisitor visitor){
+    Objects.requireNonNull(visitor);
+
+    final int n = size();
+
+    final int[] counts  = new int[n];
+    final int[] touched = new int[n];
+
+    for(int b = 0; b < n; b++){
+      int found = 0;
+      for(int each : words.get(b)){
+        final int[] posting = postings[each];
+        for(int idx = 0; idx < postingSizes[each]; idx++){
+          final int a = posting[idx];
+          if(a >= b) break; // postings are sorted
+
+          if(counts[a]++ == 0) touched[found++] = a;
+        }
+      }
+
+      for(int idx = 0; idx < found; idx++){
+        final int a = touched[idx];
+        if(counts[a] >= minWeight) visitor.visit(a, b, counts[a]);
+        counts[a] = 0;
+      }
+    }
+  }
+
+  /**
+   * Visits the members of a word's posting list; i.e., the word sets
+   * containing the word, in increasing position.
+   *
+   * @param word the word's id
+   * @param visitor receives the position of each word set
+   */
+  public void forEachContaining(int word, IntConsumer visitor){
+    if(word >= postings.length) return;
+
+    final int[] posting = postings[word];
+    for(int idx = 0; idx < postingSizes[word]; idx++){
+      visitor.accept(posting[idx]);
+    }
+  }
+
+  /**
+   * @return one past the largest word id this structure has room for;
+   *    the id of every word in it is smaller.
+   */
+  public int vocabulary(){
+    return postings.length;
+  }
+
+  /**
+   * Returns the number of word sets containing a given word.
+   *
+   * @param word the word's id
+   * @return the word's document frequency.
+   */
+  public int frequency(int word){
+    return word < postingSizes.length ? postingSizes[word] : 0;
+  }
+
+  /**
+   * @return the number of word sets in this structure.
+   */
+  public int size(){
+    return words.size();
+  }
+
+  /**
+   * Receives pairs of word sets and their number of shared words.
+   */
+  public interface PairVisitor {
+    /**
+     * @param a position of the first word set
+     * @param b position of the second word set
+     * @param shared number of words shared by both word sets
+     */
+    void visit(int a, int b, int shared);
+  }
+
+  /**
+   * Weighted edges (a, b, number of shared words) stored in primitive arrays.
+   */
+  public static class Edges {
+    private int[] from    = new int[16];
+    private int[] to      = new int[16];
+    private int[] weight  = new int[16];
+    private int   size    = 0;
+
+    void add(int a, int b, int w){
+      if(size == from.length){
+        from    = Arrays.copyOf(from, size * 2);
+        to      = Arrays.copyOf(to, size * 2);
+        weight  = Arrays.copyOf(weight, size * 2);
+      }
+
+      from[size]    = a;
+      to[size]      = b;
+      weight[size]  = w;
+      size++;
+    }
+
+    /**
+     * Counting sort on weights; stable, so ties keep insertion order.
+     */
+    void sortByWeightDescending(){
+      int max = 0;
+      for(int idx = 0; idx < size; idx++) max = Math.max(max, weight[idx]);
+
+      final int[] starts = new int[max + 2];
+      for(int idx = 0; idx < size; idx++) starts[max - weight[idx] + 1]++;
+      for(int idx = 1; idx < starts.length; idx++) starts[idx] += starts[idx - 1];
+
+      final int[] f = new int[size], t = new int[size], w = new int[size];
+      for(int idx = 0; idx < size; idx++){
+        final int slot = starts[max - weight[idx]]++;
+        f[slot] = from[idx]; t[slot] = to[idx]; w[slot] = weight[idx];
+      }
+
+      from = f; to = t; weight = w;
+    }
+
+    /**
+     * @return the number of edges.
+     */
+    public int size(){
+      return size;
+    }
+
+    /**
+     * @param idx the edge's index
+     * @return the edge's first word set.
+     */
+    public int from(int idx){
+      return from[idx];
+    }
+
+    /**
+     * @param idx the edge's index
+     * @return the edge's second word set.
+     */
+    public int to(int idx){
+      return to[idx];
+    }
+
+    /**
+     * @param idx the edge's index
+     * @return the number of words shared by the edge's word sets.
+     */
+    public int weight(int idx){
+      return weight[idx];
+    }
+  }
+}
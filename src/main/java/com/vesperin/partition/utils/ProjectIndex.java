@@ -0,0 +1,363 @@
+package com.vesperin.partition.utils;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.vesperin.text.Grouping;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * In-memory index of projects: their word sets, the overlap structure
+ * between them, and the groups computed for each requested overlapping
+ * factor. Words are interned into a shared symbol table and word sets are
+ * kept as sorted id arrays. Groups contain project names. Access is
+ * thread-safe.
+ *
+ * @author Huascar Sanchez
+ */
+public class ProjectIndex {
+  private final List<String>              names;
+  private final Symbols                   symbols;
+  private final List<int[]>               words;
+  private final Map<String, Integer>      positions;
+  private final Overlaps                  overlaps;
+  private final Map<Engine, Map<Integer, Grouping.Groups>> groups;
+  private Neighbours                      neighbours;
+
+  /**
+   * Constructs an empty project index.
+   */
+  public ProjectIndex(){
+    this.symbols    = new Symbols();
+    this.names      = Lists.newArrayList();
+    this.words      = Lists.newArrayList();
+    this.positions  = Maps.newHashMap();
+    this.overlaps   = new Overlaps();
+    this.groups     = Maps.newHashMap();
+    this.neighbours = null;
+  }
+
+  /**
+   * Adds a project to this index. Projects already in the index are
+   * left untouched.
+   *
+   * @param name the project's name
+   * @param wordSet the project's word set
+   * @return true if the project was added; false if it was already indexed.
+   */
+  public synchronized boolean add(String name, Set<String> wordSet){
+    Objects.requireNonNull(name);
+    Objects.requireNonNull(wordSet);
+
+    if(positions.containsKey(name)) return false;
+
+    return add(name, symbols.intern(wordSet));
+  }
+
+  /**
+   * Adds a project whose words are already interned in this index's
+   * symbol table. Projects already in the index are left untouched.
+   *
+   * @param name the project's name
+   * @param ids the sorted, distinct ids of the project's words
+   * @return true if the project was added; false if it was already indexed.
+   */
+  synchronized boolean add(String name, int[] ids){
+    Objects.requireNonNull(name);
+    Objects.requireNonNull(ids);
+
+    if(positions.containsKey(name)) return false;
+
+    positions.put(name, overlaps.add(ids));
+    names.add(name);
+    words.add(ids);
+
+    // cached groups and neighbours are stale now
+    groups.clear();
+    neighbours = null;
+
+    return true;
+  }
+
+  /**
+   * Groups the indexed projects using the greedy engine. Groups are cached
+   * per overlapping factor until a new project is added.
+   *
+   * @param overlap overlapping factor
+   * @return the groups of project names.
+   */
+  public synchronized Grouping.Groups groups(int overlap){
+    return groups(Engine.GREEDY, overlap);
+  }
+
+  /**
+   * Groups the indexed projects using a given engine. Groups are cached
+   * per engine and (clamped) overlapping factor until a new project is
+   * added; engines ignoring the overlapping factor group once.
+   *
+   * @param engine the grouping engine
+   * @param overlap overlapping factor
+   * @return the groups of project names.
+   */
+  public synchronized Grouping.Groups groups(Engine engine, int overlap){
+    final int key = Objects.requireNonNull(engine).usesOverlap() ? GroupMaker.threshold(overlap) : 0;
+    return groups.computeIfAbsent(engine, e -> Maps.newHashMap())
+      .computeIfAbsent(key, k -> engine.makeGroups(overlap, overlaps, this));
+  }
+
+  /**
+   * Groups the indexed projects once per overlapping factor in a range.
+   * All groupings share this index's overlap structure and nearest
+   * neighbours, so each additional factor only costs a linking pass.
+   * Factors outside the supported range are clamped, and factors
+   * clamping to the same value are grouped once.
+   *
+   * @param from smallest overlapping factor (inclusive)
+   * @param to largest overlapping factor (inclusive)
+   * @return the groups of project names, keyed by overlapping factor.
+   */
+  public synchronized Map<Integer, Grouping.Groups> sweep(int from, int to){
+    return sweep(Engine.GREEDY, from, to);
+  }
+
+  /**
+   * Groups the indexed projects once per overlapping factor in a range,
+   * using a given engine. See {@link #sweep(int, int)}.
+   *
+   * @param engine the grouping engine
+   * @param from smallest overlapping factor (inclusive)
+   * @param to largest overlapping factor (inclusive)
+   * @return the groups of project names, keyed by overlapping factor.
+   * @throws IllegalArgumentException if the engine ignores the overlapping
+   *    factor, so every factor would give the same groups.
+   */
+  public synchronized Map<Integer, Grouping.Groups> sweep(Engine engine, int from, int to){
+    if(!Objects.requireNonNull(engine).usesOverlap()){
+      throw new IllegalArgumentException(String.format(
+        "The %s algorithm ignores the minimum of shared words; nothing to sweep", engine.key()
+      ));
+    }
+
+    final Map<Integer, Grouping.Groups> result = Maps.newLinkedHashMap();
+    for(int overlap = from; overlap <= to; overlap++){
+      result.putIfAbsent(GroupMaker.threshold(overlap), groups(engine, GroupMaker.threshold(overlap)));
+    }
+
+    return result;
+  }
+
+  /**
+   * Finds the group containing a given project.
+   *
+   * @param name the project's name
+   * @param overlap overlapping factor
+   * @return the names of the projects in the group; empty if the project
+   *    is not in any group.
+   */
+  public synchronized List<String> groupOf(String name, int overlap){
+    return groupOf(name, Engine.GREEDY, overlap);
+  }
+
+  /**
+   * Finds the group containing a given project, using a given engine.
+   *
+   * @param name the project's name
+   * @param engine the grouping engine
+   * @param overlap overlapping factor
+   * @return the names of the projects in the group; empty if the project
+   *    is not in any group.
+   */
+  public synchronized List<String> groupOf(String name, Engine engine, int overlap){
+    for(Grouping.Group each : groups(engine, overlap)){
+      final List<String> members = Lists.newArrayList();
+      boolean found = false;
+      for(Object o : each){
+        final String member = (String) o;
+        members.add(member);
+        found = found || member.equals(name);
+      }
+
+      if(found) return members;
+    }
+
+    return Collections.emptyList();
+  }
+
+  /**
+   * Measures the quality of a grouping of the indexed projects. Projects
+   * missing from the grouping count as singleton clusters.
+   *
+   * @param groups the groups of project names
+   * @return the grouping's quality.
+   */
+  public synchronized ClusterQuality quality(Grouping.Groups groups){
+    final int[] clusterOf = new int[names.size()];
+    Arrays.fill(clusterOf, -1);
+
+    int k = 0;
+    for(Grouping.Group each : groups){
+      for(Object o : each){
+        final Integer position = positions.get((String) o);
+        if(!Objects.isNull(position)) clusterOf[position] = k;
+      }
+
+      k++;
+    }
+
+    for(int idx = 0; idx < clusterOf.length; idx++){
+      if(clusterOf[idx] == -1) clusterOf[idx] = k++;
+    }
+
+    return ClusterQuality.of(overlaps, clusterOf, k);
+  }
+
+  /**
+   * Computes the k nearest neighbours of every indexed project; i.e., the
+   * projects sharing the most words with it. A single set of neighbours is
+   * cached, for the largest k requested so far, until a new project is
+   * added; smaller k are served from it, so the returned neighbours may
+   * hold more than k ranks per project. Ranks are sorted best first, so
+   * the first k of them are the k nearest neighbours.
+   *
+   * @param k maximum number of neighbours per project
+   * @return the neighbours, by position in {@link #names()}; at least k
+   *    ranks per project.
+   */
+  public synchronized Neighbours neighbours(int k){
+    if(Objects.isNull(neighbours) || neighbours.k() < k){
+      neighbours = overlaps.neighbours(k);
+    }
+
+    return neighbours;
+  }
+
+  /**
+   * Finds the k nearest neighbours of a given project.
+   *
+   * @param name the project's name
+   * @param k maximum number of neighbours; a project has at most
+   *    {@code size() - 1} of them, so larger values are clamped.
+   * @return the names of the neighbours, best first, mapped to the number
+   *    of words they share with the project; empty if the project is not
+   *    indexed.
+   */
+  public synchronized Map<String, Integer> neighboursOf(String name, int k){
+    final Map<String, Integer> result   = Maps.newLinkedHashMap();
+    final Integer              position = positions.get(name);
+    if(Objects.isNull(position)) return result;
+
+    // k slots are allocated per project
+    final int         bound = Math.max(1, Math.min(k, names.size() - 1));
+    final Neighbours  all   = neighbours(bound);
+    for(int rank = 0; rank < Math.min(bound, all.count(position)); rank++){
+      result.put(names.get(all.neighbour(position, rank)), all.weight(position, rank));
+    }
+
+    return result;
+  }
+
+  /**
+   * Checks whether a project is indexed.
+   *
+   * @param name the project's name
+   * @return true if the project is indexed; false otherwise.
+   */
+  public synchronized boolean contains(String name){
+    return positions.containsKey(name);
+  }
+
+  /**
+   * Returns the word set of a given project.
+   *
+   * @param name the project's name
+   * @return the project's word set; empty if the project is not indexed.
+   */
+  public synchronized Set<String> wordSet(String name){
+    return symbols.words(ids(name));
+  }
+
+  /**
+   * Returns the word set of a given project as word ids.
+   *
+   * @param name the project's name
+   * @return the sorted ids of the project's words; empty if the project
+   *    is not indexed.
+   */
+  public synchronized int[] ids(String name){
+    final Integer position = positions.get(name);
+    return Objects.isNull(position) ? new int[0] : words.get(position);
+  }
+
+  /**
+   * Returns the word sets of several projects at once, under a single lock.
+   *
+   * @param names the projects' names
+   * @return the sorted ids of each project's words, by name; empty for
+   *    projects not indexed.
+   */
+  public synchronized Map<String, int[]> ids(Collection<String> names){
+    final Map<String, int[]> result = Maps.newHashMapWithExpectedSize(names.size());
+    for(String each : names){
+      result.put(each, ids(each));
+    }
+
+    return result;
+  }
+
+  /**
+   * @return the document frequency of every indexed word, by word id.
+   */
+  public synchronized int[] frequencies(){
+    final int[] result = new int[overlaps.vocabulary()];
+    for(int id = 0; id < result.length; id++){
+      result[id] = overlaps.frequency(id);
+    }
+
+    return result;
+  }
+
+  /**
+   * Returns the number of indexed projects containing a given word.
+   *
+   * @param id the word's id
+   * @return the word's document frequency.
+   */
+  public synchronized int frequency(int id){
+    return overlaps.frequency(id);
+  }
+
+  /**
+   * @return the word sets (sorted word ids) of all indexed projects, in
+   *    the order of {@link #names()}.
+   */
+  synchronized List<int[]> wordSets(){
+    return Lists.newArrayList(words);
+  }
+
+  /**
+   * @return the symbol table of the indexed words.
+   */
+  public Symbols symbols(){
+    return symbols;
+  }
+
+  /**
+   * @return the names of all indexed projects.
+   */
+  public synchronized List<String> names(){
+    return Lists.newArrayList(names);
+  }
+
+  /**
+   * @return the number of indexed projects.
+   */
+  public synchronized int size(){
+    return names.size();
+  }
+}
@@ -0,0 +1,200 @@
+package com.vesperin.partition.utils;
+
+import com.google.common.collect.Lists;
+import com.vesperin.text.Grouping;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * Groups elements by detecting communities in their overlap graph through
+ * label propagation. Elements are nodes; two nodes are linked when they
+ * share more words than some overlapping factor, weighted by the number of
+ * shared words. Every node starts with its own label and repeatedly adopts
+ * the label carrying the most weight among its neighbours (and itself),
+ * until labels settle or an iteration budget runs out. Unlike nearest
+ * neighbour linking, a single shared neighbour cannot chain two otherwise
+ * unrelated communities together.
+ *
+ * <p>Rounds are synchronous: each round reads the previous labels and
+ * writes new ones, every node owning its own slot, so nodes are updated in
+ * parallel without locks and results are deterministic. Ties go to the
+ * smallest label.
+ *
+ * @author Huascar Sanchez
+ */
+public class PropagationGroupMaker {
+  /** Default maximum number of propagation rounds. */
+  public static final int ITERATIONS = 20;
+
+  private PropagationGroupMaker(){
+    throw new Error("Utility class");
+  }
+
+  /**
+   * Makes a list of groups from a precomputed overlap structure, using the
+   * default iteration budget.
+   *
+   * @param overlap overlapping factor (see {@link GroupMaker#threshold(int)}).
+   * @param overlaps number of shared words between elements.
+   * @param elements elements to group; one per entry in the overlap structure.
+   * @param <E> type of grouped elements.
+   * @return a new group of groups.
+   */
+  public static <E> Grouping.Groups makeGroups(int overlap, Overlaps overlaps, List<E> elements){
+    return makeGroups(overlap, overlaps, elements, ITERATIONS);
+  }
+
+  /**
+   * Makes a list of groups from a precomputed overlap structure.
+   *
+   * @param overlap overlapping factor (see {@link GroupMaker#threshold(int)}).
+   * @param overlaps number of shared words between elements.
+   * @param elements elements to group; one per entry in the overlap structure.
+   * @param iterations maximum number of propagation rounds.
+   * @param <E> type of grouped elements.
+   * @return a new group of groups.
+   */
+  public static <E> Grouping.Groups makeGroups(int overlap, Overlaps overlaps, List<E> elements, int iterations){
+    Objects.requireNonNull(overlaps);
+    Objects.requireNonNull(elements);
+
+    if(iterations < 0){
+      throw new IllegalArgumentException("Expected a non-negative iteration budget");
+    }
+
+    final int n = elements.size();
+    if(n == 0) return Grouping.Groups.of(Lists.newArrayList());
+
+    // only links heavier than the threshold are ever listed
+    final Graph graph = Graph.of(overlaps.edges(GroupMaker.threshold(overlap) + 1), n);
+
+    int[] labels = IntStream.range(0, n).toArray();
+    int[] next   = new int[n];
+
+    // nodes are processed in chunks, each with scratch space of its own; a
+    // chunk is never processed by two threads at once, so its scratch is
+    // reused across rounds, and dropped with this method's locals
+    final int       chunks  = Math.min(n, 4 * ForkJoinPool.getCommonPoolParallelism());
+    final int       size    = (n + chunks - 1) / chunks;
+    final Scratch[] scratch = new Scratch[chunks];
+
+    for(int round = 0; round < iterations; round++){
+      final int[] current = labels;
+      final int[] target  = next;
+
+      final int changed = IntStream.range(0, chunks).parallel()
+        .map(chunk -> {
+          if(scratch[chunk] == null) scratch[chunk] = new Scratch(n);
+
+          int count = 0;
+          for(int node = chunk * size; node < Math.min(n, (chunk + 1) * size); node++){
+            target[node] = graph.dominantLabel(node, current, scratch[chunk]);
+            if(target[node] != current[node]) count++;
+          }
+
+          return count;
+        })
+        .sum();
+
+      labels = target;
+      next   = current;
+
+      if(changed == 0) break;
+    }
+
+    return GroupMaker.groupsOf(labels, elements);
+  }
+
+  /**
+   * Per-chunk label weights, reset after every node.
+   */
+  private static class Scratch {
+    final long[] weights;
+    final int[]  touched;
+
+    Scratch(int n){
+      this.weights = new long[n];
+      this.touched = new int[n + 1];
+    }
+  }
+
+  /**
+   * Undirected weighted graph stored as adjacency arrays (CSR). Each node
+   * carries a self-loop weighing as much as its heaviest edge, which keeps
+   * pairs of nodes from swapping labels forever.
+   */
+  private static class Graph {
+    private final int[] starts;
+    private final int[] neighbours;
+    private final int[] weights;
+    private final int[] selfWeights;
+
+    private Graph(int[] starts, int[] neighbours, int[] weights, int[] selfWeights){
+      this.starts       = starts;
+      this.neighbours   = neighbours;
+      this.weights      = weights;
+      this.selfWeights  = selfWeights;
+    }
+
+    static Graph of(Overlaps.Edges edges, int n){
+      final int[] starts      = new int[n + 1];
+      final int[] selfWeights = new int[n];
+
+      final int count = edges.size();
+      for(int idx = 0; idx < count; idx++){
+        starts[edges.from(idx) + 1]++;
+        starts[edges.to(idx) + 1]++;
+      }
+
+      for(int idx = 1; idx <= n; idx++) starts[idx] += starts[idx - 1];
+
+      final int[] fill        = starts.clone();
+      final int[] neighbours  = new int[count * 2];
+      final int[] weights     = new int[count * 2];
+
+      for(int idx = 0; idx < count; idx++){
+        final int a = edges.from(idx), b = edges.to(idx), w = edges.weight(idx);
+
+        neighbours[fill[a]] = b; weights[fill[a]++] = w;
+        neighbours[fill[b]] = a; weights[fill[b]++] = w;
+
+        selfWeights[a] = Math.max(selfWeights[a], w);
+        selfWeights[b] = Math.max(selfWeights[b], w);
+      }
+
+      return new Graph(starts, neighbours, weights, selfWeights);
+    }
+
+    int dominantLabel(int node, int[] labels, Scratch scratch){
+      final long[] totals  = scratch.weights;
+      final int[]  touched = scratch.touched;
+
+      int found = 0;
+      totals[labels[node]] = selfWeights[node];
+      touched[found++]     = labels[node];
+
+      for(int idx = starts[node]; idx < starts[node + 1]; idx++){
+        final int label = labels[neighbours[idx]];
+        if(totals[label] == 0) touched[found++] = label;
+        totals[label] += weights[idx];
+      }
+
+      int  best       = labels[node];
+      long bestWeight = -1;
+      for(int idx = 0; idx < found; idx++){
+        final int label = touched[idx];
+        if(totals[label] > bestWeight || (totals[label] == bestWeight && label < best)){
+          best       = label;
+          bestWeight = totals[label];
+        }
+
+        totals[label] = 0;
+      }
+
+      return best;
+    }
+  }
+}
@@ -0,0 +1,85 @@
+package com.vesperin.partition.utils;
+
+import com.google.common.collect.Lists;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+
+/**
+ * Runs many small, independent units of work (e.g., parsing one file) on a
+ * work-stealing pool, largest units first. Starting with the largest units
+ * keeps a big unit from being picked up last, when every other thread is
+ * already idle; the small units left at the end fill the gaps.
+ *
+ * @author Huascar Sanchez
+ */
+public class Scheduler {
+  private Scheduler(){
+    throw new Error("Utility class");
+  }
+
+  /**
+   * Applies a function to every item, largest items first, on a pool with
+   * a given number of threads.
+   *
+   * @param items the items to process
+   * @param size estimated cost of an item; e.g., a file's length
+   * @param work the function to apply; it should handle its own failures
+   * @param parallelism number of threads
+   * @param <T> type of items
+   * @param <R> type of results
+   * @return the results, in the order of the given items.
+   * @throws RuntimeException if the function failed on some item.
+   */
+  public static <T, R> List<R> largestFirst(List<T> items, ToLongFunction<? super T> size,
+    Function<? super T, ? extends R> work, int parallelism){
+
+    Objects.requireNonNull(items);
+    Objects.requireNonNull(size);
+    Objects.requireNonNull(work);
+
+    if(parallelism < 1) throw new IllegalArgumentException("Expected parallelism >= 1");
+
+    final Object[]  results = new Object[items.size()];
+    final Integer[] order   = new Integer[items.size()];
+    final long[]    sizes   = new long[items.size()];
+    for(int idx = 0; idx < order.length; idx++){
+      order[idx] = idx;
+      sizes[idx] = size.applyAsLong(items.get(idx));
+    }
+
+    // stable: equally sized items keep their given order
+    Arrays.sort(order, Comparator.comparingLong((Integer idx) -> sizes[idx]).reversed());
+
+    final ForkJoinPool pool = new ForkJoinPool(parallelism);
+    try {
+      // external submissions are taken in submission order
+      final List<ForkJoinTask<?>> tasks = Lists.newArrayListWithCapacity(order.length);
+      for(int each : order){
+        tasks.add(pool.submit(() -> { results[each] = work.apply(items.get(each)); }));
+      }
+
+      for(ForkJoinTask<?> each : tasks){
+        each.get();
+      }
+    } catch (InterruptedException e){
+      Thread.currentThread().interrupt();
+      throw new RuntimeException("Interrupted while running scheduled work", e);
+    } catch (ExecutionException e){
+      throw new RuntimeException("Scheduled work failed", e.getCause());
+    } finally {
+      pool.shutdownNow();
+    }
+
+    @SuppressWarnings("unchecked")
+    final List<R> list = (List<R>) Arrays.asList(results);
+    return list;
+  }
+}
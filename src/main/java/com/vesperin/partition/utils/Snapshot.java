@@ -0,0 +1,203 @@
+package com.vesperin.partition.utils;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * Compact binary snapshot of a {@link ProjectIndex}. Layout:
+ *
+ * <pre>
+ *   magic (4 bytes) | version (4 bytes)
+ *   word count      | (length, utf-8 bytes) per word, in id order
+ *   project count   | (length, utf-8 name, id count, delta encoded ids) per project
+ * </pre>
+ *
+ * All counts, lengths and id deltas are unsigned varints. Snapshots are
+ * read through a memory mapped buffer and decoded in one pass into a new
+ * {@link ProjectIndex}: words are interned and id arrays are copied out of
+ * the buffer, since the index owns its word sets; building the index costs
+ * as much as the word sets themselves. Counts, lengths and ids are checked
+ * against what is left in the file and the size of the dictionary, so a
+ * truncated or corrupted snapshot is reported as an {@link IOException}.
+ *
+ * @author Huascar Sanchez
+ */
+public class Snapshot {
+  private static final int MAGIC    = 0x56495053; // VIPS
+  private static final int VERSION  = 1;
+
+  private Snapshot(){
+    throw new Error("Utility class");
+  }
+
+  /**
+   * Writes a snapshot of a project index.
+   *
+   * @param index the project index
+   * @param file the snapshot file
+   * @throws IOException unexpected error has occurred.
+   */
+  public static void write(ProjectIndex index, Path file) throws IOException {
+    final Path parent = file.toAbsolutePath().getParent();
+    Files.createDirectories(parent);
+
+    // written to a temporary file first, so readers never see partial snapshots
+    final Path temp = Files.createTempFile(parent, file.getFileName().toString(), ".tmp");
+
+    final List<String>  names   = index.names();
+    final Symbols       symbols = index.symbols();
+    final int           words   = symbols.size();
+
+    try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+      out.writeInt(MAGIC);
+      out.writeInt(VERSION);
+
+      writeVarint(out, words);
+      for(int id = 0; id < words; id++){
+        writeString(out, symbols.word(id));
+      }
+
+      writeVarint(out, names.size());
+      for(String name : names){
+        final int[] ids = index.ids(name);
+
+        writeString(out, name);
+        writeVarint(out, ids.length);
+
+        int previous = 0;
+        for(int each : ids){
+          writeVarint(out, each - previous);
+          previous = each;
+        }
+      }
+    }
+
+    Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  /**
+   * Reads a snapshot into a new project index.
+   *
+   * @param file the snapshot file
+   * @return the project index stored in the snapshot.
+   * @throws IOException the file is not a valid snapshot, or unexpected
+   *    error has occurred.
+   */
+  public static ProjectIndex read(Path file) throws IOException {
+    final MappedByteBuffer buffer;
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+    }
+
+    if(buffer.remaining() < 8 || buffer.getInt() != MAGIC){
+      throw new IOException(file + " is not a snapshot");
+    }
+
+    final int version = buffer.getInt();
+    if(version != VERSION){
+      throw new IOException("Unsupported snapshot version " + version + " in " + file);
+    }
+
+    final ProjectIndex index = new ProjectIndex();
+
+    final int words = count(buffer, file);
+    for(int id = 0; id < words; id++){
+      // interned in id order, so stored ids are valid in the new index
+      if(index.symbols().intern(readString(buffer, file)) != id){
+        throw new IOException("Duplicate word in snapshot " + file);
+      }
+    }
+
+    final int projects = count(buffer, file);
+    for(int idx = 0; idx < projects; idx++){
+      final String  name  = readString(buffer, file);
+      final int     size  = count(buffer, file);
+      if(size > words) throw new IOException("Too many word ids in snapshot " + file);
+
+      final int[] ids = new int[size];
+
+      long previous = -1;
+      for(int each = 0; each < ids.length; each++){
+        // ids are sorted and distinct; only the first delta may be zero
+        final long id = Math.max(previous, 0) + readVarint(buffer, file);
+        if(id <= previous || id >= words){
+          throw new IOException("Invalid word id in snapshot " + file);
+        }
+
+        ids[each] = (int) id;
+        previous  = id;
+      }
+
+      if(!index.add(name, ids)){
+        throw new IOException("Duplicate project " + name + " in snapshot " + file);
+      }
+    }
+
+    if(buffer.hasRemaining()){
+      throw new IOException("Trailing bytes in snapshot " + file);
+    }
+
+    return index;
+  }
+
+  private static void writeString(DataOutputStream out, String value) throws IOException {
+    final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+    writeVarint(out, bytes.length);
+    out.write(bytes);
+  }
+
+  private static String readString(ByteBuffer buffer, Path file) throws IOException {
+    final byte[] bytes = new byte[count(buffer, file)];
+    buffer.get(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Reads a count or length; each counted item takes at least one byte,
+   * so it cannot exceed what is left in the buffer.
+   */
+  private static int count(ByteBuffer buffer, Path file) throws IOException {
+    final int count = readVarint(buffer, file);
+    if(count > buffer.remaining()){
+      throw new IOException("Truncated snapshot " + file);
+    }
+
+    return count;
+  }
+
+  private static void writeVarint(OutputStream out, int value) throws IOException {
+    while((value & ~0x7F) != 0){
+      out.write((value & 0x7F) | 0x80);
+      value >>>= 7;
+    }
+
+    out.write(value);
+  }
+
+  private static int readVarint(ByteBuffer buffer, Path file) throws IOException {
+    int value = 0;
+    for(int shift = 0; shift < 32; shift += 7){
+      if(!buffer.hasRemaining()) throw new IOException("Truncated snapshot " + file);
+
+      final byte b = buffer.get();
+      value |= (b & 0x7F) << shift;
+      if((b & 0x80) == 0){
+        if(value < 0) throw new IOException("Malformed varint in snapshot " + file);
+        return value;
+      }
+    }
+
+    throw new IOException("Malformed varint in snapshot " + file);
+  }
+}
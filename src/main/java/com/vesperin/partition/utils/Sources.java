@@ -6,14 +6,26 @@ import com.vesperin.base.EclipseJavaParser;
 import com.vesperin.base.JavaParser;
 import com.vesperin.base.Source;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
 import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Enumeration;
 import java.util.List;
 import java.util.Objects;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
 
 /**
  * @author Huascar Sanchez
@@ -55,6 +67,22 @@ public class Sources {
     }
   }
 
+  /**
+   * Converts the contents of a file into a source object; e.g., a file
+   * read from an archive or a git object store rather than from disk.
+   *
+   * @param path the file's path
+   * @param content the file's bytes
+   * @return a new source code object.
+   */
+  public static Source from(String path, byte[] content) {
+    try {
+      return Source.from(Files.getNameWithoutExtension(path), read(new ByteArrayInputStream(content)));
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
   /**
    * Converts a list of files into a list of source objects.
    *
@@ -70,6 +98,154 @@ public class Sources {
       .collect(Collectors.toList());
   }
 
+  /**
+   * Reads the sources stored in a zip (or jar) or tar (optionally gzipped)
+   * archive; e.g., one produced by git archive. Entries are streamed
+   * straight into source objects; nothing is extracted to disk. Entries
+   * are filtered by path before their contents are read, using the same
+   * rules as {@link IO#collectFiles(Path, String, String...)}.
+   *
+   * @param archive the archive file (.zip, .jar, .tar, .tar.gz or .tgz)
+   * @param extension extension of files to read
+   * @param keywords hints which files to ignore (based on their names)
+   * @return the list of source objects.
+   * @throws IllegalArgumentException if the archive's format is unknown.
+   */
+  public static List<Source> fromArchive(Path archive, String extension, String... keywords) {
+    final String name = archive.getFileName().toString().toLowerCase();
+    final Predicate<String> wanted = path -> IO.isCollectable(path, extension, keywords)
+      && !PACKAGE_INFO.equals(Files.getNameWithoutExtension(path));
+
+    try {
+      if(name.endsWith(".zip") || name.endsWith(".jar")){
+        return fromZip(archive, wanted);
+      } else if(name.endsWith(".tar")){
+        try (InputStream in = new BufferedInputStream(java.nio.file.Files.newInputStream(archive))) {
+          return fromTar(in, wanted);
+        }
+      } else if(name.endsWith(".tar.gz") || name.endsWith(".tgz")){
+        try (InputStream in = new GZIPInputStream(new BufferedInputStream(java.nio.file.Files.newInputStream(archive)))) {
+          return fromTar(in, wanted);
+        }
+      }
+    } catch (IOException e){
+      throw new RuntimeException("Unable to read " + archive, e);
+    }
+
+    throw new IllegalArgumentException("Unknown archive format: " + archive);
+  }
+
+  private static List<Source> fromZip(Path archive, Predicate<String> wanted) throws IOException {
+    final List<Source> sources = new ArrayList<>();
+
+    try (ZipFile zip = new ZipFile(archive.toFile())) {
+      final Enumeration<? extends ZipEntry> entries = zip.entries();
+      while(entries.hasMoreElements()){
+        final ZipEntry entry = entries.nextElement();
+        if(entry.isDirectory() || !wanted.test(entry.getName())) continue;
+
+        try (InputStream in = zip.getInputStream(entry)) {
+          sources.add(Source.from(Files.getNameWithoutExtension(entry.getName()), read(in)));
+        }
+      }
+    }
+
+    return sources;
+  }
+
+  /**
+   * Reads a (ustar, pax or GNU) tar stream, one 512-byte header at a time.
+   * Long names given by pax ('x') or GNU ('L') headers are honored.
+   */
+  private static List<Source> fromTar(InputStream in, Predicate<String> wanted) throws IOException {
+    final List<Source> sources = new ArrayList<>();
+    final byte[]       header  = new byte[512];
+
+    String longName = null;
+    while(readFully(in, header)){
+      if(header[0] == 0) break; // end of archive
+
+      final long   size     = octal(header, 124, 12);
+      final char   type     = (char) header[156];
+      final String prefix   = text(header, 345, 155);
+      final String name     = Objects.isNull(longName)
+        ? (prefix.isEmpty() ? "" : prefix + "/") + text(header, 0, 100)
+        : longName;
+
+      longName = null;
+
+      if(type == 'x' || type == 'L'){
+        final String data = new String(readBytes(in, size), StandardCharsets.UTF_8);
+        longName = type == 'L' ? data.replace("\0", "") : paxPath(data);
+      } else if((type == '0' || type == 0) && wanted.test(name)){
+        sources.add(from(name, readBytes(in, size)));
+      } else {
+        skipBytes(in, size);
+      }
+
+      // entries are padded to 512 bytes
+      skipBytes(in, (512 - size % 512) % 512);
+    }
+
+    return sources;
+  }
+
+  private static String paxPath(String records){
+    for(String each : records.split("\n")){
+      final int at = each.indexOf(" path=");
+      if(at >= 0) return each.substring(at + " path=".length());
+    }
+
+    return null;
+  }
+
+  private static String read(InputStream in) throws IOException {
+    // same normalization as reading a file line by line
+    try (BufferedReader reader = new BufferedReader(new InputStreamReader(in, Charset.defaultCharset()))) {
+      return reader.lines().collect(Collectors.joining("\n"));
+    }
+  }
+
+  private static boolean readFully(InputStream in, byte[] buffer) throws IOException {
+    int read = 0;
+    while(read < buffer.length){
+      final int n = in.read(buffer, read, buffer.length - read);
+      if(n < 0) return false;
+      read += n;
+    }
+
+    return true;
+  }
+
+  private static byte[] readBytes(InputStream in, long size) throws IOException {
+    final byte[] bytes = new byte[Math.toIntExact(size)];
+    if(!readFully(in, bytes)) throw new EOFException("Truncated tar entry");
+    return bytes;
+  }
+
+  private static void skipBytes(InputStream in, long size) throws IOException {
+    long left = size;
+    while(left > 0){
+      final long skipped = in.skip(left);
+      if(skipped <= 0){
+        if(in.read() < 0) throw new EOFException("Truncated tar entry");
+        left--;
+      } else {
+        left -= skipped;
+      }
+    }
+  }
+
+  private static String text(byte[] header, int offset, int length){
+    int end = offset;
+    while(end < offset + length && header[end] != 0) end++;
+    return new String(header, offset, end - offset, StandardCharsets.UTF_8);
+  }
+
+  private static long octal(byte[] header, int offset, int length){
+    final String value = text(header, offset, length).trim();
+    return value.isEmpty() ? 0 : Long.parseLong(value, 8);
+  }
 
   private static List<String> normalize(Iterable<String> docs){
     final List<String> n = new ArrayList<>();
@@ -0,0 +1,81 @@
+package com.vesperin.partition.utils;
+
+import com.google.common.collect.ImmutableSet;
+
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+/**
+ * Immutable, thread-safe stop word filter. A filter is made of a base list
+ * and an optional domain overlay; overlays are shared by reference, never
+ * copied, so deriving a filter for a new domain costs nothing. Lookups hash
+ * the word once (Strings cache their hash) and allocate nothing.
+ *
+ * @author Huascar Sanchez
+ */
+public final class StopWordFilter implements Predicate<String> {
+  private static final StopWordFilter EMPTY = new StopWordFilter(ImmutableSet.of(), ImmutableSet.of());
+
+  private final ImmutableSet<String> words;
+  private final ImmutableSet<String> overlay;
+
+  private StopWordFilter(ImmutableSet<String> words, ImmutableSet<String> overlay){
+    this.words    = words;
+    this.overlay  = overlay;
+  }
+
+  /**
+   * @return a filter with no stop words.
+   */
+  public static StopWordFilter empty(){
+    return EMPTY;
+  }
+
+  /**
+   * Compiles a list of stop words into a new filter.
+   *
+   * @param words the stop words
+   * @return a new stop word filter.
+   */
+  public static StopWordFilter of(Collection<String> words){
+    return new StopWordFilter(ImmutableSet.copyOf(words), ImmutableSet.of());
+  }
+
+  /**
+   * Derives a filter that also drops the words of a domain overlay. The
+   * overlay is referenced, not copied.
+   *
+   * @param overlay the domain's stop words
+   * @return a new stop word filter.
+   */
+  public StopWordFilter withOverlay(ImmutableSet<String> overlay){
+    return new StopWordFilter(words, Objects.requireNonNull(overlay));
+  }
+
+  /**
+   * Checks whether a word is a stop word.
+   *
+   * @param word the word to check
+   * @return true if the word is a stop word; false otherwise.
+   */
+  @Override public boolean test(String word) {
+    return words.contains(word) || overlay.contains(word);
+  }
+
+  /**
+   * Removes the stop words of a given word set, keeping the order of the
+   * remaining words (e.g., their rank).
+   *
+   * @param wordSet the word set to filter
+   * @return a new set containing the non stop words, in iteration order.
+   */
+  public Set<String> filter(Set<String> wordSet){
+    if(words.isEmpty() && overlay.isEmpty()) return wordSet;
+
+    return wordSet.stream().filter(this.negate()).collect(Collectors.toCollection(LinkedHashSet::new));
+  }
+}
@@ -0,0 +1,113 @@
+package com.vesperin.partition.utils;
+
+import com.google.common.collect.Sets;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Corpus-wide symbol table. Interns words into dense int ids (0, 1, 2, ...),
+ * so each distinct word is stored once and word sets can be represented as
+ * sorted int arrays. Interning and lookups are thread-safe; lookups by id
+ * never lock.
+ *
+ * @author Huascar Sanchez
+ */
+public class Symbols {
+  private final Map<String, Integer> ids;
+  private volatile String[] words;
+  private int size;
+
+  /**
+   * Constructs an empty symbol table.
+   */
+  public Symbols(){
+    this.ids    = new ConcurrentHashMap<>();
+    this.words  = new String[64];
+    this.size   = 0;
+  }
+
+  /**
+   * Interns a word.
+   *
+   * @param word the word to intern
+   * @return the word's id.
+   */
+  public int intern(String word){
+    final Integer id = ids.get(Objects.requireNonNull(word));
+    if(!Objects.isNull(id)) return id;
+
+    synchronized (this){
+      final Integer existing = ids.get(word);
+      if(!Objects.isNull(existing)) return existing;
+
+      if(size == words.length){
+        words = Arrays.copyOf(words, size * 2);
+      }
+
+      // the word is visible before its id is published
+      words[size] = word;
+      ids.put(word, size);
+
+      return size++;
+    }
+  }
+
+  /**
+   * Interns a collection of words.
+   *
+   * @param words the words to intern
+   * @return the sorted, distinct ids of the words.
+   */
+  public int[] intern(Collection<String> words){
+    return words.stream().mapToInt(this::intern).sorted().distinct().toArray();
+  }
+
+  /**
+   * Returns the id of a word, without interning it.
+   *
+   * @param word the word to look up
+   * @return the word's id; -1 if the word is unknown.
+   */
+  public int id(String word){
+    final Integer id = ids.get(word);
+    return Objects.isNull(id) ? -1 : id;
+  }
+
+  /**
+   * Returns the word behind an id.
+   *
+   * @param id the id of an interned word
+   * @return the interned word.
+   */
+  public String word(int id){
+    return words[id];
+  }
+
+  /**
+   * Turns an array of ids back into words.
+   *
+   * @param ids the ids of interned words
+   * @return the set of words.
+   */
+  public Set<String> words(int[] ids){
+    final String[] table = words;
+    final Set<String> result = Sets.newHashSetWithExpectedSize(ids.length);
+    for(int each : ids){
+      result.add(table[each]);
+    }
+
+    return result;
+  }
+
+  /**
+   * @return the number of interned words.
+   */
+  public int size(){
+    return ids.size();
+  }
+}
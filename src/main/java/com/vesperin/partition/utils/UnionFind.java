@@ -0,0 +1,81 @@
+package com.vesperin.partition.utils;
+
+/**
+ * Disjoint sets over the elements 0 .. n-1, backed by primitive arrays.
+ * Uses union by rank and path compression (path halving), so any sequence
+ * of operations runs in near-linear time.
+ *
+ * @author Huascar Sanchez
+ */
+public class UnionFind {
+  private final int[]  parent;
+  private final byte[] rank;
+  private int count;
+
+  /**
+   * Constructs n singleton sets.
+   *
+   * @param n number of elements
+   */
+  public UnionFind(int n){
+    this.parent = new int[n];
+    this.rank   = new byte[n];
+    this.count  = n;
+
+    for(int idx = 0; idx < n; idx++){
+      parent[idx] = idx;
+    }
+  }
+
+  /**
+   * Finds the representative of the set containing an element.
+   *
+   * @param x the element
+   * @return the set's representative.
+   */
+  public int find(int x){
+    while(parent[x] != x){
+      parent[x] = parent[parent[x]];
+      x = parent[x];
+    }
+
+    return x;
+  }
+
+  /**
+   * Merges the sets containing two elements.
+   *
+   * @param a first element
+   * @param b second element
+   * @return true if the sets were merged; false if they were already one.
+   */
+  public boolean union(int a, int b){
+    int x = find(a);
+    int y = find(b);
+    if(x == y) return false;
+
+    if(rank[x] < rank[y]){
+      final int swap = x; x = y; y = swap;
+    }
+
+    parent[y] = x;
+    if(rank[x] == rank[y]) rank[x]++;
+
+    count--;
+    return true;
+  }
+
+  /**
+   * @return the number of disjoint sets.
+   */
+  public int count(){
+    return count;
+  }
+
+  /**
+   * @return the number of elements.
+   */
+  public int size(){
+    return parent.length;
+  }
+}
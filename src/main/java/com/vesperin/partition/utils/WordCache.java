@@ -0,0 +1,157 @@
+package com.vesperin.partition.utils;
+
+import com.google.common.collect.ImmutableList;
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.vesperin.text.spi.BasicExecutionMonitor;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Persistent cache of the words extracted (and ranked) for each project.
+ * An entry is keyed by project name, git revision, search scope and stop
+ * word fingerprint; it is only reused if all four match, so projects whose
+ * inputs changed are recomputed.
+ *
+ * @author Huascar Sanchez
+ */
+public class WordCache {
+  private static final Gson GSON = new Gson();
+
+  private final Path directory;
+
+  /**
+   * Constructs a word cache stored in a given directory.
+   *
+   * @param directory the cache's directory
+   */
+  public WordCache(Path directory){
+    this.directory = Objects.requireNonNull(directory);
+  }
+
+  /**
+   * Looks up the cached words of a project.
+   *
+   * @param key the cache key
+   * @return the cached words, in rank order; null if there is no valid entry.
+   */
+  public List<String> get(Key key){
+    final Path file = fileOf(key);
+    if(!Files.exists(file)) return null;
+
+    try {
+      final Entry entry = GSON.fromJson(
+        new String(Files.readAllBytes(file), StandardCharsets.UTF_8), Entry.class
+      );
+
+      if(Objects.isNull(entry) || !key.equals(entry.key()) || Objects.isNull(entry.words)){
+        return null;
+      }
+
+      return ImmutableList.copyOf(entry.words);
+    } catch (IOException | JsonParseException e){
+      return null;
+    }
+  }
+
+  /**
+   * Stores the words of a project. The cache is only an optimization, so
+   * failing to store an entry is logged and otherwise ignored.
+   *
+   * @param key the cache key
+   * @param words the project's words, in rank order
+   */
+  public void put(Key key, List<String> words){
+    final Entry entry = new Entry(key, words);
+
+    try {
+      Files.createDirectories(directory);
+
+      // written to a temporary file first, so readers never see partial entries
+      final Path file = fileOf(key);
+      final Path temp = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+      Files.write(temp, GSON.toJson(entry).getBytes(StandardCharsets.UTF_8));
+      Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } catch (IOException e){
+      BasicExecutionMonitor.get().warn(String.format("unable to cache words of %s: %s", key, e.getMessage()));
+    }
+  }
+
+  private Path fileOf(Key key){
+    return directory.resolve(key.project.replaceAll("[^A-Za-z0-9._-]", "_") + ".json");
+  }
+
+  /**
+   * Identifies the inputs of a word extraction.
+   */
+  public static class Key {
+    final String project;
+    final String revision;
+    final String scope;
+    final String stopWords;
+
+    /**
+     * Constructs a cache key.
+     *
+     * @param project the project's name
+     * @param revision the project's git revision
+     * @param scope the search scope
+     * @param stopWords the stop words fingerprint
+     */
+    public Key(String project, String revision, String scope, String stopWords){
+      this.project    = Objects.requireNonNull(project);
+      this.revision   = Objects.requireNonNull(revision);
+      this.scope      = Objects.requireNonNull(scope);
+      this.stopWords  = Objects.requireNonNull(stopWords);
+    }
+
+    @Override public boolean equals(Object o) {
+      if(!(o instanceof Key)) return false;
+
+      final Key other = (Key) o;
+      return project.equals(other.project)
+        && revision.equals(other.revision)
+        && scope.equals(other.scope)
+        && stopWords.equals(other.stopWords);
+    }
+
+    @Override public int hashCode() {
+      return Objects.hash(project, revision, scope, stopWords);
+    }
+
+    @Override public String toString() {
+      return project + "@" + revision + " (" + scope + ", " + stopWords + ")";
+    }
+  }
+
+  private static class Entry {
+    String project;
+    String revision;
+    String scope;
+    String stopWords;
+    List<String> words;
+
+    Entry(Key key, List<String> words){
+      this.project    = key.project;
+      this.revision   = key.revision;
+      this.scope      = key.scope;
+      this.stopWords  = key.stopWords;
+      this.words      = words;
+    }
+
+    Key key(){
+      if(Objects.isNull(project) || Objects.isNull(revision)
+        || Objects.isNull(scope) || Objects.isNull(stopWords)){
+        return null;
+      }
+
+      return new Key(project, revision, scope, stopWords);
+    }
+  }
+}
@@ -1,95 +1,114 @@
 package com.vesperin.partition.utils;
 
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
+import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Sets;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import com.google.common.io.ByteStreams;
 import com.vesperin.text.spelling.StopWords;
 
-import java.util.Arrays;
-import java.util.Locale;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
 import java.util.Set;
 
 /**
  * @author Huascar Sanchez
  */
 public class WordMaker {
-  private static final Set<String> GROUP_ONE = Sets.newHashSet("boofcv", "catalano-framework", "imglib2", "imgscalr", "imagej", "thumbnailinator");
-  private static final Set<String> GROUP_TWO = Sets.newHashSet("dyn4j", "jreactphysics3d", "react", "jmonkeyengine", "jbox2d");
-
-  private static final Set<String> GLOSSARY_ONE = Sets.newHashSet("addition", "area",
-    "aspect", "ratio", "greyscale", "mapping", "bayer", "filter", "bilinear",
-    "interpolation", "bitmap", "image", "blurring", "bounding", "brightness",
-    "transformation", "transformer", "capture", "ccd", "closing", "colour", "model", "composition",
-    "contrast", "expansion", "convolution", "corrupted", "pixel", "cropping", "diagonal",
-    "digital", "camera", "image", "dilation", "edge", "map", "mask",
-    "spectrum", "electromagnetic", "erosion", "flipping", "flip", "frame", "noise",
-    "gaussian", "geometric", "halftoning", "highlight", "histogram", "equalisation",
-    "hsb", "hue", "process", "processing", "interpolation", "inversion", "kernel",
-    "line", "lut", "median", "midtone", "midtones", "morphological", "nearest", "neighbour",
-    "neighbor", "ntsc", "opening", "outlying", "output", "restoration", "point",
-    "posterisation", "quantization", "ramp", "raw", "resolution", "rgb", "roof",
-    "hole", "sample", "sampling", "scale", "factor", "saturation", "scaling", "scanner",
-    "electron", "microscope", "shadow", "subtraction", "thresholding", "thermal", "box",
-    "mirror", "ellipse");
-
-  private static final Set<String> GLOSSARY_TWO = Sets.newHashSet("anisotropic",
-    "friction", "collision", "detection", "center", "mass", "restitution", "coefficient",
-    "coherence", "contact", "generation", "dynamic", "force", "engine", "halfsize", "half",
-    "size", "homeheneous", "identity", "matrix", "impulse", "tensor", "inertia", "isotropic",
-    "constraint", "solver", "iterative", "jacobian", "vector", "static", "spatial",
-    "speed", "spring", "angular", "velocity", "projectile", "bsp", "plane", "tree",
-    "sphere", "insertion", "buoyancy", "sailing", "sail", "simulator", "bhv", "differential",
-    "position", "coarse", "aggregate", "pipeline", "spatial", "octtree", "oct", "grid", "quadtree",
-    "quad", "torque", "interpenetration", "micro", "resting", "time", "division", "wave",
-    "concussive", "explosion", "propagation", "cone", "geometry", "assembly", "primitive", "depth",
-    "penetration", "relative", "body", "colliding", "polyhedra", "convection", "chimney",
-    "equation", "volume", "joint", "particle", "directx", "handedness", "drag", "elasticity",
-    "euler", "angle", "implosion", "fireworks", "simulation", "fluid", "flow", "flight", "rigid",
-    "physics", "hook", "", "render", "renderer", "collision", "detection", "detector", "detect",
-    "movement", "move", "moving", "gravity", "object", "aliasing", "blending", "alpha", "animation",
-    "anisotropic", "array", "asset", "bake", "batching", "behavior", "boo", "clip", "collider",
-    "event", "crosshair", "cubemap", "cut", "scene", "damping", "extrapolation", "fbx",
-    "fading", "polygon", "motion", "cylinder", "cuboid", "sphere", "cone", "entropy");
+  private static final Glossaries GLOSSARIES = Glossaries.fromResources();
+
+  private static final ImmutableSet<String> ENGLISH = ImmutableSet.of("ifd", "make", "wtum", "slic", "zhang", "three",
+    "rodrigue", "estimate", "il", "coef", "nothing", "omni", "webcam",
+    "canny", "association", "fundamental", "example", "se", "nto",
+    "associated", "naive", "cloud", "alg", "weighted",
+    "five", "enhanced", "purpose", "just", "brief", "dda",
+    "pto", "peak", "prune", "mean", "essentially", "extremely", "benefit",
+    "analysis", "otsu", "moment", "matching", "started", "student", "human",
+    "argbargb", "ntree", "arg", "dna", "ssaoui", "gle", "ik", "ir",
+    "al", "hello", "fxaa", "tga", "recalc", "tu", "arff", "icon", "sfot",
+    "uv", "lru", "ssao", "efx", "lepetit", "harri", "igle", "dof", "ogle", "like",
+    "udp", "canva", "six", "fault", "codec", "combined", "perspective", "triangulate",
+    "radial", "shape", "mjpeg", "improve", "rotate", "tracking", "jogl");
+
+  static {
+    // registered once per run; tokenizers only see these shared lists
+    ENGLISH.forEach(StopWords.ENGLISH::add);
+  }
 
-  private WordMaker() {}
+  private static final Supplier<String> FINGERPRINT = Suppliers.memoize(WordMaker::computeFingerprint);
 
-  private static Set<String> getGlossaryOne() {
-    return GLOSSARY_ONE;
-  }
+  private WordMaker() {}
 
-  private static Set<String> getGlossaryTwo(){
-    return GLOSSARY_TWO;
+  /**
+   * Identifies the stop words used by all tokenizers and the domain
+   * glossaries; it changes whenever any of the stop word lists (built-in
+   * or registered here) or glossaries change.
+   *
+   * @return the stop words fingerprint.
+   */
+  public static String fingerprint(){
+    return FINGERPRINT.get();
   }
 
-  public static Set<StopWords> generateStopWords(String name){
+  private static String computeFingerprint(){
+    final Hasher hasher = Hashing.sha256().newHasher();
 
-    final String lowercase = name.toLowerCase(Locale.ENGLISH);
+    // built-in lists are literals in the classes defining the StopWords
+    // constants, which do not expose their contents; hash those classes,
+    // not the jar (or application) holding them
+    final Set<Class<?>> definitions = Sets.newLinkedHashSet();
+    definitions.add(StopWords.class);
+    generateStopWords().forEach(each -> definitions.add(each.getClass()));
+    definitions.forEach(each -> hasher.putBytes(codeOf(each)));
 
-    final StopWords english = StopWords.ENGLISH;
+    generateStopWords().forEach(each -> hasher.putString(each.name(), StandardCharsets.UTF_8));
 
-    Arrays.asList("ifd", "make", "wtum", "slic", "zhang", "three",
-      "rodrigue", "estimate", "il", "coef", "nothing", "omni", "webcam",
-      "canny", "association", "fundamental", "example", "se", "nto",
-      "associated", "naive", "cloud", "alg", "weighted",
-      "five", "enhanced", "purpose", "just", "brief", "dda",
-      "pto", "peak", "prune", "mean", "essentially", "extremely", "benefit",
-      "analysis", "otsu", "moment", "matching", "started", "student", "human",
-      "argbargb", "ntree", "arg", "dna", "ssaoui", "gle", "ik", "ir",
-      "al", "hello", "fxaa", "tga", "recalc", "tu", "arff", "icon", "sfot",
-      "uv", "lru", "ssao", "efx", "lepetit", "harri", "igle", "dof", "ogle", "like",
-      "udp", "canva", "six", "fault", "codec", "combined", "perspective", "triangulate",
-      "radial", "shape", "mjpeg", "improve", "rotate", "tracking", "jogl"
+    ENGLISH.stream().sorted().forEach(each -> hasher.putString(each, StandardCharsets.UTF_8).putByte((byte) 0));
 
-    ).forEach(english::add);
+    // domain overlays change which words are ranked, so they change words too
+    GLOSSARIES.hash(hasher);
 
+    return String.format("%s-%s", generateStopWords(), hasher.hash().toString().substring(0, 16));
+  }
 
-    final StopWords general = StopWords.GENERAL;
-    if(GROUP_ONE.contains(lowercase)){
-      getGlossaryTwo().forEach(general::add);
-    } else if(GROUP_TWO.contains(lowercase)){
-      getGlossaryOne().forEach(general::add);
+  /**
+   * Reads the class file of a class.
+   */
+  private static byte[] codeOf(Class<?> type){
+    final String name     = type.getName();
+    final String fileName = name.substring(name.lastIndexOf('.') + 1) + ".class";
+
+    try (InputStream in = type.getResourceAsStream(fileName)) {
+      if(Objects.isNull(in)) throw new IOException("Missing class file " + fileName);
+      return ByteStreams.toByteArray(in);
+    } catch (IOException e){
+      throw new RuntimeException("Unable to read the stop words of " + name, e);
     }
-
-    return Sets.newHashSet(english, StopWords.JAVA, general);
   }
 
+  /**
+   * @return the stop words used by all tokenizers.
+   */
+  public static Set<StopWords> generateStopWords(){
+    return ImmutableSet.of(StopWords.ENGLISH, StopWords.JAVA, StopWords.GENERAL);
+  }
 
+  /**
+   * Returns the domain specific stop word filter of a project. The
+   * project's domain is detected from its word set; projects of one domain
+   * drop the glossaries of all other domains. Tokenizers only accept the
+   * shared {@link StopWords} lists, and the domain is only known once the
+   * words are ranked, so the filter applies to the ranked words and keeps
+   * their order; dropped words are not replaced by lower ranked ones.
+   *
+   * @param words the project's word set
+   * @return the project's stop word filter.
+   */
+  public static StopWordFilter stopWordFilter(Set<String> words){
+    return GLOSSARIES.filter(GLOSSARIES.detect(words));
+  }
 }
@@ -0,0 +1,145 @@
+package com.vesperin.partition.cmds;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.vesperin.partition.utils.Engine;
+import com.vesperin.partition.utils.IO;
+import com.vesperin.partition.utils.ProjectIndex;
+import com.vesperin.text.spi.BasicExecutionMonitor;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author Huascar Sanchez
+ */
+public class ProcessProjectsTest {
+  @Test public void defaultWorkspaceUsesSharedFolder() throws Exception {
+    final Path out = Paths.get("/out");
+    assertEquals(
+      out.resolve(".partitions/checkpoint.jsonl"),
+      ProcessProjects.workspaceFile(out, null, ProcessProjects.CHECKPOINT)
+    );
+  }
+
+  @Test public void namedWorkspacesNeverCollideWithSharedFolders() throws Exception {
+    final Path out = Paths.get("/out");
+
+    // e.g., a corpus named 'files' or 'words' must not land in a shared folder
+    for(String each : new String[]{"files", "words", "archives", "repos"}){
+      assertEquals(
+        out.resolve(".partitions/workspaces/" + each + "/checkpoint.jsonl"),
+        ProcessProjects.workspaceFile(out, each, ProcessProjects.CHECKPOINT)
+      );
+    }
+
+    assertEquals(
+      out.resolve(".partitions/workspaces/foo/words.snapshot"),
+      ProcessProjects.workspaceFile(out, "foo", ProcessProjects.SNAPSHOT_FILE)
+    );
+  }
+
+  @Test public void sweepWritesEachFactorAndASummary() throws Exception {
+    final ProjectIndex index = new ProjectIndex();
+    index.add("a", ImmutableSet.of("w1", "w2", "w3", "w4", "w5"));
+    index.add("b", ImmutableSet.of("w1", "w2", "w3", "w4", "x"));
+    index.add("c", ImmutableSet.of("y"));
+
+    final Path dir = Files.createTempDirectory("sweep");
+    try {
+      final String out = dir.resolve("projects.json").toString();
+      ProcessProjects.writeSweep(index, Engine.GREEDY, "1:4", 0, out, BasicExecutionMonitor.get());
+
+      // 1 and 2 clamp to 3
+      assertTrue(Files.exists(dir.resolve("projects-m3.json")));
+      assertTrue(Files.exists(dir.resolve("projects-m4-report.json")));
+      assertFalse(Files.exists(dir.resolve("projects-m1.json")));
+
+      final JsonArray summaries = new Gson().fromJson(new String(
+        Files.readAllBytes(dir.resolve("projects-sweep.json")), StandardCharsets.UTF_8
+      ), JsonArray.class);
+
+      assertEquals(2, summaries.size());
+
+      // a and b share 4 words: linked above 3, apart at 4
+      final JsonObject three = summaries.get(0).getAsJsonObject();
+      assertEquals(3, three.get("min").getAsInt());
+      assertEquals(2, three.get("clusters").getAsInt());
+      assertEquals(1, three.get("singletons").getAsInt());
+      assertEquals(2, three.get("largest").getAsInt());
+      assertEquals(4.0, three.get("meanCohesion").getAsDouble(), 1e-9);
+
+      final JsonObject four = summaries.get(1).getAsJsonObject();
+      assertEquals(4, four.get("min").getAsInt());
+      assertEquals(3, four.get("clusters").getAsInt());
+      assertEquals(4, four.get("maxInterOverlap").getAsInt());
+    } finally {
+      IO.deleteDirectory(dir);
+    }
+  }
+
+  @Test public void labelsKeepTheRarestCommonWordsFirst() throws Exception {
+    final ProjectIndex index = labelled();
+    final ProcessProjects.Cluster ab = clusterOf("a", new ProcessProjects.Clusters(index, index.groups(Engine.GREEDY, 3), 5));
+
+    // w1 and w2 also appear elsewhere, so they are the least typical of a and b
+    assertEquals(ImmutableSet.of("a", "b"), ab.projectSet());
+    assertEquals(Lists.newArrayList("w3", "w4", "w5", "w6", "w2"), Lists.newArrayList(ab.wordSet()));
+
+    assertEquals(
+      Lists.newArrayList("w3", "w4"),
+      Lists.newArrayList(clusterOf("a", new ProcessProjects.Clusters(index, index.groups(Engine.GREEDY, 3), 2)).wordSet())
+    );
+
+    assertEquals(
+      ImmutableSet.of("w1", "w2", "w3", "w4", "w5", "w6"),
+      clusterOf("a", new ProcessProjects.Clusters(index, index.groups(Engine.GREEDY, 3))).wordSet()
+    );
+
+    // a single lookup agrees with the labelling of whole groups
+    assertEquals(
+      Lists.newArrayList("w3", "w4"),
+      Lists.newArrayList(ProcessProjects.Clusters.commonWords(index, Lists.newArrayList("a", "b"), 2))
+    );
+  }
+
+  @Test public void noLabelsOnlyListProjects() throws Exception {
+    final ProjectIndex index = labelled();
+    final ProcessProjects.Clusters clusters = new ProcessProjects.Clusters(index, index.groups(Engine.GREEDY, 3), 0);
+
+    assertEquals(3, clusters.clusterList().size());
+    for(ProcessProjects.Cluster each : clusters.clusterList()){
+      assertNull(each.wordSet());
+    }
+
+    assertEquals(ImmutableSet.of("a", "b"), clusterOf("a", clusters).projectSet());
+  }
+
+  @Test(expected = IllegalArgumentException.class) public void sweepRejectsMalformedRanges() throws Exception {
+    ProcessProjects.writeSweep(new ProjectIndex(), Engine.GREEDY, "3-10", 0, null, BasicExecutionMonitor.get());
+  }
+
+  private static ProjectIndex labelled(){
+    final ProjectIndex index = new ProjectIndex();
+    index.add("a", ImmutableSet.of("w1", "w2", "w3", "w4", "w5", "w6"));
+    index.add("b", ImmutableSet.of("w1", "w2", "w3", "w4", "w5", "w6", "x"));
+    index.add("c", ImmutableSet.of("w1", "w2"));
+    index.add("d", ImmutableSet.of("w1"));
+    return index;
+  }
+
+  private static ProcessProjects.Cluster clusterOf(String name, ProcessProjects.Clusters clusters){
+    return clusters.clusterList().stream().filter(c -> c.projectSet().contains(name)).findFirst().orElseThrow(AssertionError::new);
+  }
+}
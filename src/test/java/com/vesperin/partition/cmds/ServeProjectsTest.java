@@ -0,0 +1,143 @@
+package com.vesperin.partition.cmds;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.io.ByteStreams;
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import com.sun.net.httpserver.HttpServer;
+import com.vesperin.partition.utils.ProjectIndex;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * @author Huascar Sanchez
+ */
+public class ServeProjectsTest {
+  private CountDownLatch  stopped;
+  private ExecutorService workers;
+  private HttpServer      server;
+
+  @Before public void setUp() throws Exception {
+    final ProjectIndex index = new ProjectIndex();
+    index.add("a", ImmutableSet.of("w1", "w2", "w3", "w4", "w5"));
+    index.add("b", ImmutableSet.of("w1", "w2", "w3", "w4", "x"));
+    index.add("c", ImmutableSet.of("y"));
+
+    stopped = new CountDownLatch(1);
+    workers = Executors.newFixedThreadPool(2);
+    server  = new ServeProjects().server(index, Paths.get("out"), 0, stopped);
+    server.setExecutor(workers);
+    server.start();
+  }
+
+  @After public void tearDown() throws Exception {
+    server.stop(0);
+    workers.shutdown();
+  }
+
+  @Test public void decodesQueries() throws Exception {
+    assertEquals(Collections.emptyMap(), ServeProjects.query(null));
+    assertEquals(
+      ImmutableMap.of("name", "a b/c", "k", "3", "flag", ""),
+      ServeProjects.query("name=a+b%2Fc&k=1&&flag&k=3")
+    );
+  }
+
+  @Test public void readsIntegers() throws Exception {
+    final Map<String, String> params = ImmutableMap.of("k", "12", "bad", "1x", "big", "99999999999");
+    assertEquals(12, ServeProjects.intOf(params, "k", 10));
+    assertEquals(10, ServeProjects.intOf(params, "missing", 10));
+
+    for(String each : new String[]{"bad", "big"}){
+      try {
+        ServeProjects.intOf(params, each, 10);
+        throw new AssertionError("Expected a rejected " + each);
+      } catch (IllegalArgumentException expected){
+        // answered as 400
+      }
+    }
+  }
+
+  @Test public void mapsFailuresToStatuses() throws Exception {
+    assertEquals(400, ServeProjects.statusOf(new IllegalArgumentException()));
+    assertEquals(404, ServeProjects.statusOf(new NoSuchElementException()));
+    assertEquals(500, ServeProjects.statusOf(new IllegalStateException()));
+    assertEquals(500, ServeProjects.statusOf(new IOException()));
+  }
+
+  @Test public void answersQueries() throws Exception {
+    assertEquals(200, status("GET", "/projects"));
+    assertEquals("[\"a\",\"b\",\"c\"]", body("/projects").replaceAll("\\s", ""));
+
+    final JsonObject neighbours = new Gson().fromJson(body("/neighbours?name=a&k=5"), JsonObject.class);
+    assertEquals(4, neighbours.get("b").getAsInt());
+    assertEquals(1, neighbours.size());
+
+    final JsonObject cluster = new Gson().fromJson(body("/cluster?name=a&min=3"), JsonObject.class);
+    assertEquals(2, cluster.getAsJsonArray("projects").size());
+
+    assertEquals(200, status("GET", "/groups?min=4&labels=0"));
+  }
+
+  @Test public void rejectsBadRequests() throws Exception {
+    assertEquals(400, status("GET", "/neighbours?name=a&k=x"));
+    assertEquals(400, status("GET", "/neighbours?name=a&k=0"));
+    assertEquals(400, status("GET", "/cluster"));
+    assertEquals(400, status("GET", "/groups?min=three"));
+    assertEquals(400, status("POST", "/projects"));
+
+    assertEquals(404, status("GET", "/cluster?name=unknown"));
+    assertEquals(404, status("GET", "/neighbours?name=unknown"));
+  }
+
+  @Test public void stopsOnPostOnly() throws Exception {
+    assertEquals(405, status("GET", "/shutdown"));
+    assertEquals(1, stopped.getCount());
+
+    assertEquals(200, status("POST", "/shutdown"));
+    assertEquals(0, stopped.getCount());
+  }
+
+  private int status(String method, String path) throws IOException {
+    final HttpURLConnection connection = connect(path);
+    connection.setRequestMethod(method);
+    try {
+      return connection.getResponseCode();
+    } finally {
+      connection.disconnect();
+    }
+  }
+
+  private String body(String path) throws IOException {
+    final HttpURLConnection connection = connect(path);
+    try (InputStream in = connection.getInputStream()) {
+      assertEquals(200, connection.getResponseCode());
+      return new String(ByteStreams.toByteArray(in), StandardCharsets.UTF_8);
+    } finally {
+      connection.disconnect();
+    }
+  }
+
+  private HttpURLConnection connect(String path) throws IOException {
+    final URL url = new URL("http://localhost:" + Objects.requireNonNull(server).getAddress().getPort() + path);
+    return (HttpURLConnection) url.openConnection();
+  }
+}
@@ -0,0 +1,138 @@
+package com.vesperin.partition.spi;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * @author Huascar Sanchez
+ */
+public class CommandTest {
+  private static final ExecutionLog LOG = new BasicExecutionLog(System.out);
+
+  @Test public void commandFinishingInTimeSucceeds() throws Exception {
+    final List<String> output = Command.of(LOG)
+      .arguments("sh", "-c", "echo done")
+      .build()
+      .executeWithTimeout(10);
+
+    assertEquals(Collections.singletonList("done"), output);
+  }
+
+  @Test public void slowCommandTimesOut() throws Exception {
+    final long start = System.nanoTime();
+    try {
+      Command.of(LOG).arguments("sleep", "30").build().executeWithTimeout(1);
+      fail("expected a timeout");
+    } catch (TimeoutException expected){
+      assertTrue(TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - start) < 10);
+    }
+  }
+
+  @Test public void asyncCommandCompletesWithOutput() throws Exception {
+    final Command.Result result = Command.of(LOG)
+      .arguments("sh", "-c", "echo a; echo b")
+      .executeAsync(10)
+      .get(10, TimeUnit.SECONDS);
+
+    assertEquals(0, result.exitCode());
+    assertEquals(2, result.output().size());
+  }
+
+  @Test public void slowAsyncCommandTimesOut() throws Exception {
+    try {
+      Command.of(LOG).arguments("sleep", "30").executeAsync(1).get(10, TimeUnit.SECONDS);
+      fail("expected a timeout");
+    } catch (ExecutionException expected){
+      assertTrue(expected.getCause() instanceof TimeoutException);
+    }
+  }
+
+  @Test public void destroyingAnExitedProcessDoesNotMarkItTimedOut() throws Exception {
+    final Command command = Command.of(LOG).arguments("sh", "-c", "echo ok").build();
+    command.start();
+    command.waitFor();
+
+    // as if a timeout fired right after the process exited on its own
+    command.destroy();
+
+    assertFalse(command.isTerminated());
+    assertEquals(Collections.singletonList("ok"), command.gatherOutput());
+  }
+
+  @Test(expected = RuntimeException.class) public void failingCommandThrows() throws Exception {
+    Command.of(LOG).arguments("sh", "-c", "exit 3").execute();
+  }
+
+  @Test public void failureReportsOnlyTheTail() throws Exception {
+    try {
+      Command.of(LOG).arguments("sh", "-c", "seq 1 10; exit 1").tail(3).execute(line -> {});
+      fail("expected a failure");
+    } catch (RuntimeException expected){
+      final String message = expected.getMessage();
+      assertTrue(message.contains("(7 earlier lines omitted)"));
+      assertTrue(message.endsWith("\n  8\n  9\n  10"));
+    }
+  }
+
+  @Test public void longLinesAreTruncatedBetweenCharacters() throws Exception {
+    // 'x' then 3000 two-byte characters; a byte limit would split one of them
+    final String script = "printf x; for i in $(seq 1 3000); do printf '\\303\\251'; done; exit 1";
+    try {
+      Command.of(LOG).arguments("sh", "-c", script).execute((buffer, offset, length) -> {});
+      fail("expected a failure");
+    } catch (RuntimeException expected){
+      final String message = expected.getMessage();
+      assertTrue(message.endsWith("..."));
+      assertFalse(message.contains("\ufffd"));
+    }
+  }
+
+  @Test public void asyncCommandStreamsItsOutput() throws Exception {
+    final List<String> lines = new ArrayList<>();
+    final int exitCode = Command.of(LOG)
+      .arguments("sh", "-c", "echo a; echo b")
+      .build()
+      .executeAsync(10, lines::add)
+      .get(10, TimeUnit.SECONDS);
+
+    assertEquals(0, exitCode);
+    assertEquals(Arrays.asList("a", "b"), lines);
+  }
+
+  @Test public void failingAsyncCommandReportsItsTail() throws Exception {
+    try {
+      Command.of(LOG).arguments("sh", "-c", "echo oops; exit 2").build()
+        .executeAsync(10, line -> {})
+        .get(10, TimeUnit.SECONDS);
+      fail("expected a failure");
+    } catch (ExecutionException expected){
+      assertTrue(expected.getCause().getMessage().contains("oops"));
+    }
+  }
+
+  @Test public void throwingConsumerTerminatesTheProcess() throws Exception {
+    final Command command = Command.of(LOG).arguments("sh", "-c", "while true; do echo x; done").build();
+    command.start();
+
+    try {
+      command.gatherOutput(line -> { throw new IllegalStateException("stop"); });
+      fail("expected the consumer's exception");
+    } catch (IllegalStateException expected){
+      assertTrue(command.isTerminated());
+    }
+
+    assertTrue(command.waitFor() != 0);
+  }
+}
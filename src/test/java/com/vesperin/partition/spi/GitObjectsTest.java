@@ -0,0 +1,108 @@
+package com.vesperin.partition.spi;
+
+import com.vesperin.base.Source;
+import com.vesperin.partition.utils.IO;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+import static com.vesperin.partition.spi.GitTest.git;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * @author Huascar Sanchez
+ */
+public class GitObjectsTest {
+  private Path repository;
+
+  @Before public void setUp() throws Exception {
+    repository = Files.createTempDirectory("objects");
+    git(repository, "init", "-q");
+
+    write("A.java", "class A {}");
+    write("sub/C.java", "class C {}");
+    write("ATest.java", "class ATest {}");
+    write("README.md", "readme");
+
+    final Path b = write("B.java", "class B {}");
+    Files.setPosixFilePermissions(b, PosixFilePermissions.fromString("rwxr-xr-x"));
+
+    Files.createSymbolicLink(repository.resolve("Link.java"), repository.resolve("A.java").getFileName());
+
+    git(repository, "add", "-A");
+    git(repository, "-c", "user.name=test", "-c", "user.email=test@example.com", "commit", "-q", "-m", "first");
+  }
+
+  @After public void tearDown() throws Exception {
+    IO.deleteDirectory(repository);
+  }
+
+  @Test public void listsRegularAndExecutableFilesOnly() throws Exception {
+    try (GitObjects objects = GitObjects.open(repository)) {
+      final List<String> paths = objects.list("HEAD", "java", "Test").stream()
+        .map(GitObjects.Blob::path)
+        .sorted()
+        .collect(Collectors.toList());
+
+      assertEquals(Arrays.asList("A.java", "B.java", "sub/C.java"), paths);
+    }
+  }
+
+  @Test public void readsBlobsThroughOneBatch() throws Exception {
+    try (GitObjects objects = GitObjects.open(repository)) {
+      final Map<String, String> contents = new TreeMap<>();
+      for(GitObjects.Blob each : objects.list("HEAD", "java", "Test")){
+        contents.put(each.path(), new String(objects.read(each.id()), StandardCharsets.UTF_8));
+      }
+
+      assertEquals("class A {}", contents.get("A.java"));
+      assertEquals("class B {}", contents.get("B.java"));
+      assertEquals("class C {}", contents.get("sub/C.java"));
+
+      final Map<String, String> sources = new TreeMap<>();
+      for(Source each : objects.sources("HEAD", "java", "Test")){
+        sources.put(each.getName(), each.getContent());
+      }
+
+      assertEquals(Arrays.asList("A", "B", "C"), Arrays.asList(sources.keySet().toArray()));
+    }
+  }
+
+  @Test public void missingObjectIsNull() throws Exception {
+    try (GitObjects objects = GitObjects.open(repository)) {
+      assertNull(objects.read("0123456789012345678901234567890123456789"));
+
+      // the batch is still usable afterwards
+      assertEquals(3, objects.list("HEAD", "java", "Test").size());
+    }
+  }
+
+  @Test public void unknownRevisionReportsGitsError() throws Exception {
+    try (GitObjects objects = GitObjects.open(repository)) {
+      objects.list("no-such-ref", "java", "Test");
+      fail("expected a failure");
+    } catch (RuntimeException expected){
+      // git's error output, not just the failed command line
+      assertTrue(expected.getMessage(), expected.getMessage().contains("fatal:"));
+    }
+  }
+
+  private Path write(String name, String content) throws Exception {
+    final Path file = repository.resolve(name);
+    Files.createDirectories(file.getParent());
+    return Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+  }
+}
@@ -0,0 +1,117 @@
+package com.vesperin.partition.spi;
+
+import com.vesperin.partition.utils.IO;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author Huascar Sanchez
+ */
+public class GitTest {
+  // names git would quote (or escape) without -z
+  private static final String[] ODD_NAMES = {
+    "tab\there.java", "quote\"d.java", "back\\slash.java", "new\nline.java"
+  };
+
+  private Path repository;
+
+  @Before public void setUp() throws Exception {
+    repository = Files.createTempDirectory("git");
+    git(repository, "init", "-q");
+  }
+
+  @After public void tearDown() throws Exception {
+    IO.deleteDirectory(repository);
+  }
+
+  @Test public void diffKeepsPathsVerbatim() throws Exception {
+    write("Kept.java", "class Kept {}");
+    write("Gone.java", "class Gone {}");
+    final String from = commit("first");
+
+    write("Kept.java", "class Kept { int x; }");
+    Files.delete(repository.resolve("Gone.java"));
+    for(String each : ODD_NAMES) write(each, "class X {}");
+    final String to = commit("second");
+
+    final Map<String, Character> changes = new TreeMap<>();
+    Git.diff(repository, from, to).forEach(c -> changes.put(c.path(), c.status()));
+
+    assertEquals(ODD_NAMES.length + 2, changes.size());
+    assertEquals(Character.valueOf('M'), changes.get("Kept.java"));
+    assertEquals(Character.valueOf('D'), changes.get("Gone.java"));
+    for(String each : ODD_NAMES){
+      assertEquals(each, Character.valueOf('A'), changes.get(each));
+    }
+  }
+
+  @Test public void headIsResolved() throws Exception {
+    assertNull(Git.headOf(repository));
+
+    write("A.java", "class A {}");
+    assertEquals(commit("first"), Git.headOf(repository));
+  }
+
+  @Test(expected = RuntimeException.class) public void diffWithUnknownRevisionFails() throws Exception {
+    write("A.java", "class A {}");
+    Git.diff(repository, "0000000000000000000000000000000000000000", commit("first"));
+  }
+
+  @Test public void nulTerminatedRecordsSurviveChunkBoundaries() throws Exception {
+    final List<String> records = new ArrayList<>();
+    final Command.Chunks chunks = Git.nulTerminated(records::add);
+
+    final byte[] bytes = "M\0a\tb\0\u00f1\0".getBytes(StandardCharsets.UTF_8);
+    for(int idx = 0; idx < bytes.length; idx++){
+      chunks.accept(bytes, idx, 1);
+    }
+
+    assertEquals(Arrays.asList("M", "a\tb", "\u00f1"), records);
+    assertTrue(records.stream().noneMatch(String::isEmpty));
+  }
+
+  private void write(String name, String content) throws Exception {
+    Files.write(repository.resolve(name), content.getBytes(StandardCharsets.UTF_8));
+  }
+
+  private String commit(String message) throws Exception {
+    git(repository, "add", "-A");
+    git(repository, "-c", "user.name=test", "-c", "user.email=test@example.com", "commit", "-q", "-m", message);
+    return Command.of(new BasicExecutionLog(System.out))
+      .arguments("git", "rev-parse", "HEAD")
+      .workingDirectory(repository.toFile())
+      .execute()
+      .get(0)
+      .trim();
+  }
+
+  static void git(Path directory, String... args) throws Exception {
+    final String[] command = new String[args.length + 1];
+    command[0] = "git";
+    System.arraycopy(args, 0, command, 1, args.length);
+
+    final Process process = new ProcessBuilder(command)
+      .directory(directory.toFile())
+      .redirectErrorStream(true)
+      .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+      .start();
+
+    assertTrue(process.waitFor(30, TimeUnit.SECONDS));
+    assertEquals(0, process.exitValue());
+  }
+}
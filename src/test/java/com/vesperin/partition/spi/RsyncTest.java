@@ -0,0 +1,123 @@
+package com.vesperin.partition.spi;
+
+import com.vesperin.partition.utils.IO;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFilePermissions;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author Huascar Sanchez
+ */
+public class RsyncTest {
+  private Path root;
+
+  @Before public void setUp() throws Exception {
+    root = Files.createTempDirectory("rsync");
+  }
+
+  @After public void tearDown() throws Exception {
+    IO.deleteDirectory(root);
+  }
+
+  @Test public void replicatesSourceInsideTarget() throws Exception {
+    final Path from = root.resolve("project");
+    write(from.resolve("src/A.java"), "class A {}");
+
+    final Path to = root.resolve("out");
+    new Mkdir().mkdir(to.toFile());
+    new Rsync().rsync(from.toFile(), to.toFile());
+
+    assertEquals("class A {}", read(to.resolve("project/src/A.java")));
+    assertTrue(Files.exists(from.resolve("src/A.java")));
+  }
+
+  @Test public void preservesLinksAndAttributes() throws Exception {
+    final Path from = root.resolve("project");
+    write(from.resolve("A.java"), "class A {}");
+    Files.createSymbolicLink(from.resolve("B.java"), from.resolve("A.java").getFileName());
+
+    final FileTime stamp = FileTime.fromMillis(1_000_000_000_000L);
+    Files.setLastModifiedTime(from.resolve("A.java"), stamp);
+
+    final boolean posix = Files.getFileAttributeView(from, PosixFileAttributeView.class) != null;
+    if(posix){
+      Files.setPosixFilePermissions(from.resolve("A.java"), PosixFilePermissions.fromString("r-x------"));
+    }
+
+    final Path to = root.resolve("out");
+    new Rsync().rsync(from.toFile(), to.toFile());
+
+    final Path copy = to.resolve("project");
+    assertEquals(stamp, Files.getLastModifiedTime(copy.resolve("A.java")));
+    assertTrue(Files.isSymbolicLink(copy.resolve("B.java")));
+    assertEquals("A.java", Files.readSymbolicLink(copy.resolve("B.java")).toString());
+    if(posix){
+      assertEquals("r-x------", PosixFilePermissions.toString(Files.getPosixFilePermissions(copy.resolve("A.java"))));
+    }
+  }
+
+  @Test public void overwritesAnExistingTarget() throws Exception {
+    final Path from = root.resolve("project");
+    write(from.resolve("A.java"), "class A { int x; }");
+
+    final Path to = root.resolve("out");
+    write(to.resolve("project/A.java"), "class A {}");
+    write(to.resolve("project/Old.java"), "class Old {}");
+
+    new Rsync().rsync(from.toFile(), to.toFile());
+
+    assertEquals("class A { int x; }", read(to.resolve("project/A.java")));
+    // like rsync without --delete, extra files at the target stay
+    assertTrue(Files.exists(to.resolve("project/Old.java")));
+  }
+
+  @Test public void movesSourceInsideTarget() throws Exception {
+    final Path from = root.resolve("project");
+    write(from.resolve("src/A.java"), "class A {}");
+
+    final Path to = root.resolve("out");
+    new Mkdir().mkdir(to.toFile());
+    new Rsync().move(from.toFile(), to.toFile());
+
+    assertFalse(Files.exists(from));
+    assertEquals("class A {}", read(to.resolve("project/src/A.java")));
+  }
+
+  @Test public void mkdirCreatesParentsAndToleratesExisting() throws Exception {
+    final Path nested = root.resolve("a/b/c");
+
+    new Mkdir().mkdir(nested.toFile());
+    new Mkdir().mkdir(nested.toFile());
+
+    assertTrue(Files.isDirectory(nested));
+  }
+
+  @Test(expected = RuntimeException.class)
+  public void mkdirOverAFileFails() throws Exception {
+    final Path file = root.resolve("file");
+    write(file, "");
+
+    new Mkdir().mkdir(file.toFile());
+  }
+
+  private static void write(Path file, String content) throws IOException {
+    Files.createDirectories(file.getParent());
+    Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+  }
+
+  private static String read(Path file) throws IOException {
+    return new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+  }
+}
@@ -0,0 +1,91 @@
+package com.vesperin.partition.utils;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author Huascar Sanchez
+ */
+public class CheckpointTest {
+  private Path dir;
+  private Path file;
+
+  @Before public void setUp() throws Exception {
+    dir  = Files.createTempDirectory("checkpoint");
+    file = dir.resolve("checkpoint.jsonl");
+  }
+
+  @After public void tearDown() throws Exception {
+    IO.deleteDirectory(dir);
+  }
+
+  @Test public void resumesExtractedProjects() throws Exception {
+    final Checkpoint checkpoint = Checkpoint.create(file, "c", "sw");
+    checkpoint.cloned("a", "v1");
+    checkpoint.extracted("a", Arrays.asList("x", "y"));
+    checkpoint.cloned("b", null);
+    checkpoint.failed("b", new RuntimeException("boom"));
+
+    final Checkpoint loaded = Checkpoint.load(file, "c", "sw");
+    assertTrue(loaded.isExtracted("a", "v1"));
+    assertEquals(Arrays.asList("x", "y"), loaded.wordsOf("a"));
+    assertEquals(Checkpoint.Stage.FAILED, loaded.stageOf("b"));
+    assertEquals(Collections.singletonMap("b", "boom"), loaded.failures());
+  }
+
+  @Test public void movedGitRefIsNotExtracted() throws Exception {
+    final Checkpoint checkpoint = Checkpoint.create(file, "c", "sw");
+    checkpoint.cloned("a", "v1");
+    checkpoint.extracted("a", Collections.singletonList("x"));
+
+    final Checkpoint loaded = Checkpoint.load(file, "c", "sw");
+    assertFalse(loaded.isExtracted("a", "v2"));
+    assertFalse(loaded.isExtracted("a", null));
+  }
+
+  @Test public void otherScopeOrStopWordsAreIgnored() throws Exception {
+    final Checkpoint checkpoint = Checkpoint.create(file, "c", "sw");
+    checkpoint.cloned("a", null);
+    checkpoint.extracted("a", Collections.singletonList("x"));
+
+    assertNull(Checkpoint.load(file, "m", "sw").stageOf("a"));
+    assertNull(Checkpoint.load(file, "c", "other").stageOf("a"));
+  }
+
+  @Test public void appendsOneLinePerChangeAndCompactsOnLoad() throws Exception {
+    final Checkpoint checkpoint = Checkpoint.create(file, "c", "sw");
+    checkpoint.cloned("a", null);
+    checkpoint.extracted("a", Collections.singletonList("x"));
+    checkpoint.cloned("b", null);
+
+    assertEquals(3, Files.readAllLines(file, StandardCharsets.UTF_8).size());
+
+    Checkpoint.load(file, "c", "sw");
+    assertEquals(2, Files.readAllLines(file, StandardCharsets.UTF_8).size());
+  }
+
+  @Test public void truncatedLastLineIsIgnored() throws Exception {
+    final Checkpoint checkpoint = Checkpoint.create(file, "c", "sw");
+    checkpoint.cloned("a", null);
+    checkpoint.extracted("a", Collections.singletonList("x"));
+
+    Files.write(file, "{\"project\":\"b\",\"sta".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+
+    final Checkpoint loaded = Checkpoint.load(file, "c", "sw");
+    assertTrue(loaded.isExtracted("a", null));
+    assertNull(loaded.stageOf("b"));
+  }
+}
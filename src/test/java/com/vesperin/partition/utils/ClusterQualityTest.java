@@ -0,0 +1,112 @@
+package com.vesperin.partition.utils;
+
+import com.google.common.collect.Lists;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * @author Huascar Sanchez
+ */
+public class ClusterQualityTest {
+  private static final double DELTA = 1e-9;
+
+  private final Overlaps overlaps = Overlaps.of(Lists.newArrayList(
+    new int[]{0, 1, 2, 3},  // 0
+    new int[]{0, 1, 2, 4},  // 1: shares 3 with 0
+    new int[]{0, 1, 2},     // 2: shares 3 with 0 and 1
+    new int[]{2, 7},        // 3: shares 1 with 0, 1 and 2
+    new int[]{9}            // 4: shares nothing
+  ));
+
+  @Test public void measuresCohesionAndCuts() throws Exception {
+    final ClusterQuality quality = ClusterQuality.of(overlaps, new int[]{0, 0, 0, 1, 2}, 3);
+
+    assertEquals(3, quality.clusters);
+    assertEquals(2, quality.singletons());
+    assertEquals(Arrays.asList(3.0, null, null), quality.cohesion);
+    assertEquals(3.0, quality.meanCohesion(), DELTA);
+
+    // project 4 shares nothing with anyone
+    assertEquals(0, quality.minInterOverlap());
+    assertEquals(1, quality.maxInterOverlap());
+
+    // cross pairs: 3 with project 3 sharing one word each, 4 with project 4
+    assertEquals(3.0 / 7, quality.meanInterOverlap(), DELTA);
+  }
+
+  @Test public void minInterOverlapCountsPairsSharingNothing() throws Exception {
+    // without project 4, every cross pair shares exactly one word
+    final Overlaps linked = Overlaps.of(Lists.newArrayList(
+      new int[]{0, 1, 2, 3}, new int[]{0, 1, 2, 4}, new int[]{0, 1, 2}, new int[]{2, 7}
+    ));
+
+    final ClusterQuality quality = ClusterQuality.of(linked, new int[]{0, 0, 0, 1}, 2);
+    assertEquals(1, quality.minInterOverlap());
+    assertEquals(1, quality.maxInterOverlap());
+  }
+
+  @Test public void cuttingStrongLinksLowersCohesion() throws Exception {
+    final ClusterQuality quality = ClusterQuality.of(overlaps, new int[]{0, 1, 0, 0, 1}, 2);
+
+    // cluster 0: pairs (0,2)=3, (0,3)=1, (2,3)=1; cluster 1: pair (1,4)=0
+    assertEquals(5.0 / 3, quality.cohesion.get(0), DELTA);
+    assertEquals(0.0, quality.cohesion.get(1), DELTA);
+    assertEquals(3, quality.maxInterOverlap());
+    assertEquals(0, quality.singletons());
+  }
+
+  @Test public void matchesBruteForce() throws Exception {
+    final Random      random    = new Random(13);
+    final List<int[]> wordSets  = Lists.newArrayList();
+    for(int idx = 0; idx < 70; idx++){
+      wordSets.add(random.ints(random.nextInt(15), 0, 40).distinct().sorted().toArray());
+    }
+
+    final Overlaps overlaps  = Overlaps.of(wordSets);
+    final int      k         = 9;
+    final int[]    clusterOf = random.ints(wordSets.size(), 0, k).toArray();
+
+    final ClusterQuality quality = ClusterQuality.of(overlaps, clusterOf, k);
+
+    final long[] sums  = new long[k];
+    final long[] pairs = new long[k];
+    long crossSum = 0, crossPairs = 0;
+    int  min      = Integer.MAX_VALUE, max = 0;
+    for(int x = 0; x < wordSets.size(); x++){
+      for(int y = 0; y < x; y++){
+        final int w = overlaps.shared(x, y);
+        if(clusterOf[x] == clusterOf[y]){
+          sums[clusterOf[x]] += w;
+          pairs[clusterOf[x]]++;
+        } else {
+          crossSum += w;
+          crossPairs++;
+          min = Math.min(min, w);
+          max = Math.max(max, w);
+        }
+      }
+    }
+
+    assertEquals(min, quality.minInterOverlap());
+    assertEquals(max, quality.maxInterOverlap());
+    assertEquals((double) crossSum / crossPairs, quality.meanInterOverlap(), DELTA);
+    for(int c = 0; c < k; c++){
+      if(pairs[c] == 0) continue;
+      assertEquals((double) sums[c] / pairs[c], quality.cohesion.get(c), DELTA);
+    }
+  }
+
+  @Test public void oneClusterCutsNothing() throws Exception {
+    final ClusterQuality quality = ClusterQuality.of(overlaps, new int[]{0, 0, 0, 0, 0}, 1);
+    assertEquals(0, quality.minInterOverlap());
+    assertEquals(0, quality.maxInterOverlap());
+
+    // 12 shared words over 10 pairs
+    assertEquals(1.2, quality.cohesion.get(0), DELTA);
+  }
+}
@@ -0,0 +1,87 @@
+package com.vesperin.partition.utils;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author Huascar Sanchez
+ */
+public class FileWordsTest {
+  private Path dir;
+
+  @Before public void setUp() throws Exception {
+    dir = Files.createTempDirectory("files");
+  }
+
+  @After public void tearDown() throws Exception {
+    IO.deleteDirectory(dir);
+  }
+
+  @Test public void wordsAreTheUnionOfFileContributions() throws Exception {
+    final FileWords files = FileWords.empty("p", "c", "sw");
+    files.put("A.java", Arrays.asList("map", "list"));
+    files.put("B.java", Arrays.asList("map", "tree"));
+    files.put("C.java", Collections.singletonList("map"));
+
+    // most contributing files first, ties in alphabetical order
+    assertEquals(Arrays.asList("map", "list", "tree"), files.words());
+    assertEquals(3, files.size());
+  }
+
+  @Test public void removingAFileSubtractsOnlyItsContribution() throws Exception {
+    final FileWords files = FileWords.empty("p", "c", "sw");
+    files.put("A.java", Arrays.asList("map", "list"));
+    files.put("B.java", Arrays.asList("map", "tree"));
+
+    files.remove("B.java");
+    assertEquals(Arrays.asList("list", "map"), files.words());
+
+    files.remove("missing.java");
+    assertEquals(1, files.size());
+  }
+
+  @Test public void puttingAFileAgainReplacesItsContribution() throws Exception {
+    final FileWords files = FileWords.empty("p", "c", "sw");
+    files.put("A.java", Arrays.asList("map", "list"));
+    files.put("A.java", Collections.singletonList("tree"));
+
+    assertEquals(Collections.singletonList("tree"), files.words());
+  }
+
+  @Test public void savedContributionsAreLoadedForTheSameInputs() throws Exception {
+    final FileWords files = FileWords.empty("a/p", "c", "sw");
+    files.put("A.java", Arrays.asList("map", "list"));
+    files.put("B.java", Collections.singletonList("map"));
+    files.revision("v1");
+    files.save(dir);
+
+    final FileWords loaded = FileWords.load(dir, "a/p", "c", "sw");
+    assertEquals("v1", loaded.revision());
+    assertEquals(files.words(), loaded.words());
+
+    // counts are rebuilt, so contributions can still be subtracted
+    loaded.remove("B.java");
+    assertEquals(Arrays.asList("list", "map"), loaded.words());
+  }
+
+  @Test public void changedInputsAreNotLoaded() throws Exception {
+    final FileWords files = FileWords.empty("p", "c", "sw");
+    files.put("A.java", Collections.singletonList("map"));
+    files.save(dir);
+
+    assertNull(FileWords.load(dir, "p", "m", "sw"));
+    assertNull(FileWords.load(dir, "p", "c", "other"));
+    assertNull(FileWords.load(dir, "q", "c", "sw"));
+    assertTrue(FileWords.empty("p", "c", "sw").words().isEmpty());
+  }
+}
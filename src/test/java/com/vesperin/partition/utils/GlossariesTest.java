@@ -0,0 +1,96 @@
+package com.vesperin.partition.utils;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author Huascar Sanchez
+ */
+public class GlossariesTest {
+  private static final Map<String, List<String>> GLOSSARIES = ImmutableMap.of(
+    "imaging", Arrays.asList("pixel", "image", "bitmap", "histogram", "kernel", "hue", "contrast"),
+    "physics", Arrays.asList("body", "collision", "force", "gravity", "velocity", "mass", "kernel")
+  );
+
+  @Test public void genericProjectHasNoDomain() throws Exception {
+    final Glossaries glossaries = Glossaries.fromResources();
+
+    // one incidental glossary word ("image") among generic words
+    final Set<String> words = ImmutableSet.of(
+      "list", "map", "parser", "token", "reader", "writer", "image", "config", "util", "node"
+    );
+
+    assertEquals(-1, glossaries.detect(words));
+    assertTrue(glossaries.filter(glossaries.detect(words)).filter(words).containsAll(words));
+  }
+
+  @Test public void fewGlossaryWordsAreNotEnough() throws Exception {
+    final Glossaries glossaries = Glossaries.of(GLOSSARIES);
+    assertEquals(-1, glossaries.detect(ImmutableSet.of("pixel", "image", "bitmap", "parser")));
+  }
+
+  @Test public void glossaryWordsMustBeAMeaningfulShare() throws Exception {
+    final Glossaries glossaries = Glossaries.of(GLOSSARIES);
+
+    final Set<String> words = Sets.newHashSet("pixel", "image", "bitmap", "histogram", "hue");
+    for(int idx = 0; idx < 200; idx++) words.add("word" + idx);
+
+    assertEquals(-1, glossaries.detect(words));
+  }
+
+  @Test public void clearWinnerIsDetected() throws Exception {
+    final Glossaries glossaries = Glossaries.of(GLOSSARIES);
+
+    final Set<String> words = ImmutableSet.of(
+      "pixel", "image", "bitmap", "histogram", "hue", "contrast", "parser", "mass"
+    );
+
+    final int domain = glossaries.detect(words);
+    assertEquals("imaging", glossaries.name(domain));
+
+    // a domain drops the words of other domains only
+    final Set<String> kept = glossaries.filter(domain).filter(words);
+    assertTrue(kept.contains("pixel"));
+    assertFalse(kept.contains("mass"));
+  }
+
+  @Test public void filteringKeepsRankOrder() throws Exception {
+    final Glossaries glossaries = Glossaries.of(GLOSSARIES);
+
+    final List<String> ranked = Arrays.asList(
+      "pixel", "zebra", "mass", "image", "bitmap", "alpha", "histogram", "force", "hue", "contrast"
+    );
+
+    final int domain = glossaries.detect(ImmutableSet.copyOf(ranked));
+    assertEquals("imaging", glossaries.name(domain));
+
+    final Set<String> kept = glossaries.filter(domain).filter(Sets.newLinkedHashSet(ranked));
+    assertEquals(
+      Arrays.asList("pixel", "zebra", "image", "bitmap", "alpha", "histogram", "hue", "contrast"),
+      Lists.newArrayList(kept)
+    );
+  }
+
+  @Test public void closeRunnerUpMeansNoDomain() throws Exception {
+    final Glossaries glossaries = Glossaries.of(GLOSSARIES);
+
+    final Set<String> words = ImmutableSet.of(
+      "pixel", "image", "bitmap", "histogram", "hue", "contrast",
+      "body", "collision", "force", "gravity", "velocity"
+    );
+
+    assertEquals(-1, glossaries.detect(words));
+  }
+}
@@ -0,0 +1,76 @@
+package com.vesperin.partition.utils;
+
+import com.google.common.collect.Lists;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static com.vesperin.partition.utils.Groupings.groupsOf;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author Huascar Sanchez
+ */
+public class GroupMakerTest {
+  @Test public void clampsTheOverlappingFactor() throws Exception {
+    assertEquals(3, GroupMaker.threshold(-5));
+    assertEquals(3, GroupMaker.threshold(1));
+    assertEquals(7, GroupMaker.threshold(7));
+    assertEquals(30, GroupMaker.threshold(99));
+  }
+
+  @Test public void linksAreTransitive() throws Exception {
+    // 0's nearest is 1, 2's nearest is 1, so all three end up together
+    // although 0 and 2 share fewer words than the factor
+    final List<int[]> wordSets = Lists.newArrayList(
+      new int[]{0, 1, 2, 3, 4, 5},
+      new int[]{0, 1, 2, 3, 4, 5, 6, 7, 8, 9},
+      new int[]{4, 5, 6, 7, 8, 9},
+      new int[]{20, 21}
+    );
+
+    assertEquals(
+      Lists.newArrayList(Lists.newArrayList(0, 1, 2), Lists.newArrayList(3)),
+      groupsOf(GroupMaker.makeGroups(3, Overlaps.of(wordSets), Lists.newArrayList(0, 1, 2, 3)))
+    );
+  }
+
+  @Test public void sharingExactlyTheFactorDoesNotLink() throws Exception {
+    final List<int[]> exactly = Lists.newArrayList(new int[]{0, 1, 2, 3}, new int[]{0, 1, 2, 3, 4});
+    final List<int[]> more    = Lists.newArrayList(new int[]{0, 1, 2, 3, 4}, new int[]{0, 1, 2, 3, 4});
+
+    assertEquals(2, groupsOf(GroupMaker.makeGroups(4, Overlaps.of(exactly), Lists.newArrayList(0, 1))).size());
+    assertEquals(1, groupsOf(GroupMaker.makeGroups(4, Overlaps.of(more), Lists.newArrayList(0, 1))).size());
+
+    // factors below the minimum behave as the minimum
+    final List<int[]> three = Lists.newArrayList(new int[]{0, 1, 2}, new int[]{0, 1, 2});
+    assertEquals(2, groupsOf(GroupMaker.makeGroups(1, Overlaps.of(three), Lists.newArrayList(0, 1))).size());
+  }
+
+  @Test public void orderIsDeterministic() throws Exception {
+    // two interleaved communities; groups come in order of their first element
+    final List<int[]>   wordSets = Lists.newArrayList();
+    final List<Integer> elements = Lists.newArrayList();
+    for(int idx = 0; idx < 20; idx++){
+      final int community = idx % 2;
+      wordSets.add(IntStream.range(community * 10, community * 10 + 6).toArray());
+      elements.add(idx);
+    }
+
+    final List<List<Integer>> groups = groupsOf(GroupMaker.makeGroups(3, Overlaps.of(wordSets), elements));
+    assertEquals(2, groups.size());
+    assertEquals(Lists.newArrayList(0, 2, 4, 6, 8, 10, 12, 14, 16, 18), groups.get(0));
+    assertEquals(Lists.newArrayList(1, 3, 5, 7, 9, 11, 13, 15, 17, 19), groups.get(1));
+
+    for(int run = 0; run < 3; run++){
+      assertEquals(groups, groupsOf(GroupMaker.makeGroups(3, Overlaps.of(wordSets), elements)));
+    }
+  }
+
+  @Test public void nothingToGroup() throws Exception {
+    assertTrue(groupsOf(GroupMaker.makeGroups(3, new Overlaps(), Collections.<Integer>emptyList())).isEmpty());
+  }
+}
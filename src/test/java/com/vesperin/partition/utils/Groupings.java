@@ -0,0 +1,34 @@
+package com.vesperin.partition.utils;
+
+import com.google.common.collect.Lists;
+import com.vesperin.text.Grouping;
+
+import java.util.List;
+
+/**
+ * Helpers shared by the grouping engines' tests.
+ *
+ * @author Huascar Sanchez
+ */
+final class Groupings {
+  private Groupings(){
+    throw new Error("Utility class");
+  }
+
+  /**
+   * Lists the members of each group, in order.
+   *
+   * @param groups groups of integer elements
+   * @return the members of each group.
+   */
+  static List<List<Integer>> groupsOf(Grouping.Groups groups){
+    final List<List<Integer>> result = Lists.newArrayList();
+    for(Grouping.Group each : groups){
+      final List<Integer> members = Lists.newArrayList();
+      each.forEach(e -> members.add((Integer) e));
+      result.add(members);
+    }
+
+    return result;
+  }
+}
@@ -0,0 +1,149 @@
+package com.vesperin.partition.utils;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author Huascar Sanchez
+ */
+public class IOTest {
+  private Path root;
+
+  @Before public void setUp() throws Exception {
+    root = Files.createTempDirectory("io");
+  }
+
+  @After public void tearDown() throws Exception {
+    IO.deleteDirectory(root);
+  }
+
+  @Test public void deletesTreeAndCountsFiles() throws Exception {
+    final Path tree = root.resolve("tree");
+    write(tree.resolve("a/b/c.txt"), "abc");
+    write(tree.resolve("a/d.txt"), "d");
+    write(tree.resolve("e.txt"), "");
+
+    final IO.Stats stats = IO.deleteDirectory(tree);
+
+    assertFalse(Files.exists(tree));
+    assertEquals(3, stats.files());
+    assertEquals(4, stats.bytes());
+  }
+
+  @Test public void deletingALinkedRootKeepsItsTarget() throws Exception {
+    final Path target = root.resolve("target");
+    write(target.resolve("keep.txt"), "keep");
+
+    final Path link = Files.createSymbolicLink(root.resolve("link"), target);
+    IO.deleteDirectory(link);
+
+    assertFalse(Files.exists(link, LinkOption.NOFOLLOW_LINKS));
+    assertTrue(Files.exists(target.resolve("keep.txt")));
+  }
+
+  @Test public void linksInsideTreeAreNotFollowed() throws Exception {
+    final Path outside = root.resolve("outside");
+    write(outside.resolve("keep.txt"), "keep");
+
+    final Path tree = root.resolve("tree");
+    write(tree.resolve("a.txt"), "a");
+    Files.createSymbolicLink(tree.resolve("link"), outside);
+
+    IO.deleteDirectory(tree);
+
+    assertFalse(Files.exists(tree));
+    assertTrue(Files.exists(outside.resolve("keep.txt")));
+  }
+
+  @Test public void deletingAMissingPathDoesNothing() throws Exception {
+    assertEquals(0, IO.deleteDirectory(root.resolve("missing")).files());
+  }
+
+  @Test public void copiesTree() throws Exception {
+    final Path from = root.resolve("from");
+    write(from.resolve("a/b.txt"), "bb");
+    write(from.resolve("c.txt"), "c");
+
+    final Path to = root.resolve("to");
+    final IO.Stats stats = IO.copyDirectoryTree(from, to);
+
+    assertEquals(2, stats.files());
+    assertEquals("bb", read(to.resolve("a/b.txt")));
+    assertEquals("c", read(to.resolve("c.txt")));
+    assertTrue(Files.exists(from.resolve("c.txt")));
+  }
+
+  @Test public void movingWithinAFileStoreRenames() throws Exception {
+    final Path from = root.resolve("from");
+    write(from.resolve("a/b.txt"), "bb");
+    final Object key = Files.readAttributes(from.resolve("a/b.txt"), BasicFileAttributes.class).fileKey();
+
+    final Path to = root.resolve("to");
+    IO.moveDirectoryTree(from, to);
+
+    assertFalse(Files.exists(from));
+    assertEquals("bb", read(to.resolve("a/b.txt")));
+    if(key != null){
+      // same file, not a copy
+      assertEquals(key, Files.readAttributes(to.resolve("a/b.txt"), BasicFileAttributes.class).fileKey());
+    }
+  }
+
+  @Test public void movingOntoAnExistingTreeCopiesThenDeletes() throws Exception {
+    final Path from = root.resolve("from");
+    write(from.resolve("a/b.txt"), "new");
+    write(from.resolve("c.txt"), "c");
+    Files.createSymbolicLink(from.resolve("link"), from.resolve("c.txt").getFileName());
+
+    final FileTime stamp = FileTime.fromMillis(1_000_000_000_000L);
+    Files.setLastModifiedTime(from.resolve("c.txt"), stamp);
+
+    // a non-empty destination makes the atomic rename fail
+    final Path to = root.resolve("to");
+    write(to.resolve("a/b.txt"), "old");
+    write(to.resolve("kept.txt"), "kept");
+
+    IO.moveDirectoryTree(from, to);
+
+    assertFalse(Files.exists(from));
+    assertEquals("new", read(to.resolve("a/b.txt")));
+    assertEquals("kept", read(to.resolve("kept.txt")));
+    assertEquals(stamp, Files.getLastModifiedTime(to.resolve("c.txt")));
+    assertTrue(Files.isSymbolicLink(to.resolve("link")));
+    assertEquals("c.txt", Files.readSymbolicLink(to.resolve("link")).toString());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void movingAMissingTreeIsRejected() throws Exception {
+    IO.moveDirectoryTree(root.resolve("missing"), root.resolve("to"));
+  }
+
+  @Test public void collectableFilesMatchExtensionAndSkipKeywords() throws Exception {
+    assertTrue(IO.isCollectable("src/main/Foo.java", "java", "Test", "package-info"));
+    assertFalse(IO.isCollectable("src/test/FooTest.java", "java", "Test", "package-info"));
+    assertFalse(IO.isCollectable("src/main/package-info.java", "java", "Test", "package-info"));
+    assertFalse(IO.isCollectable("src/main/Foo.kt", "java", "Test", "package-info"));
+  }
+
+  private static void write(Path file, String content) throws IOException {
+    Files.createDirectories(file.getParent());
+    Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+  }
+
+  private static String read(Path file) throws IOException {
+    return new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+  }
+}
@@ -0,0 +1,51 @@
+package com.vesperin.partition.utils;
+
+import com.google.common.collect.Lists;
+import org.junit.Test;
+
+import java.util.List;
+
+import static com.vesperin.partition.utils.Groupings.groupsOf;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author Huascar Sanchez
+ */
+public class KruskalGroupMakerTest {
+  @Test public void cutsIntoSquareRootClusters() throws Exception {
+    assertEquals(1, KruskalGroupMaker.clusters(0));
+    assertEquals(1, KruskalGroupMaker.clusters(3));
+    assertEquals(3, KruskalGroupMaker.clusters(9));
+    assertEquals(3, KruskalGroupMaker.clusters(15));
+  }
+
+  @Test public void weakestLinksAreCut() throws Exception {
+    // two tight pairs and a loosely linked one; floor(sqrt(4)) = 2 clusters
+    final List<int[]> wordSets = Lists.newArrayList(
+      new int[]{0, 1, 2, 3, 4},
+      new int[]{0, 1, 2, 3, 4, 9},
+      new int[]{9, 10, 11, 12},
+      new int[]{10, 11, 12, 13}
+    );
+
+    final List<List<Integer>> groups = groupsOf(
+      KruskalGroupMaker.makeGroups(Overlaps.of(wordSets), Lists.newArrayList(0, 1, 2, 3))
+    );
+
+    assertEquals(Lists.newArrayList(Lists.newArrayList(0, 1), Lists.newArrayList(2, 3)), groups);
+  }
+
+  @Test public void unlinkedElementsStayApart() throws Exception {
+    final List<int[]> wordSets = Lists.newArrayList(
+      new int[]{0}, new int[]{1}, new int[]{2}, new int[]{3}
+    );
+
+    final List<List<Integer>> groups = groupsOf(
+      KruskalGroupMaker.makeGroups(Overlaps.of(wordSets), Lists.newArrayList(0, 1, 2, 3))
+    );
+
+    assertEquals(4, groups.size());
+    assertTrue(groupsOf(KruskalGroupMaker.makeGroups(new Overlaps(), Lists.newArrayList())).isEmpty());
+  }
+}
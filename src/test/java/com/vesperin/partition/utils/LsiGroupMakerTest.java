@@ -0,0 +1,197 @@
+package com.vesperin.partition.utils;
+
+import com.google.common.collect.Lists;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static com.vesperin.partition.utils.Groupings.groupsOf;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author Huascar Sanchez
+ */
+public class LsiGroupMakerTest {
+  private static final double DELTA = 1e-9;
+
+  @Test public void eigenDecomposesSymmetricMatrices() throws Exception {
+    final double[][] matrix = {
+      {4, 1, 2},
+      {1, 3, 0},
+      {2, 0, 5}
+    };
+
+    final double[][] copy    = copyOf(matrix);
+    final double[][] vectors = new double[3][3];
+    final double[]   values  = LsiGroupMaker.eigen(copy, vectors);
+
+    // trace and A v = lambda v
+    assertEquals(12, values[0] + values[1] + values[2], DELTA);
+    for(int col = 0; col < 3; col++){
+      for(int row = 0; row < 3; row++){
+        double sum = 0;
+        for(int k = 0; k < 3; k++) sum += matrix[row][k] * vectors[k][col];
+        assertEquals(values[col] * vectors[row][col], sum, 1e-8);
+      }
+    }
+
+    assertOrthonormal(vectors);
+  }
+
+  @Test public void eigenOfKnownMatrix() throws Exception {
+    final double[][] vectors = new double[2][2];
+    final double[]   values  = LsiGroupMaker.eigen(new double[][]{{2, 1}, {1, 2}}, vectors);
+
+    assertEquals(1, Math.min(values[0], values[1]), DELTA);
+    assertEquals(3, Math.max(values[0], values[1]), DELTA);
+  }
+
+  @Test public void orthonormalizesColumns() throws Exception {
+    final Random     random = new Random(1);
+    final double[][] matrix = new double[12][5];
+    for(double[] row : matrix){
+      for(int j = 0; j < row.length; j++) row[j] = random.nextGaussian();
+    }
+
+    // a dependent column becomes zero
+    for(double[] row : matrix) row[4] = row[0] + row[1];
+
+    LsiGroupMaker.orthonormalize(matrix);
+
+    for(int a = 0; a < 4; a++){
+      for(int b = 0; b < 4; b++){
+        assertEquals(a == b ? 1 : 0, dot(matrix, a, b), 1e-9);
+      }
+    }
+
+    assertEquals(0, dot(matrix, 4, 4), DELTA);
+  }
+
+  @Test public void sparseProductsMatchDenseOnes() throws Exception {
+    final List<int[]> wordSets = Lists.newArrayList(
+      new int[]{0, 2}, new int[]{1}, new int[]{}, new int[]{0, 1, 3}
+    );
+
+    final LsiGroupMaker.Csr matrix = LsiGroupMaker.Csr.tfIdf(wordSets, 4);
+    final double[][]        dense  = denseOf(matrix);
+
+    assertEquals(4, matrix.rows());
+    assertEquals(4, matrix.columns());
+
+    // rows are unit length, empty ones stay empty
+    for(int row = 0; row < 4; row++){
+      double norm = 0;
+      for(double each : dense[row]) norm += each * each;
+      assertEquals(row == 2 ? 0 : 1, norm, DELTA);
+    }
+
+    final double[][] transposed = denseOf(matrix.transpose());
+    for(int i = 0; i < 4; i++){
+      for(int j = 0; j < 4; j++) assertEquals(dense[i][j], transposed[j][i], DELTA);
+    }
+
+    final Random     random = new Random(2);
+    final double[][] other  = new double[4][3];
+    for(double[] row : other){
+      for(int j = 0; j < row.length; j++) row[j] = random.nextGaussian();
+    }
+
+    final double[][] product = matrix.times(other);
+    for(int i = 0; i < 4; i++){
+      for(int j = 0; j < 3; j++){
+        double sum = 0;
+        for(int k = 0; k < 4; k++) sum += dense[i][k] * other[k][j];
+        assertEquals(sum, product[i][j], DELTA);
+      }
+    }
+  }
+
+  @Test public void kMeansSeparatesDistantPoints() throws Exception {
+    final double[][] points = new double[30][];
+    final Random     random = new Random(3);
+    for(int idx = 0; idx < points.length; idx++){
+      final double angle = (idx % 3) * 2 * Math.PI / 3 + random.nextDouble() * 0.05;
+      points[idx] = new double[]{Math.cos(angle), Math.sin(angle)};
+    }
+
+    final int[] labels = LsiGroupMaker.kMeans(points, 3, new Random(4));
+    for(int idx = 0; idx < points.length; idx++){
+      for(int other = 0; other < points.length; other++){
+        assertEquals(idx % 3 == other % 3, labels[idx] == labels[other]);
+      }
+    }
+  }
+
+  @Test public void topicsBecomeGroupsDeterministically() throws Exception {
+    // 3 topics of 12 word sets each: 9 topic words plus 2 of its own
+    final List<int[]>   wordSets = Lists.newArrayList();
+    final List<Integer> elements = Lists.newArrayList();
+    for(int idx = 0; idx < 36; idx++){
+      final int topic = idx % 3;
+      wordSets.add(IntStream.concat(
+        IntStream.range(topic * 10, topic * 10 + 9),
+        IntStream.of(100 + 2 * idx, 101 + 2 * idx)
+      ).toArray());
+      elements.add(idx);
+    }
+
+    final List<List<Integer>> groups = groupsOf(LsiGroupMaker.makeGroups(wordSets, 200, elements));
+
+    // floor(sqrt(36)) = 6 clusters, none mixing topics
+    assertTrue(groups.size() <= 6);
+    for(List<Integer> each : groups){
+      assertEquals(1, each.stream().map(e -> e % 3).distinct().count());
+    }
+
+    for(int run = 0; run < 3; run++){
+      assertEquals(groups, groupsOf(LsiGroupMaker.makeGroups(wordSets, 200, elements)));
+    }
+  }
+
+  @Test public void emptyVocabularyAndEmptyWordSets() throws Exception {
+    final List<Integer> elements = Lists.newArrayList(0, 1, 2, 3);
+    final List<int[]>   empty    = elements.stream().map(e -> new int[0]).collect(Collectors.toList());
+
+    assertEquals(4, count(groupsOf(LsiGroupMaker.makeGroups(empty, 0, elements))));
+    assertEquals(4, count(groupsOf(LsiGroupMaker.makeGroups(empty, 10, elements))));
+    assertTrue(groupsOf(LsiGroupMaker.makeGroups(Lists.newArrayList(), 0, Lists.newArrayList())).isEmpty());
+  }
+
+  @Test(expected = IllegalArgumentException.class) public void rejectsMismatchedInputs() throws Exception {
+    LsiGroupMaker.makeGroups(Lists.newArrayList(new int[]{0}), 1, Lists.newArrayList(0, 1));
+  }
+
+  private static int count(List<List<Integer>> groups){
+    return groups.stream().mapToInt(List::size).sum();
+  }
+
+  private static double[][] denseOf(LsiGroupMaker.Csr matrix){
+    final double[][] identity = new double[matrix.columns()][matrix.columns()];
+    for(int idx = 0; idx < identity.length; idx++) identity[idx][idx] = 1;
+    return matrix.times(identity);
+  }
+
+  private static double dot(double[][] matrix, int a, int b){
+    double sum = 0;
+    for(double[] row : matrix) sum += row[a] * row[b];
+    return sum;
+  }
+
+  private static void assertOrthonormal(double[][] vectors){
+    for(int a = 0; a < vectors.length; a++){
+      for(int b = 0; b < vectors.length; b++){
+        assertEquals(a == b ? 1 : 0, dot(vectors, a, b), 1e-9);
+      }
+    }
+  }
+
+  private static double[][] copyOf(double[][] matrix){
+    final double[][] copy = new double[matrix.length][];
+    for(int idx = 0; idx < matrix.length; idx++) copy[idx] = matrix[idx].clone();
+    return copy;
+  }
+}
@@ -0,0 +1,97 @@
+package com.vesperin.partition.utils;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import org.junit.Test;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author Huascar Sanchez
+ */
+public class NeighboursTest {
+  @Test public void heapsMatchBruteForce() throws Exception {
+    final Random      random    = new Random(7);
+    final List<int[]> wordSets  = Lists.newArrayList();
+    for(int idx = 0; idx < 60; idx++){
+      wordSets.add(random.ints(random.nextInt(20), 0, 40).distinct().sorted().toArray());
+    }
+
+    final Overlaps overlaps = Overlaps.of(wordSets);
+    for(int k : new int[]{1, 3, 10, 100}){
+      final Neighbours neighbours = overlaps.neighbours(k);
+
+      for(int a = 0; a < wordSets.size(); a++){
+        final int from = a;
+
+        // best first; ties go to the earliest added word set
+        final int[] expected = IntStream.range(0, wordSets.size())
+          .filter(b -> b != from && overlaps.shared(from, b) > 0)
+          .boxed()
+          .sorted(Comparator.comparingInt((Integer b) -> -overlaps.shared(from, b)).thenComparingInt(b -> b))
+          .limit(k)
+          .mapToInt(Integer::intValue)
+          .toArray();
+
+        assertEquals(expected.length, neighbours.count(a));
+        for(int rank = 0; rank < expected.length; rank++){
+          assertEquals(expected[rank], neighbours.neighbour(a, rank));
+          assertEquals(overlaps.shared(a, expected[rank]), neighbours.weight(a, rank));
+        }
+
+        assertEquals(expected.length == 0 ? -1 : expected[0], neighbours.nearest(a));
+      }
+    }
+  }
+
+  @Test public void largeKIsClampedByTheIndex() throws Exception {
+    final ProjectIndex index = new ProjectIndex();
+    index.add("a", ImmutableSet.of("x", "y", "z"));
+    index.add("b", ImmutableSet.of("x", "y"));
+    index.add("c", ImmutableSet.of("x"));
+
+    assertEquals(2, index.neighboursOf("a", Integer.MAX_VALUE).size());
+    assertTrue(index.neighboursOf("missing", Integer.MAX_VALUE).isEmpty());
+  }
+
+  @Test public void smallerKIsServedFromTheLargestCached() throws Exception {
+    final ProjectIndex index = new ProjectIndex();
+    index.add("a", ImmutableSet.of("x", "y", "z"));
+    index.add("b", ImmutableSet.of("x", "y"));
+    index.add("c", ImmutableSet.of("x"));
+    index.add("d", ImmutableSet.of("w"));
+
+    final Map<String, Integer> nearest = index.neighboursOf("a", 1);
+
+    final Neighbours all = index.neighbours(3);
+    assertSame(all, index.neighbours(1));
+    assertSame(all, index.neighbours(2));
+
+    assertEquals(nearest, index.neighboursOf("a", 1));
+    assertEquals(ImmutableMap.of("b", 2), nearest);
+    assertEquals(ImmutableMap.of("b", 2, "c", 1), index.neighboursOf("a", 2));
+
+    // a new project drops the cached neighbours
+    index.add("e", ImmutableSet.of("x", "y", "z"));
+    assertNotSame(all, index.neighbours(1));
+    assertEquals(ImmutableMap.of("e", 3), index.neighboursOf("a", 1));
+  }
+
+  @Test public void emptyStructureHasNoNeighbours() throws Exception {
+    assertEquals(0, new Overlaps().neighbours(3).size());
+  }
+
+  @Test(expected = IllegalArgumentException.class) public void rejectsNonPositiveK() throws Exception {
+    new Neighbours(3, 0);
+  }
+}
@@ -0,0 +1,125 @@
+package com.vesperin.partition.utils;
+
+import com.google.common.collect.Lists;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author Huascar Sanchez
+ */
+public class OverlapsTest {
+  @Test public void countsSharedWords() throws Exception {
+    final Overlaps overlaps = Overlaps.of(Lists.newArrayList(
+      new int[]{0, 1, 2}, new int[]{1, 2, 3}, new int[]{7}
+    ));
+
+    assertEquals(3, overlaps.size());
+    assertEquals(2, overlaps.shared(0, 1));
+    assertEquals(2, overlaps.shared(1, 0));
+    assertEquals(0, overlaps.shared(0, 2));
+    assertEquals(3, overlaps.shared(1, 1));
+    assertEquals(2, overlaps.frequency(1));
+    assertEquals(0, overlaps.frequency(99));
+
+    assertEquals(1, overlaps.nearest(0));
+    assertEquals(-1, overlaps.nearest(2));
+  }
+
+  @Test public void countsMatchBruteForce() throws Exception {
+    final Random      random   = new Random(3);
+    final List<int[]> wordSets = Lists.newArrayList();
+    for(int idx = 0; idx < 80; idx++){
+      wordSets.add(random.ints(random.nextInt(25), 0, 60).distinct().sorted().toArray());
+    }
+
+    final Overlaps overlaps = Overlaps.of(wordSets);
+    for(int a = 0; a < wordSets.size(); a++){
+      for(int b = 0; b < a; b++){
+        assertEquals(intersection(wordSets.get(a), wordSets.get(b)), overlaps.shared(a, b));
+      }
+    }
+  }
+
+  @Test public void edgesListSharingPairsHeaviestFirst() throws Exception {
+    final Overlaps overlaps = Overlaps.of(Lists.newArrayList(
+      new int[]{0, 1}, new int[]{0, 1, 2}, new int[]{2, 5}, new int[]{9}
+    ));
+
+    final Overlaps.Edges edges = overlaps.edges();
+    assertEquals(2, edges.size());
+
+    assertEquals(0, edges.from(0));
+    assertEquals(1, edges.to(0));
+    assertEquals(2, edges.weight(0));
+
+    assertEquals(1, edges.from(1));
+    assertEquals(2, edges.to(1));
+    assertEquals(1, edges.weight(1));
+  }
+
+  @Test public void edgesAreNotKept() throws Exception {
+    final Overlaps overlaps = Overlaps.of(Lists.newArrayList(new int[]{0, 1}, new int[]{0, 1}));
+    final Overlaps.Edges first = overlaps.edges();
+
+    assertNotSame(first, overlaps.edges());
+
+    // a new word set shows up in the next listing
+    overlaps.add(new int[]{1});
+    assertTrue(overlaps.edges().size() > first.size());
+  }
+
+  @Test public void thresholdDropsLighterPairs() throws Exception {
+    final Random      random   = new Random(5);
+    final List<int[]> wordSets = Lists.newArrayList();
+    for(int idx = 0; idx < 60; idx++){
+      wordSets.add(random.ints(random.nextInt(30), 0, 50).distinct().sorted().toArray());
+    }
+
+    final Overlaps overlaps = Overlaps.of(wordSets);
+    for(int minWeight : new int[]{1, 3, 6}){
+      final Overlaps.Edges edges = overlaps.edges(minWeight);
+
+      int expected = 0;
+      for(int b = 0; b < wordSets.size(); b++){
+        for(int a = 0; a < b; a++){
+          if(overlaps.shared(a, b) >= minWeight) expected++;
+        }
+      }
+
+      assertEquals(expected, edges.size());
+      for(int idx = 0; idx < edges.size(); idx++){
+        assertTrue(edges.from(idx) < edges.to(idx));
+        assertTrue(edges.weight(idx) >= minWeight);
+        assertEquals(overlaps.shared(edges.from(idx), edges.to(idx)), edges.weight(idx));
+        if(idx > 0) assertTrue(edges.weight(idx - 1) >= edges.weight(idx));
+      }
+    }
+  }
+
+  @Test public void visitsPostings() throws Exception {
+    final Overlaps overlaps = Overlaps.of(Lists.newArrayList(
+      new int[]{0, 1}, new int[]{1}, new int[]{1, 2}
+    ));
+
+    final List<Integer> containing = Lists.newArrayList();
+    overlaps.forEachContaining(1, containing::add);
+
+    assertEquals(Arrays.asList(0, 1, 2), containing);
+    assertTrue(overlaps.vocabulary() > 2);
+
+    overlaps.forEachContaining(99, each -> { throw new AssertionError(); });
+  }
+
+  private static int intersection(int[] a, int[] b){
+    int count = 0;
+    for(int x : a) for(int y : b) if(x == y) count++;
+    return count;
+  }
+}
@@ -0,0 +1,83 @@
+package com.vesperin.partition.utils;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.vesperin.text.Grouping;
+import org.junit.Test;
+
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+/**
+ * @author Huascar Sanchez
+ */
+public class ProjectIndexTest {
+  @Test public void sweepClampsAndDeduplicatesFactors() throws Exception {
+    final ProjectIndex index = indexOf(8);
+
+    final Map<Integer, Grouping.Groups> sweep = index.sweep(1, 5);
+    assertEquals(Lists.newArrayList(3, 4, 5), Lists.newArrayList(sweep.keySet()));
+
+    assertEquals(Lists.newArrayList(29, 30), Lists.newArrayList(index.sweep(29, 40).keySet()));
+    assertEquals(0, index.sweep(5, 4).size());
+
+    // factors clamping to the same value share their groups
+    assertSame(index.groups(1), index.groups(3));
+    assertSame(sweep.get(4), index.groups(4));
+  }
+
+  @Test public void sweepFollowsTheFactor() throws Exception {
+    // project pairs share 4, 5 and 6 words respectively
+    final ProjectIndex index = new ProjectIndex();
+    for(int pair = 0; pair < 3; pair++){
+      final int shared = 4 + pair;
+      index.add("a" + pair, words(pair, shared, "a"));
+      index.add("b" + pair, words(pair, shared, "b"));
+    }
+
+    final Map<Integer, Grouping.Groups> sweep = index.sweep(3, 6);
+    assertEquals(3, count(sweep.get(3)));
+    assertEquals(4, count(sweep.get(4)));
+    assertEquals(5, count(sweep.get(5)));
+    assertEquals(6, count(sweep.get(6)));
+  }
+
+  @Test public void enginesIgnoringTheFactorGroupOnce() throws Exception {
+    final ProjectIndex index = indexOf(9);
+
+    assertSame(index.groups(Engine.KRUSKAL, 3), index.groups(Engine.KRUSKAL, 12));
+    assertSame(index.groups(Engine.LSI, 3), index.groups(Engine.LSI, 12));
+    assertNotSame(index.groups(Engine.PROPAGATION, 3), index.groups(Engine.PROPAGATION, 12));
+  }
+
+  @Test(expected = IllegalArgumentException.class) public void sweepRejectsEnginesIgnoringTheFactor() throws Exception {
+    indexOf(4).sweep(Engine.KRUSKAL, 3, 10);
+  }
+
+  private static ProjectIndex indexOf(int n){
+    final ProjectIndex index = new ProjectIndex();
+    for(int idx = 0; idx < n; idx++){
+      index.add("p" + idx, IntStream.range(idx, idx + 10).mapToObj(i -> "w" + i).collect(Collectors.toSet()));
+    }
+
+    return index;
+  }
+
+  private static ImmutableSet<String> words(int pair, int shared, String side){
+    return ImmutableSet.<String>builder()
+      .addAll(IntStream.range(0, shared).mapToObj(i -> "s" + pair + "_" + i).collect(Collectors.toList()))
+      .add(side + pair)
+      .build();
+  }
+
+  private static int count(Grouping.Groups groups){
+    int count = 0;
+    for(Grouping.Group ignored : groups) count++;
+    return count;
+  }
+}
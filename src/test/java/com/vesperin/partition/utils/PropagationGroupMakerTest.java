@@ -0,0 +1,89 @@
+package com.vesperin.partition.utils;
+
+import com.google.common.collect.Lists;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static com.vesperin.partition.utils.Groupings.groupsOf;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author Huascar Sanchez
+ */
+public class PropagationGroupMakerTest {
+  @Test public void communitiesBecomeGroups() throws Exception {
+    // 3 communities of 100 word sets each, sharing 10 words within a
+    // community, plus a loner sharing nothing
+    final List<int[]>   wordSets = Lists.newArrayList();
+    final List<Integer> elements = Lists.newArrayList();
+    for(int idx = 0; idx < 300; idx++){
+      final int community = idx / 100;
+      wordSets.add(IntStream.concat(
+        IntStream.range(community * 10, community * 10 + 10),
+        IntStream.of(1000 + idx)
+      ).toArray());
+      elements.add(idx);
+    }
+
+    wordSets.add(new int[]{5000});
+    elements.add(300);
+
+    final List<List<Integer>> groups = groupsOf(
+      PropagationGroupMaker.makeGroups(3, Overlaps.of(wordSets), elements)
+    );
+
+    assertEquals(4, groups.size());
+    for(int community = 0; community < 3; community++){
+      assertEquals(
+        IntStream.range(community * 100, community * 100 + 100).boxed().collect(Collectors.toList()),
+        groups.get(community)
+      );
+    }
+
+    assertEquals(Lists.newArrayList(300), groups.get(3));
+  }
+
+  @Test public void weakLinksDoNotMergeCommunities() throws Exception {
+    final List<int[]> wordSets = Lists.newArrayList(
+      new int[]{0, 1, 2, 3, 4, 5},
+      new int[]{0, 1, 2, 3, 4, 5},
+      new int[]{0, 1, 2, 3, 4, 5, 20},   // shares a single word with the other community
+      new int[]{10, 11, 12, 13, 14, 20},
+      new int[]{10, 11, 12, 13, 14}
+    );
+
+    final List<List<Integer>> groups = groupsOf(
+      PropagationGroupMaker.makeGroups(3, Overlaps.of(wordSets), Lists.newArrayList(0, 1, 2, 3, 4))
+    );
+
+    assertEquals(Lists.newArrayList(Lists.newArrayList(0, 1, 2), Lists.newArrayList(3, 4)), groups);
+  }
+
+  @Test public void onlyLinksHeavierThanTheThresholdCount() throws Exception {
+    final List<int[]> wordSets = Lists.newArrayList(
+      new int[]{0, 1, 2},       // shares exactly 3 words with the next one
+      new int[]{0, 1, 2, 3},
+      new int[]{0, 1, 2, 3, 9}  // shares 4 words with the previous one
+    );
+
+    final List<List<Integer>> groups = groupsOf(
+      PropagationGroupMaker.makeGroups(3, Overlaps.of(wordSets), Lists.newArrayList(0, 1, 2))
+    );
+
+    assertEquals(Lists.newArrayList(Lists.newArrayList(0), Lists.newArrayList(1, 2)), groups);
+  }
+
+  @Test public void noRoundsKeepEveryElementApart() throws Exception {
+    final List<int[]> wordSets = Lists.newArrayList(new int[]{0, 1, 2, 3, 4}, new int[]{0, 1, 2, 3, 4});
+    assertEquals(2, groupsOf(PropagationGroupMaker.makeGroups(3, Overlaps.of(wordSets), Lists.newArrayList(0, 1), 0)).size());
+    assertTrue(groupsOf(PropagationGroupMaker.makeGroups(3, new Overlaps(), Lists.newArrayList(), 5)).isEmpty());
+  }
+
+  @Test(expected = IllegalArgumentException.class) public void rejectsNegativeBudget() throws Exception {
+    PropagationGroupMaker.makeGroups(3, new Overlaps(), Lists.newArrayList(), -1);
+  }
+}
@@ -0,0 +1,51 @@
+package com.vesperin.partition.utils;
+
+import com.google.common.collect.Lists;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * @author Huascar Sanchez
+ */
+public class SchedulerTest {
+  @Test public void startsWithLargestItems() throws Exception {
+    final List<String> started = Collections.synchronizedList(Lists.newArrayList());
+
+    Scheduler.largestFirst(Arrays.asList("bb", "a", "dddd", "ccc", "e"), String::length, each -> {
+      started.add(each);
+      return each;
+    }, 1);
+
+    // equally sized items keep their given order
+    assertEquals(Arrays.asList("dddd", "ccc", "bb", "a", "e"), started);
+  }
+
+  @Test public void returnsResultsInGivenOrder() throws Exception {
+    final List<Integer> items = IntStream.range(0, 500).boxed().collect(Collectors.toList());
+
+    final List<Integer> results = Scheduler.largestFirst(items, each -> each % 7, each -> each * 2, 4);
+
+    assertEquals(items.size(), results.size());
+    for(int idx = 0; idx < items.size(); idx++){
+      assertEquals(Integer.valueOf(idx * 2), results.get(idx));
+    }
+  }
+
+  @Test(expected = RuntimeException.class) public void failingWorkIsReported() throws Exception {
+    Scheduler.largestFirst(Arrays.asList(1, 2, 3), each -> each, each -> {
+      if(each == 2) throw new IllegalStateException("boom");
+      return each;
+    }, 2);
+  }
+
+  @Test(expected = IllegalArgumentException.class) public void rejectsNoThreads() throws Exception {
+    Scheduler.largestFirst(Collections.singletonList(1), each -> each, each -> each, 0);
+  }
+}
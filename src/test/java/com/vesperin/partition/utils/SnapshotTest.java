@@ -0,0 +1,149 @@
+package com.vesperin.partition.utils;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Sets;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * @author Huascar Sanchez
+ */
+public class SnapshotTest {
+  private Path dir;
+
+  @Before public void setUp() throws Exception {
+    dir = Files.createTempDirectory("snapshot");
+  }
+
+  @After public void tearDown() throws Exception {
+    IO.deleteDirectory(dir);
+  }
+
+  @Test public void roundTripsWordsAndProjects() throws Exception {
+    final ProjectIndex index = new ProjectIndex();
+
+    // enough words that ids and their gaps need multi-byte varints
+    final Random random = new Random(11);
+    for(int idx = 0; idx < 50; idx++){
+      final Set<String> words = Sets.newHashSet();
+      for(int each = random.nextInt(300); each > 0; each--){
+        words.add("w" + random.nextInt(40000));
+      }
+
+      index.add("owner/project" + idx, words);
+    }
+
+    index.add("owner/pi\u00f1ata", ImmutableSet.of("a\u00f1o", "\u00e9t\u00e9", "w39999"));
+    index.add("owner/empty", ImmutableSet.of());
+
+    final Path file = dir.resolve("nested/index.snapshot");
+    Snapshot.write(index, file);
+    final ProjectIndex read = Snapshot.read(file);
+
+    assertEquals(index.names(), read.names());
+    assertEquals(index.symbols().size(), read.symbols().size());
+    for(int id = 0; id < index.symbols().size(); id++){
+      assertEquals(index.symbols().word(id), read.symbols().word(id));
+    }
+
+    for(String each : index.names()){
+      assertArrayEquals(index.ids(each), read.ids(each));
+      assertEquals(index.wordSet(each), read.wordSet(each));
+    }
+  }
+
+  @Test public void replacesAnExistingSnapshot() throws Exception {
+    final Path file = dir.resolve("index.snapshot");
+
+    final ProjectIndex first = new ProjectIndex();
+    first.add("a", ImmutableSet.of("x", "y"));
+    Snapshot.write(first, file);
+
+    final ProjectIndex second = new ProjectIndex();
+    second.add("b", ImmutableSet.of("z"));
+    Snapshot.write(second, file);
+
+    assertEquals(second.names(), Snapshot.read(file).names());
+  }
+
+  @Test public void truncatedSnapshotsAreReported() throws Exception {
+    final ProjectIndex index = new ProjectIndex();
+    index.add("a", ImmutableSet.of("x", "y", "z"));
+    index.add("b", ImmutableSet.of("y"));
+
+    final Path file = dir.resolve("index.snapshot");
+    Snapshot.write(index, file);
+
+    final byte[] bytes = Files.readAllBytes(file);
+    for(int length = 0; length < bytes.length; length++){
+      Files.write(file, Arrays.copyOf(bytes, length));
+      assertMalformed(file);
+    }
+  }
+
+  @Test public void corruptedSnapshotsAreReported() throws Exception {
+    final ProjectIndex index = new ProjectIndex();
+    index.add("a", ImmutableSet.of("x", "y"));
+
+    final Path file = dir.resolve("index.snapshot");
+    Snapshot.write(index, file);
+
+    final byte[] bytes = Files.readAllBytes(file);
+
+    // layout: header (8) | 2 | 1 x | 1 y | 1 | 1 a | 2 | 0 1
+    final int last = bytes.length - 1;
+
+    // an id past the dictionary
+    bytes[last] = 5;
+    Files.write(file, bytes);
+    assertMalformed(file);
+
+    // a repeated id
+    bytes[last] = 0;
+    Files.write(file, bytes);
+    assertMalformed(file);
+
+    // a word id count larger than the dictionary, then a runaway varint
+    final byte[] counted = bytes.clone();
+    counted[last - 2] = 3;
+    Files.write(file, counted);
+    assertMalformed(file);
+
+    final byte[] runaway = bytes.clone();
+    Arrays.fill(runaway, 8, runaway.length, (byte) 0xFF);
+    Files.write(file, runaway);
+    assertMalformed(file);
+
+    // trailing garbage
+    bytes[last] = 1;
+    Files.write(file, Arrays.copyOf(bytes, bytes.length + 1));
+    assertMalformed(file);
+  }
+
+  @Test(expected = IOException.class) public void rejectsOtherFiles() throws Exception {
+    final Path file = dir.resolve("index.snapshot");
+    Files.write(file, "not a snapshot".getBytes("UTF-8"));
+    Snapshot.read(file);
+  }
+
+  private static void assertMalformed(Path file){
+    try {
+      Snapshot.read(file);
+      fail("Expected an IOException for " + file);
+    } catch (IOException expected){
+      // reported as such
+    }
+  }
+}
@@ -0,0 +1,113 @@
+package com.vesperin.partition.utils;
+
+import com.google.common.base.Strings;
+import com.vesperin.base.Source;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author Huascar Sanchez
+ */
+public class SourcesTest {
+  private static final String LONG_DIR = "src/" + Strings.repeat("d", 80) + "/" + Strings.repeat("e", 80);
+
+  private Path root;
+  private Path tree;
+
+  @Before public void setUp() throws Exception {
+    root = Files.createTempDirectory("sources");
+    tree = root.resolve("project");
+
+    write(tree.resolve("src/Foo.java"), "class Foo {}\n");
+    write(tree.resolve("src/package-info.java"), "package src;\n");
+    write(tree.resolve("src/FooTest.java"), "class FooTest {}\n");
+    write(tree.resolve("README.md"), "readme\n");
+    write(tree.resolve(LONG_DIR + "/Bar.java"), "class Bar {}\n");
+  }
+
+  @After public void tearDown() throws Exception {
+    IO.deleteDirectory(root);
+  }
+
+  @Test public void readsZipArchives() throws Exception {
+    final Path zip = root.resolve("project.zip");
+    try (ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(zip))) {
+      for(String each : Arrays.asList("src/Foo.java", "src/package-info.java", "src/FooTest.java", "README.md", LONG_DIR + "/Bar.java")){
+        out.putNextEntry(new ZipEntry(each));
+        out.write(Files.readAllBytes(tree.resolve(each)));
+        out.closeEntry();
+      }
+    }
+
+    assertExpectedSources(Sources.fromArchive(zip, "java", "Test", "test", "package-info"));
+  }
+
+  @Test public void readsGnuTarArchives() throws Exception {
+    assertExpectedSources(Sources.fromArchive(tar("project.tar", "--format=gnu"), "java", "Test", "test", "package-info"));
+  }
+
+  @Test public void readsPaxTarArchives() throws Exception {
+    assertExpectedSources(Sources.fromArchive(tar("project.tar", "--format=pax"), "java", "Test", "test", "package-info"));
+  }
+
+  @Test public void readsGzippedTarArchives() throws Exception {
+    assertExpectedSources(Sources.fromArchive(tar("project.tgz", "-z"), "java", "Test", "test", "package-info"));
+  }
+
+  @Test(expected = IllegalArgumentException.class) public void rejectsUnknownFormats() throws Exception {
+    final Path rar = root.resolve("project.rar");
+    Files.write(rar, new byte[0]);
+    Sources.fromArchive(rar, "java");
+  }
+
+  @Test public void convertsBytesIntoSources() throws Exception {
+    final Source source = Sources.from("a/b/Baz.java", "class Baz {}\r\n".getBytes(StandardCharsets.UTF_8));
+    assertEquals("Baz", source.getName());
+    assertEquals("class Baz {}", source.getContent());
+  }
+
+  private static void assertExpectedSources(List<Source> sources){
+    final Map<String, String> byName = new TreeMap<>();
+    sources.forEach(s -> byName.put(s.getName(), s.getContent()));
+
+    assertEquals(2, byName.size());
+    assertEquals("class Foo {}", byName.get("Foo"));
+    assertEquals("class Bar {}", byName.get("Bar"));
+  }
+
+  private Path tar(String name, String option) throws Exception {
+    final Path archive = root.resolve(name);
+    final Process process = new ProcessBuilder("tar", option, "-cf", archive.toString(), "-C", tree.toString(), ".")
+      .redirectErrorStream(true)
+      .start();
+
+    assertTrue(process.waitFor(30, TimeUnit.SECONDS));
+    assertEquals(0, process.exitValue());
+
+    return archive;
+  }
+
+  private static void write(Path file, String content) throws IOException {
+    Files.createDirectories(file.getParent());
+    try (OutputStream out = Files.newOutputStream(file)) {
+      out.write(content.getBytes(StandardCharsets.UTF_8));
+    }
+  }
+}
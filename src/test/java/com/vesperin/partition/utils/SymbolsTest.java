@@ -0,0 +1,67 @@
+package com.vesperin.partition.utils;
+
+import com.google.common.collect.ImmutableSet;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * @author Huascar Sanchez
+ */
+public class SymbolsTest {
+  @Test public void internsWordsIntoDenseIds() throws Exception {
+    final Symbols symbols = new Symbols();
+
+    assertEquals(0, symbols.intern("pixel"));
+    assertEquals(1, symbols.intern("image"));
+    assertEquals(0, symbols.intern("pixel"));
+    assertEquals(2, symbols.size());
+
+    assertEquals(1, symbols.id("image"));
+    assertEquals(-1, symbols.id("mass"));
+    assertEquals(2, symbols.size());
+    assertEquals("image", symbols.word(1));
+  }
+
+  @Test public void wordSetsAreSortedAndDistinct() throws Exception {
+    final Symbols symbols = new Symbols();
+    symbols.intern("c");
+
+    final int[] ids = symbols.intern(Arrays.asList("b", "c", "a", "b"));
+
+    assertArrayEquals(new int[]{0, 1, 2}, ids);
+    assertEquals(ImmutableSet.of("a", "b", "c"), symbols.words(ids));
+  }
+
+  @Test public void growsPastItsInitialCapacity() throws Exception {
+    final Symbols symbols = new Symbols();
+    for(int idx = 0; idx < 1000; idx++){
+      assertEquals(idx, symbols.intern("w" + idx));
+    }
+
+    for(int idx = 0; idx < 1000; idx++){
+      assertEquals("w" + idx, symbols.word(idx));
+    }
+  }
+
+  @Test public void concurrentInterningAgreesOnIds() throws Exception {
+    final Symbols       symbols = new Symbols();
+    final List<String>  words   = IntStream.range(0, 5000).mapToObj(i -> "w" + (i % 2000)).collect(Collectors.toList());
+
+    final List<Integer> ids = words.parallelStream().map(symbols::intern).collect(Collectors.toList());
+
+    assertEquals(2000, symbols.size());
+    for(int idx = 0; idx < words.size(); idx++){
+      assertEquals(words.get(idx), symbols.word(ids.get(idx)));
+      assertEquals(symbols.id(words.get(idx)), ids.get(idx).intValue());
+    }
+
+    assertEquals(2000, IntStream.range(0, 2000).mapToObj(symbols::word).distinct().count());
+  }
+}
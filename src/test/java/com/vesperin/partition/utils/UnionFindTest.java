@@ -0,0 +1,63 @@
+package com.vesperin.partition.utils;
+
+import org.junit.Test;
+
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author Huascar Sanchez
+ */
+public class UnionFindTest {
+  @Test public void startsWithSingletons() throws Exception {
+    final UnionFind sets = new UnionFind(4);
+    assertEquals(4, sets.count());
+    assertEquals(4, sets.size());
+    for(int idx = 0; idx < 4; idx++) assertEquals(idx, sets.find(idx));
+  }
+
+  @Test public void unionMergesOnce() throws Exception {
+    final UnionFind sets = new UnionFind(5);
+    assertTrue(sets.union(0, 1));
+    assertTrue(sets.union(3, 4));
+    assertTrue(sets.union(1, 4));
+    assertFalse(sets.union(0, 3));
+
+    assertEquals(2, sets.count());
+    assertEquals(sets.find(0), sets.find(3));
+    assertTrue(sets.find(2) != sets.find(0));
+  }
+
+  @Test public void matchesNaiveLabelling() throws Exception {
+    final int       n       = 500;
+    final Random    random  = new Random(11);
+    final UnionFind sets    = new UnionFind(n);
+    final int[]     labels  = new int[n];
+    for(int idx = 0; idx < n; idx++) labels[idx] = idx;
+
+    for(int step = 0; step < 400; step++){
+      final int a = random.nextInt(n);
+      final int b = random.nextInt(n);
+
+      final boolean merged = labels[a] != labels[b];
+      assertEquals(merged, sets.union(a, b));
+
+      if(merged){
+        final int from = labels[b];
+        for(int idx = 0; idx < n; idx++) if(labels[idx] == from) labels[idx] = labels[a];
+      }
+    }
+
+    for(int a = 0; a < n; a++){
+      for(int b = a + 1; b < n; b += 7){
+        assertEquals(labels[a] == labels[b], sets.find(a) == sets.find(b));
+      }
+    }
+
+    assertEquals(IntStream.of(labels).distinct().count(), sets.count());
+  }
+}
@@ -0,0 +1,89 @@
+package com.vesperin.partition.utils;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * @author Huascar Sanchez
+ */
+public class WordCacheTest {
+  private Path dir;
+
+  @Before public void setUp() throws Exception {
+    dir = Files.createTempDirectory("cache");
+  }
+
+  @After public void tearDown() throws Exception {
+    IO.deleteDirectory(dir);
+  }
+
+  @Test public void returnsStoredWordsInRankOrder() throws Exception {
+    final WordCache cache = new WordCache(dir.resolve("cache"));
+    final WordCache.Key key = new WordCache.Key("a/b", "v1", "c", "sw");
+
+    cache.put(key, Arrays.asList("z", "a", "m"));
+
+    assertEquals(Arrays.asList("z", "a", "m"), cache.get(key));
+    assertEquals(Arrays.asList("z", "a", "m"), new WordCache(dir.resolve("cache")).get(key));
+  }
+
+  @Test public void changedInputsMissTheCache() throws Exception {
+    final WordCache cache = new WordCache(dir);
+    cache.put(new WordCache.Key("a", "v1", "c", "sw"), Collections.singletonList("x"));
+
+    assertNull(cache.get(new WordCache.Key("a", "v2", "c", "sw")));
+    assertNull(cache.get(new WordCache.Key("a", "v1", "m", "sw")));
+    assertNull(cache.get(new WordCache.Key("a", "v1", "c", "other")));
+    assertNull(cache.get(new WordCache.Key("b", "v1", "c", "sw")));
+  }
+
+  @Test public void failingToStoreIsIgnored() throws Exception {
+    // the cache's directory cannot be created over a regular file
+    final Path file = Files.createFile(dir.resolve("file"));
+    final WordCache cache = new WordCache(file.resolve("cache"));
+    final WordCache.Key key = new WordCache.Key("a", "v1", "c", "sw");
+
+    cache.put(key, Collections.singletonList("x"));
+
+    assertNull(cache.get(key));
+  }
+
+  @Test public void fingerprintCoversGlossaryContents() throws Exception {
+    final Map<String, List<String>> glossaries = ImmutableMap.of(
+      "imaging", Arrays.asList("pixel", "image"), "physics", Arrays.asList("mass", "force")
+    );
+
+    final Map<String, List<String>> reordered = ImmutableMap.of(
+      "imaging", Arrays.asList("image", "pixel"), "physics", Arrays.asList("force", "mass")
+    );
+
+    final Map<String, List<String>> changed = ImmutableMap.of(
+      "imaging", Arrays.asList("pixel", "image", "hue"), "physics", Arrays.asList("mass", "force")
+    );
+
+    assertEquals(hashOf(glossaries), hashOf(reordered));
+    assertNotEquals(hashOf(glossaries), hashOf(changed));
+    assertEquals(WordMaker.fingerprint(), WordMaker.fingerprint());
+  }
+
+  private static String hashOf(Map<String, List<String>> glossaries){
+    final Hasher hasher = Hashing.sha256().newHasher();
+    Glossaries.of(glossaries).hash(hasher);
+    return hasher.hash().toString();
+  }
+}